@@ -21,6 +21,8 @@ import MobileNav from "@/components/layout/mobile-nav";
 import { useTranslation } from "react-i18next";
 import SearchResultsPage from "@/pages/search-results";
 import ScanBookPage from "@/pages/ScanBookPage";
+import ScanShelfPage from "@/pages/ScanShelfPage";
+import { useLiveUpdates } from "@/hooks/use-live-updates";
 
 const ProtectedRoute: React.FC<{ children: JSX.Element }> = ({ children }) => {
   const { isAuthenticated, isLoadingUser, token } = useAuth();
@@ -36,6 +38,9 @@ const ProtectedRoute: React.FC<{ children: JSX.Element }> = ({ children }) => {
 };
 
 function AppLayout() {
+  const { isAuthenticated } = useAuth();
+  useLiveUpdates(isAuthenticated);
+
   return (
     <div className="min-h-screen flex flex-col">
       <Header />
@@ -54,6 +59,7 @@ function AppLayout() {
             <Route path="/login" element={<LoginPage />} />
             <Route path="/register" element={<RegisterPage />} />
             <Route path="/scan-book" element={<ProtectedRoute><ScanBookPage /></ProtectedRoute>} />
+            <Route path="/scan-shelf" element={<ProtectedRoute><ScanShelfPage /></ProtectedRoute>} />
             <Route path="*" element={<NotFound />} />
           </Routes>
         </main>
@@ -37,6 +37,7 @@ export default function Sidebar() {
   const { data: familyMembers, isLoading: isLoadingFamilyMembers } = useQuery<User[]>({
     queryKey: ['/api/families/current/users'],
     enabled: !!token && !!family, // Depend on token and family data
+    refetchInterval: 60 * 1000, // Keeps the online dots current
   });
 
   // Fetch count of current user's active lendings for the badge
@@ -154,6 +155,18 @@ export default function Sidebar() {
                 </div>
               </Link>
             </li>
+            <li className="mb-1">
+              <Link to="/scan-shelf">
+                <div className={`flex items-center px-4 py-2 rounded-lg ${
+                  location.pathname === '/scan-shelf' 
+                    ? 'text-primary bg-accent/30' 
+                    : 'text-gray-700 hover:bg-gray-100'
+                }`}>
+                  <i className="fas fa-th-list w-5"></i>
+                  <span className="ml-2">{t('sidebar.scanShelf')}</span>
+                </div>
+              </Link>
+            </li>
           </ul>
         </nav>
         
@@ -1,6 +1,7 @@
 import React, { createContext, useContext, useState, useEffect } from 'react';
 import type { ReactNode } from 'react';
 import type { User as LibUserType, FamilySimpleDto } from '@/lib/types';
+import { AUTH_EXPIRED_EVENT, authorizedFetch, clearTokens, storeTokens } from '@/lib/queryClient';
 
 export interface CurrentUser extends LibUserType {
   id: number;
@@ -11,7 +12,7 @@ interface AuthContextType {
   token: string | null;
   user: CurrentUser | null;
   isLoadingUser: boolean;
-  login: (newToken: string) => void;
+  login: (newToken: string, refreshToken?: string | null) => void;
   logout: () => void;
   isAuthenticated: boolean;
   refetchUserData: () => Promise<void>;
@@ -19,6 +20,24 @@ interface AuthContextType {
 
 const AuthContext = createContext<AuthContextType | undefined>(undefined);
 
+// The server counts a user as online for a while after each heartbeat; keep well inside that.
+const PRESENCE_HEARTBEAT_MS = 30_000;
+
+const sendPresence = (method: 'POST' | 'DELETE', keepalive = false) => {
+  const url = method === 'POST' ? '/api/presence/heartbeat' : '/api/presence';
+  if (keepalive) {
+    // Page is going away: no time for a token refresh, just fire with what we have.
+    const accessToken = localStorage.getItem('token');
+    if (!accessToken) {
+      return;
+    }
+    fetch(url, { method, keepalive: true, headers: { 'Authorization': `Bearer ${accessToken}` } })
+      .catch(() => undefined);
+    return;
+  }
+  authorizedFetch(url, { method }).catch((error) => console.error('Presence update failed:', error));
+};
+
 export const AuthProvider: React.FC<{ children: ReactNode }> = ({ children }) => {
   const [token, setToken] = useState<string | null>(null);
   const [user, setUser] = useState<CurrentUser | null>(null);
@@ -33,13 +52,23 @@ export const AuthProvider: React.FC<{ children: ReactNode }> = ({ children }) =>
     }
   }, []);
 
+  // The refresh token was rejected while renewing; drop the session.
+  useEffect(() => {
+    const onExpired = () => {
+      setToken(null);
+      setUser(null);
+      setIsLoadingUser(false);
+    };
+    window.addEventListener(AUTH_EXPIRED_EVENT, onExpired);
+    return () => window.removeEventListener(AUTH_EXPIRED_EVENT, onExpired);
+  }, []);
+
   const fetchUser = async () => {
     if (token) {
       setIsLoadingUser(true);
       try {
-        const response = await fetch('/api/users/current', {
+        const response = await authorizedFetch('/api/users/current', {
           headers: {
-            'Authorization': `Bearer ${token}`,
             'Content-Type': 'application/json',
           },
         });
@@ -66,14 +95,44 @@ export const AuthProvider: React.FC<{ children: ReactNode }> = ({ children }) =>
     fetchUser();
   }, [token]);
 
-  const login = (newToken: string) => {
-    localStorage.setItem('token', newToken);
+  const isSignedIn = !!token && !!user;
+
+  // Presence: heartbeat while signed in, go offline when the tab closes.
+  useEffect(() => {
+    if (!isSignedIn) {
+      return;
+    }
+    sendPresence('POST');
+    const interval = window.setInterval(() => sendPresence('POST'), PRESENCE_HEARTBEAT_MS);
+    const onPageHide = () => sendPresence('DELETE', true);
+    window.addEventListener('pagehide', onPageHide);
+    return () => {
+      window.clearInterval(interval);
+      window.removeEventListener('pagehide', onPageHide);
+    };
+  }, [isSignedIn]);
+
+  const login = (newToken: string, refreshToken?: string | null) => {
+    storeTokens(newToken, refreshToken);
     setToken(newToken);
     setIsLoadingUser(false);
   };
 
   const logout = () => {
-    localStorage.removeItem('token');
+    sendPresence('DELETE', true);
+    const accessToken = localStorage.getItem('token');
+    const refreshToken = localStorage.getItem('refreshToken');
+    // Revoke the session server-side; sign out locally whether or not this succeeds.
+    fetch('/api/auth/logout', {
+      method: 'POST',
+      keepalive: true,
+      headers: {
+        'Content-Type': 'application/json',
+        ...(accessToken ? { 'Authorization': `Bearer ${accessToken}` } : {}),
+      },
+      body: JSON.stringify({ refreshToken }),
+    }).catch((error) => console.error('Logout request failed:', error));
+    clearTokens();
     setToken(null);
     setUser(null);
     setIsLoadingUser(false);
@@ -0,0 +1,67 @@
+import { useEffect } from "react";
+import { queryClient } from "@/lib/queryClient";
+import { openEventStream } from "@/lib/eventStream";
+
+const MAX_RETRY_DELAY_MS = 30_000;
+
+// Which cached queries each /api/stream event makes stale. Keys are prefixes, so
+// ['/api/activities'] also covers ['/api/activities', { limit: 5 }].
+const STALE_BY_EVENT: Record<string, string[][]> = {
+  activity: [['/api/activities']],
+  lending: [
+    ['/api/book-lendings/my-active'],
+    ['/api/book-lendings/my-active/count'],
+    ['/api/book-lendings/my-total/count'],
+  ],
+  "book-status": [['/api/books']],
+};
+
+// Keeps one /api/stream connection open while signed in and refreshes the affected queries when
+// the server pushes a change, instead of polling. "resync" (events were dropped, or family
+// membership changed) and every reconnect refresh everything, since events may have been missed.
+export function useLiveUpdates(enabled: boolean) {
+  useEffect(() => {
+    if (!enabled) {
+      return;
+    }
+    const controller = new AbortController();
+    let retryDelay = 1000;
+    let timer: ReturnType<typeof setTimeout> | undefined;
+
+    const connect = async () => {
+      try {
+        await openEventStream("/api/stream", { signal: controller.signal }, ({ event }) => {
+          retryDelay = 1000;
+          if (event === "resync") {
+            queryClient.invalidateQueries();
+            return;
+          }
+          STALE_BY_EVENT[event]?.forEach((queryKey) => queryClient.invalidateQueries({ queryKey }));
+        });
+      } catch (error) {
+        if (controller.signal.aborted) {
+          return;
+        }
+        console.warn("Live update stream failed:", error);
+      }
+      if (controller.signal.aborted) {
+        return;
+      }
+      // The server closes the stream on timeout or when this client fell behind; reconnect with backoff.
+      timer = setTimeout(() => {
+        queryClient.invalidateQueries();
+        connect();
+      }, retryDelay);
+      retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+    };
+
+    connect();
+
+    return () => {
+      controller.abort();
+      if (timer) {
+        clearTimeout(timer);
+      }
+    };
+  }, [enabled]);
+}
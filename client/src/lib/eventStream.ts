@@ -0,0 +1,120 @@
+import { authorizedFetch } from "./queryClient";
+import type { AIQuery } from "./types";
+
+export interface StreamMessage {
+  event: string; // "message" when the server sent no event name
+  data: string;
+}
+
+// Reads a text/event-stream body and calls onMessage for each event. Resolves when the body ends;
+// if onMessage throws, the stream is cancelled and the error rejects the returned promise.
+// Comment lines (": ping") and ids are ignored; multi-line data is joined with "\n" as EventSource does.
+export async function readEventStream(
+  body: ReadableStream<Uint8Array>,
+  onMessage: (message: StreamMessage) => void,
+): Promise<void> {
+  const reader = body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = "";
+  let event = "";
+  let data: string[] = [];
+
+  const dispatch = () => {
+    if (data.length > 0) {
+      onMessage({ event: event || "message", data: data.join("\n") });
+    }
+    event = "";
+    data = [];
+  };
+
+  const handleLine = (line: string) => {
+    if (line === "") {
+      dispatch();
+      return;
+    }
+    if (line.startsWith(":")) {
+      return;
+    }
+    const colon = line.indexOf(":");
+    const field = colon === -1 ? line : line.slice(0, colon);
+    let value = colon === -1 ? "" : line.slice(colon + 1);
+    if (value.startsWith(" ")) {
+      value = value.slice(1);
+    }
+    if (field === "event") {
+      event = value;
+    } else if (field === "data") {
+      data.push(value);
+    }
+  };
+
+  try {
+    for (;;) {
+      const { done, value } = await reader.read();
+      if (done) {
+        break;
+      }
+      buffer += decoder.decode(value, { stream: true });
+      let newline: number;
+      while ((newline = buffer.search(/\r\n|\r|\n/)) !== -1) {
+        if (newline === buffer.length - 1 && buffer[newline] === "\r") {
+          break; // May be the first half of "\r\n"; wait for the next chunk
+        }
+        const line = buffer.slice(0, newline);
+        buffer = buffer.slice(newline + (buffer.startsWith("\r\n", newline) ? 2 : 1));
+        handleLine(line);
+      }
+    }
+    if (buffer) {
+      handleLine(buffer);
+    }
+    dispatch();
+  } catch (error) {
+    reader.cancel().catch(() => undefined); // A handler threw or the read failed: release the connection
+    throw error;
+  }
+}
+
+// EventSource cannot send the Bearer header, so streams are opened with fetch instead; this also
+// gets the token refresh and retry of authorizedFetch.
+export async function openEventStream(
+  url: string,
+  init: RequestInit,
+  onMessage: (message: StreamMessage) => void,
+): Promise<void> {
+  const headers = new Headers(init.headers);
+  headers.set("Accept", "text/event-stream");
+  const res = await authorizedFetch(url, { ...init, headers });
+  if (!res.ok || !res.body) {
+    const text = (await res.text()) || res.statusText;
+    throw new Error(`${res.status}: ${text}`);
+  }
+  await readEventStream(res.body, onMessage);
+}
+
+// POST /api/ai/chat/stream: onDelta gets each piece of the answer as the model writes it.
+// Resolves on "done"; rejects on an "error" event (with the server's user-facing message) or a
+// dropped connection.
+export async function streamAIChatMessage(payload: AIQuery, onDelta: (content: string) => void): Promise<void> {
+  let finished = false;
+  await openEventStream(
+    "/api/ai/chat/stream",
+    { method: "POST", headers: { "Content-Type": "application/json" }, body: JSON.stringify(payload) },
+    ({ event, data }) => {
+      if (finished) {
+        return;
+      }
+      if (event === "delta") {
+        onDelta(JSON.parse(data).content ?? "");
+      } else if (event === "done") {
+        finished = true;
+      } else if (event === "error") {
+        finished = true;
+        throw new Error(JSON.parse(data).message || "AI chat failed");
+      }
+    },
+  );
+  if (!finished) {
+    throw new Error("AI chat stream ended unexpectedly");
+  }
+}
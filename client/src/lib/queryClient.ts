@@ -9,19 +9,86 @@ async function throwIfResNotOk(res: Response) {
   }
 }
 
+// Access tokens are short-lived; a 401 is answered by exchanging the stored refresh token at
+// /api/auth/refresh and retrying once. Concurrent 401s share one refresh, since each refresh
+// token can only be used once.
+let refreshInFlight: Promise<string | null> | null = null;
+
+export const AUTH_EXPIRED_EVENT = "auth:expired";
+
+export function storeTokens(token: string, refreshToken?: string | null) {
+  localStorage.setItem('token', token);
+  if (refreshToken) {
+    localStorage.setItem('refreshToken', refreshToken);
+  } else {
+    localStorage.removeItem('refreshToken');
+  }
+}
+
+export function clearTokens() {
+  localStorage.removeItem('token');
+  localStorage.removeItem('refreshToken');
+}
+
+export function refreshAccessToken(): Promise<string | null> {
+  if (!refreshInFlight) {
+    refreshInFlight = (async () => {
+      const refreshToken = localStorage.getItem('refreshToken');
+      if (!refreshToken) {
+        return null;
+      }
+      try {
+        const res = await fetch('/api/auth/refresh', {
+          method: 'POST',
+          headers: { 'Content-Type': 'application/json' },
+          body: JSON.stringify({ refreshToken }),
+        });
+        if (!res.ok) {
+          // Expired or revoked session: the user has to sign in again.
+          clearTokens();
+          window.dispatchEvent(new Event(AUTH_EXPIRED_EVENT));
+          return null;
+        }
+        const data = await res.json();
+        storeTokens(data.token, data.refreshToken);
+        return data.token as string;
+      } catch (error) {
+        console.error('Token refresh failed:', error);
+        return null;
+      } finally {
+        refreshInFlight = null;
+      }
+    })();
+  }
+  return refreshInFlight;
+}
+
+// fetch with the stored Bearer token that renews it and retries once on 401.
+export async function authorizedFetch(url: string, init: RequestInit = {}): Promise<Response> {
+  const withToken = (token: string | null): RequestInit => {
+    const headers = new Headers(init.headers);
+    if (token) {
+      headers.set('Authorization', `Bearer ${token}`);
+    }
+    return { ...init, headers };
+  };
+
+  const res = await fetch(url, withToken(localStorage.getItem('token')));
+  if (res.status !== 401 || !localStorage.getItem('refreshToken')) {
+    return res;
+  }
+  const renewed = await refreshAccessToken();
+  return renewed ? fetch(url, withToken(renewed)) : res;
+}
+
 export async function apiRequest(
   method: string,
   url: string,
   data?: unknown | undefined,
 ): Promise<Response> {
-  const token = localStorage.getItem('token');
-  console.log(`[apiRequest for ${url}] Token from localStorage:`, token ? token.substring(0, 20) + "..." : null);
   const headers: HeadersInit = data ? { "Content-Type": "application/json" } : {};
-  if (token) {
-    headers['Authorization'] = `Bearer ${token}`;
-  }
 
-  const res = await fetch(url, {
+  const res = await authorizedFetch(url, {
     method,
     headers,
     body: data ? JSON.stringify(data) : undefined,
@@ -66,16 +133,7 @@ export const getQueryFn: <T>(options: {
 }) => QueryFunction<T> =
   ({ on401: unauthorizedBehavior }) =>
   async ({ queryKey }) => {
-    const token = localStorage.getItem('token');
-    console.log(`[getQueryFn for ${queryKey[0]}] Token from localStorage:`, token ? token.substring(0, 20) + "..." : null);
-    const headers: HeadersInit = {};
-    if (token) {
-      headers['Authorization'] = `Bearer ${token}`;
-    }
-
-    const res = await fetch(queryKey[0] as string, {
-      headers,
-    });
+    const res = await authorizedFetch(queryKey[0] as string);
 
     if (unauthorizedBehavior === "returnNull" && res.status === 401) {
       return null;
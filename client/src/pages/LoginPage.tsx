@@ -35,7 +35,7 @@ const LoginPage: React.FC = () => {
             if (response.ok) {
                 // 登录成功
                 console.log('登录成功，准备导航:', data);
-                login(data.token);
+                login(data.token, data.refreshToken);
                 console.log('Token 已通过 AuthContext 设置');
                 navigate('/');
                 console.log('导航已调用，目标 /');
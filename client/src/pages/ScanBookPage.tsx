@@ -6,6 +6,31 @@ import { Label } from '@/components/ui/label';
 import { Card } from '@/components/ui/card';
 import { useToast } from '@/components/ui/use-toast';
 import { Loader2, Camera, X } from 'lucide-react';
+import { authorizedFetch } from '@/lib/queryClient';
+
+interface ScanJob {
+  id: string;
+  status: 'PENDING' | 'RUNNING' | 'DONE' | 'NOT_FOUND' | 'FAILED';
+  book?: BookInfo;
+  error?: string;
+}
+
+const SCAN_JOB_POLL_MS = 2000;
+
+async function waitForScanJob(job: ScanJob): Promise<BookInfo | null> {
+  while (job.status === 'PENDING' || job.status === 'RUNNING') {
+    await new Promise((resolve) => setTimeout(resolve, SCAN_JOB_POLL_MS));
+    const response = await authorizedFetch(`/api/books/scan/jobs/${job.id}`);
+    if (!response.ok) {
+      throw new Error(`请求失败，状态码: ${response.status}`);
+    }
+    job = await response.json();
+  }
+  if (job.status !== 'DONE') {
+    throw new Error(job.error || '识别失败');
+  }
+  return job.book ?? null;
+}
 
 interface BookInfo {
   title: string;
@@ -61,13 +86,10 @@ export default function ScanBookPage() {
       console.log('已获取JWT令牌，准备发送请求');
 
       console.log('开始发送识别请求到后端...');
-      const response = await fetch('/api/books/scan', {
+      // FormData不能设置Content-Type，让浏览器自动处理；authorizedFetch 负责附带并续期令牌
+      const response = await authorizedFetch('/api/books/scan', {
         method: 'POST',
         body: formData,
-        headers: {
-          // FormData不能设置Content-Type，让浏览器自动处理
-          'Authorization': `Bearer ${token}`
-        }
       });
       console.log('请求已发送，响应状态:', response.status, response.statusText);
 
@@ -88,7 +110,8 @@ export default function ScanBookPage() {
       }
 
       console.log('请求成功，开始解析响应...');
-      const data = await response.json();
+      // 202: 识别仍在进行，服务端返回了任务，轮询直到完成
+      const data = response.status === 202 ? await waitForScanJob(await response.json()) : await response.json();
       console.log('响应数据:', data);
       
       if (!data || Object.keys(data).length === 0) {
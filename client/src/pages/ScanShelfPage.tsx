@@ -0,0 +1,279 @@
+import { useState, useRef } from 'react';
+import { useTranslation } from 'react-i18next';
+import { useQuery } from '@tanstack/react-query';
+import { Button } from '@/components/ui/button';
+import { Input } from '@/components/ui/input';
+import { Label } from '@/components/ui/label';
+import { Card } from '@/components/ui/card';
+import { Checkbox } from '@/components/ui/checkbox';
+import { Select, SelectContent, SelectItem, SelectTrigger, SelectValue } from '@/components/ui/select';
+import { useToast } from '@/components/ui/use-toast';
+import { Loader2, Camera } from 'lucide-react';
+import { authorizedFetch, queryClient } from '@/lib/queryClient';
+import type { Bookshelf } from '@/lib/types';
+
+// Mirrors CreateBookRequest: sent back to /api/books/bulk unchanged
+interface ScannedBook {
+  title: string;
+  author?: string;
+  isbn?: string;
+  publisher?: string;
+  publicationDate?: string;
+  genre?: string;
+  coverImageUrl?: string;
+  description?: string;
+  bookshelfId?: number;
+  shelfNumber?: number;
+  positionOnShelf?: number;
+}
+
+interface ShelfScanCandidate {
+  position: number;
+  spineText: string;
+  detectedTitle?: string;
+  detectedAuthor?: string;
+  status: 'found' | 'not_found' | 'error';
+  error?: string;
+  book?: ScannedBook;
+  addable: boolean;
+  notAddableReason?: 'no_isbn' | 'already_exists' | 'duplicate' | 'no_bookshelf';
+}
+
+async function readErrorMessage(response: Response, fallback: string): Promise<string> {
+  const text = await response.text();
+  try {
+    const data = JSON.parse(text);
+    return data.message || data.error || fallback;
+  } catch {
+    return text || `${fallback} (${response.status})`;
+  }
+}
+
+export default function ScanShelfPage() {
+  const { t } = useTranslation();
+  const { toast } = useToast();
+  const fileInputRef = useRef<HTMLInputElement>(null);
+  const [bookshelfId, setBookshelfId] = useState<string>('');
+  const [shelfNumber, setShelfNumber] = useState<string>('');
+  const [previewUrl, setPreviewUrl] = useState<string | null>(null);
+  const [candidates, setCandidates] = useState<ShelfScanCandidate[]>([]);
+  const [selected, setSelected] = useState<Set<number>>(new Set());
+  const [isScanning, setIsScanning] = useState(false);
+  const [isAdding, setIsAdding] = useState(false);
+
+  const { data: bookshelves = [] } = useQuery<Bookshelf[]>({
+    queryKey: ['/api/bookshelves'],
+  });
+
+  const selectedShelf = bookshelves.find((shelf) => shelf.id.toString() === bookshelfId);
+
+  const handleFileChange = async (event: React.ChangeEvent<HTMLInputElement>) => {
+    const file = event.target.files?.[0];
+    if (!file) return;
+
+    setPreviewUrl(URL.createObjectURL(file));
+    setCandidates([]);
+    setSelected(new Set());
+    setIsScanning(true);
+    console.log('开始识别书架照片, 大小:', file.size, '字节');
+    try {
+      const formData = new FormData();
+      formData.append('image', file);
+      if (bookshelfId) {
+        formData.append('bookshelfId', bookshelfId);
+      }
+      if (shelfNumber) {
+        formData.append('shelfNumber', shelfNumber);
+      }
+      const response = await authorizedFetch('/api/books/scan/shelf', {
+        method: 'POST',
+        body: formData,
+      });
+      if (!response.ok) {
+        throw new Error(await readErrorMessage(response, t('scanShelf.errorDescription')));
+      }
+      const data: ShelfScanCandidate[] = await response.json();
+      console.log('书架识别完成, 书脊数:', data.length);
+      setCandidates(data);
+      // 默认勾选所有可直接添加的书
+      setSelected(new Set(data.filter((c) => c.addable).map((c) => c.position)));
+      if (data.length === 0) {
+        toast({ title: t('scanShelf.error'), description: t('scanShelf.noSpinesFound'), variant: 'destructive' });
+      }
+    } catch (error: any) {
+      console.error('书架识别出错:', error);
+      toast({
+        title: t('scanShelf.error'),
+        description: error.message || t('scanShelf.errorDescription'),
+        variant: 'destructive',
+      });
+    } finally {
+      setIsScanning(false);
+      if (fileInputRef.current) {
+        fileInputRef.current.value = '';
+      }
+    }
+  };
+
+  const toggle = (position: number, checked: boolean) => {
+    setSelected((prev) => {
+      const next = new Set(prev);
+      if (checked) {
+        next.add(position);
+      } else {
+        next.delete(position);
+      }
+      return next;
+    });
+  };
+
+  const addSelected = async () => {
+    const books = candidates
+      .filter((c) => c.addable && c.book && selected.has(c.position))
+      .map((c) => c.book as ScannedBook);
+    if (books.length === 0) return;
+
+    setIsAdding(true);
+    try {
+      const response = await authorizedFetch('/api/books/bulk', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ books }),
+      });
+      if (!response.ok) {
+        throw new Error(await readErrorMessage(response, t('scanShelf.addFailed')));
+      }
+      const created: unknown[] = await response.json();
+      toast({
+        title: t('scanShelf.success'),
+        description: t('scanShelf.addedCount', { count: created.length }),
+      });
+      queryClient.invalidateQueries({ queryKey: ['/api/books'] });
+      // 已添加的书不再可选，避免重复提交
+      setCandidates((prev) => prev.map((c) =>
+        selected.has(c.position) && c.addable ? { ...c, addable: false, notAddableReason: 'already_exists' } : c));
+      setSelected(new Set());
+    } catch (error: any) {
+      console.error('批量添加图书出错:', error);
+      toast({
+        title: t('scanShelf.error'),
+        description: error.message || t('scanShelf.addFailed'),
+        variant: 'destructive',
+      });
+    } finally {
+      setIsAdding(false);
+    }
+  };
+
+  return (
+    <div className="container mx-auto p-4">
+      <h1 className="text-2xl font-bold mb-6">{t('scanShelf.title')}</h1>
+
+      <div className="grid grid-cols-1 md:grid-cols-2 gap-6">
+        <Card className="p-6">
+          <div className="space-y-4">
+            <div className="flex flex-col space-y-2">
+              <Label>{t('scanShelf.bookshelf')}</Label>
+              <Select value={bookshelfId} onValueChange={setBookshelfId} disabled={isScanning}>
+                <SelectTrigger>
+                  <SelectValue placeholder={t('scanShelf.selectBookshelf')} />
+                </SelectTrigger>
+                <SelectContent>
+                  {bookshelves.map((shelf) => (
+                    <SelectItem key={shelf.id} value={shelf.id.toString()}>
+                      {shelf.name}
+                    </SelectItem>
+                  ))}
+                </SelectContent>
+              </Select>
+            </div>
+
+            <div className="flex flex-col space-y-2">
+              <Label htmlFor="shelf-number">{t('scanShelf.shelfNumber')}</Label>
+              <Input
+                id="shelf-number"
+                type="number"
+                min={1}
+                max={selectedShelf?.numShelves}
+                value={shelfNumber}
+                onChange={(e) => setShelfNumber(e.target.value)}
+                disabled={isScanning || !bookshelfId}
+              />
+            </div>
+
+            <div className="flex flex-col space-y-2">
+              <Label htmlFor="shelf-image-upload">{t('scanShelf.selectImage')}</Label>
+              <Input
+                id="shelf-image-upload"
+                type="file"
+                accept="image/*"
+                onChange={handleFileChange}
+                ref={fileInputRef}
+                className="cursor-pointer"
+                disabled={isScanning}
+              />
+              {!bookshelfId && (
+                <p className="text-sm text-muted-foreground">{t('scanShelf.bookshelfHint')}</p>
+              )}
+            </div>
+
+            {isScanning && (
+              <div className="flex items-center">
+                <Loader2 className="h-5 w-5 animate-spin" />
+                <span className="ml-2">{t('scanShelf.scanning')}</span>
+              </div>
+            )}
+
+            {previewUrl && (
+              <img src={previewUrl} alt="Shelf preview" className="w-full rounded-md object-contain max-h-80" />
+            )}
+          </div>
+        </Card>
+
+        <Card className="p-6">
+          <h2 className="text-xl font-semibold mb-4">{t('scanShelf.results')}</h2>
+          {candidates.length === 0 ? (
+            <div className="flex flex-col items-center justify-center h-48 text-muted-foreground">
+              <Camera className="h-8 w-8 mb-2" />
+              <p>{t('scanShelf.noResults')}</p>
+            </div>
+          ) : (
+            <div className="space-y-3">
+              {candidates.map((c) => (
+                <div key={c.position} className="flex items-start space-x-3 border-b pb-2">
+                  <Checkbox
+                    id={`candidate-${c.position}`}
+                    checked={selected.has(c.position)}
+                    onCheckedChange={(checked) => toggle(c.position, checked === true)}
+                    disabled={!c.addable || isAdding}
+                  />
+                  <label htmlFor={`candidate-${c.position}`} className="flex-1 text-sm">
+                    <span className="font-medium">
+                      {c.book?.title || c.detectedTitle || c.spineText}
+                    </span>
+                    {(c.book?.author || c.detectedAuthor) && (
+                      <span className="text-muted-foreground"> · {c.book?.author || c.detectedAuthor}</span>
+                    )}
+                    {c.book?.isbn && <span className="block text-xs text-muted-foreground">ISBN {c.book.isbn}</span>}
+                    {!c.addable && (
+                      <span className="block text-xs text-amber-600">
+                        {c.status === 'error'
+                          ? c.error || t('scanShelf.errorDescription')
+                          : t(`scanShelf.reason.${c.notAddableReason ?? 'no_isbn'}`)}
+                      </span>
+                    )}
+                  </label>
+                </div>
+              ))}
+
+              <Button onClick={addSelected} className="w-full" disabled={isAdding || selected.size === 0}>
+                {isAdding && <Loader2 className="mr-2 h-4 w-4 animate-spin" />}
+                {t('scanShelf.addSelected', { count: selected.size })}
+              </Button>
+            </div>
+          )}
+        </Card>
+      </div>
+    </div>
+  );
+}
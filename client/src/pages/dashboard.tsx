@@ -13,7 +13,8 @@ import { Skeleton } from "@/components/ui/skeleton";
 import { Tabs, TabsList, TabsContent, TabsTrigger } from "@/components/ui/tabs";
 // @ts-ignore
 import type { Book, Activity, User, ShelfPosition, Bookshelf, AIMessage, AIQuery, InitialAIAnalysisResponse, BookLending } from "@/lib/types";
-import { apiRequest, fetchInitialAIAnalysis, postAIChatMessage, fetchMyActiveLendings, fetchMyActiveLendingsCount } from "@/lib/queryClient";
+import { apiRequest, fetchInitialAIAnalysis, fetchMyActiveLendings, fetchMyActiveLendingsCount } from "@/lib/queryClient";
+import { streamAIChatMessage } from "@/lib/eventStream";
 import { formatDate, getBookCoverPlaceholder } from "@/lib/utils";
 import { Textarea } from "@/components/ui/textarea";
 import { ScrollArea } from "@/components/ui/scroll-area";
@@ -30,6 +31,7 @@ export default function Dashboard() {
   ]);
   const [userChatInput, setUserChatInput] = useState("");
   const [isAIChatLoading, setIsAIChatLoading] = useState(false); 
+  const [isAIChatWaiting, setIsAIChatWaiting] = useState(false); // Until the first token arrives
   const chatScrollAreaRef = useRef<HTMLDivElement>(null);
   const [showAllRecentBooks, setShowAllRecentBooks] = useState(false); // State for recent books toggle
 
@@ -167,15 +169,31 @@ export default function Dashboard() {
     const currentInput = userChatInput.trim();
     setUserChatInput("");
     setIsAIChatLoading(true);
+    setIsAIChatWaiting(true);
     const payload: AIQuery = { query: currentInput, history: chatHistory.slice(-10) };
+    // The answer is streamed: the first token opens an assistant bubble, later ones extend it.
+    let answered = false;
+    const appendToAnswer = (content: string) => {
+      setIsAIChatWaiting(false);
+      if (!answered) {
+        answered = true;
+        setChatHistory(prev => [...prev, { role: "assistant", content }]);
+        return;
+      }
+      setChatHistory(prev => {
+        const last = prev[prev.length - 1];
+        return [...prev.slice(0, -1), { ...last, content: last.content + content }];
+      });
+    };
     try {
-      const aiResponse = await postAIChatMessage(payload);
-      setChatHistory(prev => [...prev, aiResponse]);
+      await streamAIChatMessage(payload, appendToAnswer);
     } catch (error: any) {
       console.error("Failed to send chat message or get AI response:", error);
+      // A partial answer stays; the apology follows it.
       setChatHistory(prev => [...prev, { role: "assistant", content: t('dashboard.aiChatError', '抱歉，AI对话暂时遇到问题。') }]);
     } finally {
       setIsAIChatLoading(false);
+      setIsAIChatWaiting(false);
     }
   };
   
@@ -432,7 +450,7 @@ export default function Dashboard() {
                       </div>
                     </div>
                   ))}
-                  {isAIChatLoading && (
+                  {isAIChatWaiting && (
                     <div className="flex justify-start">
                       <div className="max-w-[80%] p-2.5 rounded-lg text-sm bg-gray-100 text-gray-800 rounded-bl-none flex items-center">
                         <i className="fas fa-spinner fa-spin mr-2"></i>
@@ -0,0 +1,9 @@
+-- One-off migration: presence moved from users.is_online to PresenceRegistry (in memory).
+-- Not run by the application; apply by hand with psql.
+
+-- Step 1, before or during the rollout: the column was mapped from a primitive boolean, so it is
+-- NOT NULL. New instances no longer write it, so give it a default. Old instances are unaffected.
+ALTER TABLE users ALTER COLUMN is_online SET DEFAULT false;
+
+-- Step 2, once no instance of the old version is running:
+ALTER TABLE users DROP COLUMN IF EXISTS is_online;
@@ -3,9 +3,11 @@ package com.familylibrary;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
+@EnableScheduling
 public class FamilyLibraryApplication {
     public static void main(String[] args) {
         SpringApplication.run(FamilyLibraryApplication.class, args);
@@ -1,6 +1,6 @@
 package com.familylibrary.config;
 
-import com.familylibrary.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
@@ -10,12 +10,12 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.familylibrary.service.TokenRevocationService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -27,9 +27,11 @@ import java.io.IOException;
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     private static final Logger filterLogger = LoggerFactory.getLogger(JwtRequestFilter.class);
+    private static final String STREAM_PATH = "/api/stream";
 
-    private final UserDetailsServiceImpl userDetailsServiceImpl;
+    private final JwtVerifier jwtVerifier;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -37,14 +39,28 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
         String jwtToken = null;
-        String username = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwtToken = authorizationHeader.substring(7);
             filterLogger.debug("Authorization header found with Bearer prefix. Extracted JWT: {}", jwtToken);
+        } else if (STREAM_PATH.equals(request.getRequestURI()) && request.getParameter("token") != null) {
+            // Browsers' EventSource cannot set headers, so the SSE endpoint alone accepts ?token=
+            jwtToken = request.getParameter("token");
+            filterLogger.debug("JWT taken from query parameter for SSE stream.");
+        }
+
+        JwtUserPrincipal principal = null; // Only set once the token has been fully verified
+        if (jwtToken != null) {
             try {
-                username = jwtUtil.extractUsername(jwtToken);
-                filterLogger.debug("Username extracted from JWT: {}", username);
+                // Single parse: signature, format and expiry are all checked here.
+                Claims claims = jwtVerifier.verify(jwtToken);
+                principal = jwtUtil.toPrincipal(claims);
+                if (principal == null) {
+                    filterLogger.warn("JWT for subject {} is not a session access token; a new login is required.", claims.getSubject());
+                } else if (tokenRevocationService.isRevoked(principal.getSessionId())) {
+                    filterLogger.debug("JWT session {} for {} has been logged out.", principal.getSessionId(), principal.getUsername());
+                    principal = null;
+                }
             } catch (IllegalArgumentException e) {
                 filterLogger.warn("Unable to get JWT Token (IllegalArgumentException): {}", e.getMessage());
             } catch (ExpiredJwtException e) {
@@ -58,43 +74,19 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             } catch (JwtException e) {
                 filterLogger.warn("JWT processing error: {}", e.getMessage());
             } catch (Exception e) {
-                filterLogger.error("Unexpected error during JWT username extraction", e);
+                filterLogger.error("Unexpected error during JWT verification", e);
             }
         } else {
             filterLogger.debug("Authorization header does not exist or does not start with Bearer. URI: {}", request.getRequestURI());
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            filterLogger.debug("SecurityContext is null, attempting to authenticate user: {}", username);
-            UserDetails userDetails = null;
-            try {
-                userDetails = this.userDetailsServiceImpl.loadUserByUsername(username);
-            } catch (Exception e) {
-                filterLogger.warn("Error loading user details for {}: {}", username, e.getMessage());
-            }
-
-            if (userDetails != null) {
-                filterLogger.debug("Validating token for user: {}", userDetails.getUsername());
-                try {
-                    if (jwtUtil.validateToken(jwtToken, userDetails)) {
-                        filterLogger.info("JWT token validated successfully for user: {}", username);
-                        UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                        usernamePasswordAuthenticationToken
-                                .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-                        filterLogger.debug("User {} authenticated and SecurityContext updated.", username);
-                    } else {
-                        filterLogger.warn("JWT token validation failed for user: {}. Token used: {}", username, jwtToken);
-                    }
-                } catch (Exception e) {
-                    filterLogger.error("Error during token validation for user {}: {}", username, e.getMessage(), e);
-                }
-            } else {
-                filterLogger.warn("User details not found for username '{}' extracted from token. Token: {}", username, jwtToken);
-            }
-        } else if (username == null && jwtToken != null) {
-            filterLogger.warn("JWT present but username could not be extracted. Token: {}", jwtToken);
+        // The principal comes from the token alone; no users SELECT per request.
+        if (principal != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    principal, null, principal.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            filterLogger.debug("User {} (id {}) authenticated from JWT claims.", principal.getUsername(), principal.getUserId());
         }
 
         chain.doFilter(request, response);
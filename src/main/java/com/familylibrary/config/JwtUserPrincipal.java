@@ -0,0 +1,74 @@
+package com.familylibrary.config;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The authenticated user as described by a verified access token; built from claims alone,
+ * without touching the database. Implements UserDetails so existing
+ * {@code principal instanceof UserDetails} code keeps working (there is no password).
+ * <p>
+ * {@code familyIds} is a snapshot taken when the token was issued. Authorization decisions use
+ * FamilyPermissionEvaluator, which tracks membership changes; the snapshot is for cheap scoping only.
+ */
+@Getter
+public class JwtUserPrincipal implements UserDetails {
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_FAMILY_IDS = "fam";
+
+    private final Long userId;
+    private final String username;
+    private final List<Long> familyIds;
+    private final String sessionId; // Shared by all tokens of one login; what logout revokes
+    private final Instant issuedAt; // When familyIds was taken; null if the token carries no iat
+
+    public JwtUserPrincipal(Long userId, String username, List<Long> familyIds, String sessionId, Instant issuedAt) {
+        this.userId = userId;
+        this.username = username;
+        this.familyIds = familyIds != null ? List.copyOf(familyIds) : List.of();
+        this.sessionId = sessionId;
+        this.issuedAt = issuedAt;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.emptyList(); // No roles yet
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return username; // Code that falls back to principal.toString() expects the username
+    }
+}
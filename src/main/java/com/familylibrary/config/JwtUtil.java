@@ -3,32 +3,38 @@ package com.familylibrary.config; // Or a dedicated security.util package
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 import io.jsonwebtoken.JwtException;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secretString;
+    // Owns the signing key and parser; built once instead of on every call.
+    private final JwtVerifier jwtVerifier;
+
+    public static final String CLAIM_SESSION_ID = "sid";
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String TOKEN_TYPE_ACCESS = "access";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
 
     @Value("${jwt.expiration}")
     private Long expirationTime; // in milliseconds
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secretString.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private Long refreshExpirationTime; // in milliseconds
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -39,45 +45,83 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = jwtVerifier.verify(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
+    // Embeds what requests need to identify the caller so the filter never has to load the user.
+    // sessionId ties every access and refresh token of one login together, so a logout revokes all of them.
+    public String generateToken(Long userId, String username, List<Long> familyIds, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtUserPrincipal.CLAIM_USER_ID, userId);
+        claims.put(JwtUserPrincipal.CLAIM_FAMILY_IDS, familyIds);
+        claims.put(CLAIM_SESSION_ID, sessionId);
+        claims.put(CLAIM_TOKEN_TYPE, TOKEN_TYPE_ACCESS);
+        // You can add more claims here if needed, e.g., roles
+        return createToken(claims, username, expirationTime);
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Long-lived, single-use: each refresh revokes its token id (jti) and issues a new one.
+    public String generateRefreshToken(Long userId, String username, String sessionId, String tokenId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtUserPrincipal.CLAIM_USER_ID, userId);
+        claims.put(CLAIM_SESSION_ID, sessionId);
+        claims.put(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH);
+        claims.put(Claims.ID, tokenId);
+        return createToken(claims, username, refreshExpirationTime);
     }
 
-    public String generateToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
-        // You can add more claims here if needed, e.g., roles
-        // claims.put("roles", userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
-        return createToken(claims, userDetails.getUsername());
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public long getRefreshExpirationTime() {
+        return refreshExpirationTime;
+    }
+
+    /**
+     * Builds the principal from verified access-token claims; null for refresh tokens and for tokens
+     * without user/session id claims (issued by older versions), which forces a fresh login.
+     */
+    public JwtUserPrincipal toPrincipal(Claims claims) {
+        Object userId = claims.get(JwtUserPrincipal.CLAIM_USER_ID);
+        String sessionId = claims.get(CLAIM_SESSION_ID, String.class);
+        if (!(userId instanceof Number) || claims.getSubject() == null || sessionId == null
+                || !TOKEN_TYPE_ACCESS.equals(claims.get(CLAIM_TOKEN_TYPE, String.class))) {
+            return null;
+        }
+        List<Long> familyIds = new ArrayList<>();
+        if (claims.get(JwtUserPrincipal.CLAIM_FAMILY_IDS) instanceof List<?> ids) {
+            for (Object id : ids) {
+                if (id instanceof Number number) {
+                    familyIds.add(number.longValue()); // JSON numbers come back as Integer or Long
+                }
+            }
+        }
+        Instant issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+        return new JwtUserPrincipal(((Number) userId).longValue(), claims.getSubject(), familyIds, sessionId, issuedAt);
     }
 
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, long ttlMillis) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(jwtVerifier.getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
         try {
             // This line will throw an exception if the signature is invalid or token is malformed/expired
-            Claims claims = extractAllClaims(token); 
+            Claims claims = jwtVerifier.verify(token);
             final String usernameInToken = claims.getSubject();
-            return (usernameInToken.equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date()));
+            return usernameInToken.equals(userDetails.getUsername());
         } catch (JwtException | IllegalArgumentException e) {
             // Log the exception, e.g., using a logger instance
             // logger.warn("Token validation error: {}", e.getMessage());
             return false;
         }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.familylibrary.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies access tokens with a signing key and parser built once at startup.
+ * <p>
+ * Each token is parsed and checked (signature, format, expiry) exactly once; the resulting claims
+ * are then remembered under the SHA-256 digest of the token until the token expires, so the same
+ * client calling repeatedly only pays for a hash and a map lookup. Only digests are kept, never the
+ * bearer tokens themselves. The cache holds an immutable snapshot of the claims and every caller
+ * gets its own {@link Claims} built from it, so nothing a caller does can leak into other requests.
+ * The cache is bounded by {@code jwt.verification-cache.max-entries}: when full, expired entries
+ * are purged and, if that is not enough, the cache is cleared.
+ */
+@Component
+public class JwtVerifier {
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final int maxCachedTokens;
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    public JwtVerifier(@Value("${jwt.secret}") String secret,
+                       @Value("${jwt.verification-cache.max-entries:4096}") int maxCachedTokens) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build(); // Immutable and thread-safe
+        this.maxCachedTokens = maxCachedTokens;
+    }
+
+    SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Returns the claims of a valid token.
+     *
+     * @throws JwtException if the token is malformed, has a bad signature or has expired
+     * @throws IllegalArgumentException if the token is empty
+     */
+    public Claims verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT token is empty");
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return Jwts.claims(new LinkedHashMap<>(cached.claims())); // Jwts.claims may wrap rather than copy
+            }
+            verifiedTokens.remove(digest);
+            throw new ExpiredJwtException(null, Jwts.claims(new LinkedHashMap<>(cached.claims())), "JWT expired at " + new Date(cached.expiresAt()));
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody(); // Checks signature and expiry
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> snapshot = (Map<String, Object>) immutableCopy(claims);
+            remember(digest, new VerifiedToken(snapshot, expiration.getTime()), now);
+        }
+        return claims;
+    }
+
+    private void remember(String digest, VerifiedToken token, long now) {
+        if (verifiedTokens.size() >= maxCachedTokens) {
+            verifiedTokens.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (verifiedTokens.size() >= maxCachedTokens) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(digest, token);
+    }
+
+    // Claim values are JSON: strings, numbers, booleans, lists and maps. Nulls are dropped.
+    private static Object immutableCopy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((key, item) -> {
+                if (key != null && item != null) {
+                    copy.put(key, immutableCopy(item));
+                }
+            });
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().filter(Objects::nonNull).map(JwtVerifier::immutableCopy).toList();
+        }
+        return value;
+    }
+
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA256.get();
+        sha256.reset();
+        byte[] hash = sha256.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private record VerifiedToken(Map<String, Object> claims, long expiresAt) {
+    }
+}
@@ -4,27 +4,32 @@ import com.familylibrary.dto.AIQueryDto;
 import com.familylibrary.dto.DeepSeekMessageDto;
 import com.familylibrary.dto.InitialAIAnalysisResponseDto;
 import com.familylibrary.service.DeepSeekService;
+import com.familylibrary.service.InitialAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/ai")
 public class AIController {
 
     private final DeepSeekService deepSeekService;
+    private final InitialAnalysisService initialAnalysisService;
 
     @Autowired
-    public AIController(DeepSeekService deepSeekService) {
+    public AIController(DeepSeekService deepSeekService, InitialAnalysisService initialAnalysisService) {
         this.deepSeekService = deepSeekService;
+        this.initialAnalysisService = initialAnalysisService;
     }
 
     @GetMapping("/initial-analysis")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<InitialAIAnalysisResponseDto> getInitialAnalysis() {
-        InitialAIAnalysisResponseDto analysis = deepSeekService.getInitialAnalysisForCurrentUser();
+        InitialAIAnalysisResponseDto analysis = initialAnalysisService.getForCurrentUser();
         if (analysis == null) {
             // This might happen if the user is not found, or another issue occurs in the service
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -41,4 +46,14 @@ public class AIController {
         DeepSeekMessageDto responseMessage = deepSeekService.getAIChatResponse(queryDto);
         return ResponseEntity.ok(responseMessage);
     }
-} 
\ No newline at end of file
+
+    // Token-by-token variant of /chat over Server-Sent Events (read with fetch; EventSource can't POST).
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SseEmitter> streamChatMessage(@RequestBody AIQueryDto queryDto) {
+        if (queryDto == null || queryDto.getQuery() == null || queryDto.getQuery().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deepSeekService.streamAIChatResponse(queryDto));
+    }
+}
@@ -1,6 +1,8 @@
 package com.familylibrary.controller;
 
+import com.familylibrary.dto.ActivityDataQueryRequest;
 import com.familylibrary.dto.ActivityDto;
+import com.familylibrary.dto.ActivityPageDto;
 import com.familylibrary.dto.CreateActivityRequest;
 import com.familylibrary.service.ActivityService;
 import jakarta.validation.Valid;
@@ -27,8 +29,9 @@ public class ActivityController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<ActivityDto>> getActivitiesForUser(
             @PathVariable Long userId,
-            @RequestParam(required = false) String type) { // Optional filter by activity type
-        List<ActivityDto> activities = activityService.getActivitiesForUser(userId, type);
+            @RequestParam(required = false) String type, // Optional filter by activity type
+            @RequestParam(required = false) Integer limit) {
+        List<ActivityDto> activities = activityService.getActivitiesForUser(userId, type, limit);
         return ResponseEntity.ok(activities);
     }
 
@@ -39,10 +42,27 @@ public class ActivityController {
     }
     
     @GetMapping
-    public ResponseEntity<List<ActivityDto>> getAllActivities(@RequestParam(required = false) String type) {
-        List<ActivityDto> activities = activityService.getAllVisibleActivitiesForCurrentUser(type);
+    public ResponseEntity<List<ActivityDto>> getAllActivities(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Integer limit) {
+        List<ActivityDto> activities = activityService.getAllVisibleActivitiesForCurrentUser(type, limit);
         return ResponseEntity.ok(activities);
     }
+
+    @GetMapping("/feed")
+    public ResponseEntity<ActivityPageDto> getFamilyFeed(
+            @RequestParam(required = false) String cursor, // nextCursor from the previous page
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> types) { // e.g. types=borrow,return
+        ActivityPageDto page = activityService.getFamilyFeedForCurrentUser(cursor, limit, types);
+        return ResponseEntity.ok(page);
+    }
+
+    @PostMapping("/search")
+    public ResponseEntity<ActivityPageDto> searchActivities(@Valid @RequestBody ActivityDataQueryRequest request) {
+        ActivityPageDto page = activityService.searchActivitiesByData(request);
+        return ResponseEntity.ok(page);
+    }
     
     // As activities are generally immutable logs, PUT and DELETE endpoints are typically not provided.
 } 
\ No newline at end of file
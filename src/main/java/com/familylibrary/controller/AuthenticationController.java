@@ -1,17 +1,27 @@
 package com.familylibrary.controller;
 
-import com.familylibrary.config.JwtUtil;
 import com.familylibrary.dto.LoginRequest;
+import com.familylibrary.dto.RefreshTokenRequest;
 import com.familylibrary.dto.RegisterRequest;
 import com.familylibrary.model.User;
 import com.familylibrary.repository.UserRepository;
+import com.familylibrary.service.AuthTokenService;
+import com.familylibrary.service.CurrentUserContext;
+import com.familylibrary.service.LoginAttemptThrottle;
+import com.familylibrary.service.PasswordHashingExecutor;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -20,6 +30,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -27,52 +40,129 @@ import java.util.Map;
 public class AuthenticationController {
 
     private final AuthenticationManager authenticationManager;
-    private final JwtUtil jwtUtil;
+    private final AuthTokenService authTokenService;
+    private final CurrentUserContext currentUserContext;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final LoginAttemptThrottle loginAttemptThrottle;
 
+    // BCrypt runs on the bounded hashing pool; the request thread is released while it waits, and the
+    // database work afterwards runs on the completion executor rather than a hashing thread.
     @PostMapping("/login")
-    public ResponseEntity<?> createAuthenticationToken(@Valid @RequestBody LoginRequest loginRequest) throws Exception {
-        Authentication authentication;
+    public CompletableFuture<ResponseEntity<?>> createAuthenticationToken(@Valid @RequestBody LoginRequest loginRequest,
+                                                                         HttpServletRequest request) {
+        final String username = loginRequest.getUsername();
+        long retryAfter = loginAttemptThrottle.tryAcquire(username, request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(tooManyAttempts(retryAfter));
+        }
+        CompletableFuture<Authentication> authentication;
         try {
-            authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
-            );
-        } catch (Exception e) {
-            // Consider specific exceptions like BadCredentialsException for more granular error handling
-            return ResponseEntity.status(401).body(Map.of("error", "Invalid username or password", "message", e.getMessage()));
+            authentication = passwordHashingExecutor.submit(() -> authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(username, loginRequest.getPassword())));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(hashingUnavailable());
         }
 
-        // If authentication was successful, Spring Security context is updated.
-        // Now generate JWT.
-        final UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        final String jwt = jwtUtil.generateToken(userDetails);
+        return authentication.handleAsync((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof RejectedExecutionException) {
+                    return hashingUnavailable();
+                }
+                // AuthenticationServiceException wraps lookup failures (e.g. the database), not wrong passwords.
+                if (!(cause instanceof AuthenticationException) || cause instanceof AuthenticationServiceException) {
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(cause); // 500, message not exposed
+                }
+                loginAttemptThrottle.recordFailure(username);
+                return ResponseEntity.status(401).body(Map.of("error", "Invalid username or password", "message", "Invalid username or password"));
+            }
+            loginAttemptThrottle.recordSuccess(username);
+
+            // Authentication succeeded; now generate the JWT pair.
+            final UserDetails userDetails = (UserDetails) result.getPrincipal();
+            // Id and families go into the token so later requests never have to look the user up.
+            final Long userId = userRepository.findIdByUsername(userDetails.getUsername())
+                    .orElseThrow(() -> new EntityNotFoundException("User not found: " + userDetails.getUsername()));
+            return ResponseEntity.ok(authTokenService.issueTokens(userId, userDetails.getUsername()));
+        }, passwordHashingExecutor.completionExecutor());
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            return ResponseEntity.ok(authTokenService.refresh(refreshRequest.getRefreshToken()));
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid refresh token", "message", e.getMessage()));
+        }
+    }
 
-        return ResponseEntity.ok(Map.of("token", jwt, "username", userDetails.getUsername())); // You can return more user info if needed
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshTokenRequest logoutRequest) {
+        authTokenService.logout(currentUserContext.getPrincipal(),
+                logoutRequest != null ? logoutRequest.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody RegisterRequest registerRequest,
+                                                            HttpServletRequest request) {
+        // Only the IP limit applies here; failed registrations say nothing about a username's password.
+        long retryAfter = loginAttemptThrottle.tryAcquire(null, request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(tooManyAttempts(retryAfter));
+        }
         if (userRepository.existsByUsername(registerRequest.getUsername())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "Error: Username is already taken!"));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "Error: Username is already taken!")));
         }
 
         if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "Error: Email is already in use!"));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "Error: Email is already in use!")));
         }
 
-        // Create new user's account
-        User user = new User();
-        user.setUsername(registerRequest.getUsername());
-        user.setEmail(registerRequest.getEmail());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
-        user.setDisplayName(registerRequest.getDisplayName());
-        // Set default avatar or leave it null for now
-        // user.setAvatar("default_avatar_url_or_null"); 
+        CompletableFuture<String> encodedPassword;
+        try {
+            encodedPassword = passwordHashingExecutor.submit(() -> passwordEncoder.encode(registerRequest.getPassword()));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(hashingUnavailable());
+        }
+
+        return encodedPassword.handleAsync((password, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof RejectedExecutionException) {
+                    return hashingUnavailable();
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+            }
+            // Create new user's account
+            User user = new User();
+            user.setUsername(registerRequest.getUsername());
+            user.setEmail(registerRequest.getEmail());
+            user.setPassword(password);
+            user.setDisplayName(registerRequest.getDisplayName());
+            // Set default avatar or leave it null for now
+            // user.setAvatar("default_avatar_url_or_null");
+
+            userRepository.save(user);
 
-        userRepository.save(user);
+            return ResponseEntity.ok(Map.of("message", "User registered successfully!"));
+        }, passwordHashingExecutor.completionExecutor());
+    }
+
+    private static ResponseEntity<?> tooManyAttempts(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("error", "Too many attempts", "message", "Please try again in " + retryAfterSeconds + " seconds"));
+    }
 
-        return ResponseEntity.ok(Map.of("message", "User registered successfully!"));
+    private static ResponseEntity<?> hashingUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(Map.of("error", "Service busy", "message", "Too many sign-ins in progress, please retry shortly"));
     }
 
     // TODO: Add @PostMapping("/register") for user registration
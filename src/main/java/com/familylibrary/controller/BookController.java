@@ -1,6 +1,7 @@
 package com.familylibrary.controller;
 
 import com.familylibrary.dto.BookDto;
+import com.familylibrary.dto.BulkCreateBooksRequest;
 import com.familylibrary.dto.CreateBookRequest;
 import com.familylibrary.service.BookService;
 import jakarta.validation.Valid;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/books")
@@ -51,6 +53,18 @@ public class BookController {
         return new ResponseEntity<>(createdBook, HttpStatus.CREATED);
     }
 
+    // e.g. the pre-filled candidates of a shelf scan
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createBooks(@Valid @RequestBody BulkCreateBooksRequest request) {
+        try {
+            List<BookDto> createdBooks = bookService.createBooks(request.getBooks());
+            return new ResponseEntity<>(createdBooks, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            // Nothing was saved; the message names the entry to fix.
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid book entry", "message", e.getMessage()));
+        }
+    }
+
     // TODO: Add PUT /api/books/{id} to update a book
     // TODO: Add DELETE /api/books/{id} to delete a book
 } 
\ No newline at end of file
@@ -1,13 +1,28 @@
 package com.familylibrary.controller;
 
+import com.familylibrary.dto.ScanJobDto;
+import com.familylibrary.dto.ShelfScanCandidateDto;
 import com.familylibrary.service.BookScanService;
+import com.familylibrary.service.CurrentUserContext;
+import com.familylibrary.service.ScanJobService;
+import com.familylibrary.service.ScanJobService.ScanJob;
+import com.familylibrary.service.ShelfScanService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/books")
@@ -16,13 +31,95 @@ public class BookScanController {
     @Autowired
     private BookScanService bookScanService;
 
+    @Autowired
+    private ScanJobService scanJobService;
+
+    @Autowired
+    private ShelfScanService shelfScanService;
+
+    @Autowired
+    private CurrentUserContext currentUserContext;
+
+    @Value("${scan.jobs.wait-timeout-ms:25000}")
+    private long scanWaitTimeoutMillis;
+
+    // Same contract as before, but the scan runs as a job; the request thread is released meanwhile.
+    // A scan still running after wait-timeout-ms is answered 202 with the job, as /scan/jobs would.
     @PostMapping("/scan")
-    public ResponseEntity<?> scanBook(@RequestParam("image") MultipartFile image) {
+    public CompletableFuture<ResponseEntity<?>> scanBook(@RequestParam("image") MultipartFile image) throws IOException {
+        ScanJob job;
+        try {
+            job = scanJobService.submit(currentUserContext.getUserId(), image.getBytes());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(scanQueueFull());
+        }
+        return job.completion().<ResponseEntity<?>>thenApply(finished -> {
+            ScanJobDto result = finished.toDto();
+            return switch (finished.getStatus()) {
+                case DONE -> ResponseEntity.ok(result.getBook());
+                case NOT_FOUND -> ResponseEntity.badRequest().body("Failed to process image: " + result.getError());
+                default -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to process image: " + result.getError());
+            };
+        }).completeOnTimeout(scanAccepted(job), scanWaitTimeoutMillis, TimeUnit.MILLISECONDS); // Only the derived future; the job runs on
+    }
+
+    // Fire-and-forget variant: poll GET /scan/jobs/{id} or listen on /scan/jobs/{id}/events.
+    @PostMapping("/scan/jobs")
+    public ResponseEntity<?> submitScanJob(@RequestParam("image") MultipartFile image) throws IOException {
+        try {
+            return scanAccepted(scanJobService.submit(currentUserContext.getUserId(), image.getBytes()));
+        } catch (RejectedExecutionException e) {
+            return scanQueueFull();
+        }
+    }
+
+    private static ResponseEntity<?> scanAccepted(ScanJob job) {
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/books/scan/jobs/" + job.getId())
+                .body(job.toDto());
+    }
+
+    @GetMapping("/scan/jobs/{jobId}")
+    public ResponseEntity<ScanJobDto> getScanJob(@PathVariable String jobId) {
+        ScanJob job = scanJobService.getJob(jobId, currentUserContext.getUserId());
+        return job != null ? ResponseEntity.ok(job.toDto()) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(value = "/scan/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamScanJob(@PathVariable String jobId) {
+        ScanJob job = scanJobService.getJob(jobId, currentUserContext.getUserId());
+        return job != null ? ResponseEntity.ok(scanJobService.subscribe(job)) : ResponseEntity.notFound().build();
+    }
+
+    // Several photos in one request; Vision sees them in as few batch calls as possible.
+    @PostMapping("/scan/batch")
+    public ResponseEntity<?> scanBooks(@RequestParam("images") List<MultipartFile> images) {
         try {
-            Map<String, Object> bookInfo = bookScanService.scanBook(image);
-            return ResponseEntity.ok(bookInfo);
+            List<Map<String, Object>> results = bookScanService.scanBooks(images);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Failed to process images: " + e.getMessage());
+        }
+    }
+
+    // One photo of a whole shelf; every spine comes back as a candidate for POST /api/books/bulk.
+    @PostMapping("/scan/shelf")
+    public ResponseEntity<?> scanShelf(@RequestParam("image") MultipartFile image,
+                                       @RequestParam(required = false) Long bookshelfId,
+                                       @RequestParam(required = false) Integer shelfNumber) {
+        try {
+            List<ShelfScanCandidateDto> candidates = shelfScanService.scanShelf(image, bookshelfId, shelfNumber);
+            return ResponseEntity.ok(candidates);
         } catch (IOException e) {
             return ResponseEntity.badRequest().body("Failed to process image: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    private static ResponseEntity<?> scanQueueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body("Too many scans in progress, please retry shortly");
+    }
+}
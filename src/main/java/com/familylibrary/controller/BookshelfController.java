@@ -3,7 +3,6 @@ package com.familylibrary.controller;
 import com.familylibrary.dto.BookshelfDto;
 import com.familylibrary.dto.CreateBookshelfRequest;
 import com.familylibrary.dto.UpdateBookshelfRequest;
-import com.familylibrary.model.Family;
 import com.familylibrary.model.User;
 import com.familylibrary.repository.UserRepository;
 import com.familylibrary.service.BookshelfService;
@@ -20,7 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/bookshelves")
@@ -74,23 +73,21 @@ public class BookshelfController {
     }
 
     @GetMapping("/family/{familyIdOrCurrent}")
-    public ResponseEntity<List<BookshelfDto>> getBookshelvesByFamily(@PathVariable String familyIdOrCurrent) {
+    public ResponseEntity<List<BookshelfDto>> getBookshelvesByFamily(
+            @PathVariable String familyIdOrCurrent,
+            @RequestHeader(value = FamilyController.FAMILY_CONTEXT_HEADER, required = false) Long contextFamilyId) {
         Long actualFamilyId;
         if ("current".equalsIgnoreCase(familyIdOrCurrent)) {
-            User currentUser;
+            Optional<Long> currentFamilyId;
             try {
-                currentUser = getCurrentUser();
-            } catch (IllegalStateException | EntityNotFoundException e) {
+                currentFamilyId = familyService.resolveFamilyIdForCurrentUser(contextFamilyId);
+            } catch (IllegalStateException e) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Collections.emptyList());
             }
-            
-            Set<Family> families = currentUser.getFamilies(); 
-            if (families == null || families.isEmpty()) {
+            if (currentFamilyId.isEmpty()) {
                 return ResponseEntity.ok(Collections.emptyList());
             }
-            actualFamilyId = families.stream().findFirst()
-                                   .map(Family::getId)
-                                   .orElseThrow(() -> new EntityNotFoundException("User has families but could not retrieve an ID. This should not happen if families set is not empty."));
+            actualFamilyId = currentFamilyId.get();
         } else {
             try {
                 actualFamilyId = Long.parseLong(familyIdOrCurrent);
@@ -17,6 +17,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FamilyController {
 
+    // Optional family context for users in several families; defaults to their lowest-id family.
+    public static final String FAMILY_CONTEXT_HEADER = "X-Family-Id";
+
     private final FamilyService familyService;
 
     @PostMapping
@@ -58,16 +61,24 @@ public class FamilyController {
     }
 
     @GetMapping("/current")
-    public ResponseEntity<FamilyDto> getCurrentUserFamily() {
-        // 这个方法需要从 SecurityContextHolder 获取当前认证的用户，
-        // 然后查询该用户所属的家庭。
-        FamilyDto family = familyService.getFamilyForCurrentUser(); // 假设有这样一个方法
+    public ResponseEntity<FamilyDto> getCurrentUserFamily(
+            @RequestHeader(value = FAMILY_CONTEXT_HEADER, required = false) Long familyId) {
+        // 当前用户所属的家庭：优先使用请求头指定的家庭，否则取 id 最小的家庭
+        FamilyDto family = familyService.getFamilyForCurrentUser(familyId);
         return ResponseEntity.ok(family);
     }
 
     @GetMapping("/current/users")
-    public ResponseEntity<List<UserDto>> getCurrentFamilyMembers() {
-        List<UserDto> users = familyService.getUsersForCurrentFamily();
+    public ResponseEntity<List<UserDto>> getCurrentFamilyMembers(
+            @RequestHeader(value = FAMILY_CONTEXT_HEADER, required = false) Long familyId) {
+        List<UserDto> users = familyService.getUsersForCurrentFamily(familyId);
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/{familyId}/members")
+    public ResponseEntity<List<UserDto>> getFamilyMembers(@PathVariable Long familyId) {
+        // Only resolves for members of the family
+        List<UserDto> users = familyService.getUsersForCurrentFamily(familyId);
         return ResponseEntity.ok(users);
     }
 } 
\ No newline at end of file
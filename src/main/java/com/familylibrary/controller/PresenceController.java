@@ -0,0 +1,65 @@
+package com.familylibrary.controller;
+
+import com.familylibrary.repository.UserRepository;
+import com.familylibrary.service.CurrentUserContext;
+import com.familylibrary.service.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/presence")
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final PresenceRegistry presenceRegistry;
+    private final CurrentUserContext currentUserContext;
+    private final UserRepository userRepository;
+
+    // Clients call this every ~30s while the app is open; no database access at all.
+    @PostMapping("/heartbeat")
+    public ResponseEntity<Void> heartbeat() {
+        Long userId = currentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        presenceRegistry.heartbeat(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> goOffline() {
+        Long userId = currentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        presenceRegistry.markOffline(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Only answers for the caller and people in the caller's families; other ids are left out.
+    @GetMapping
+    public ResponseEntity<Set<Long>> getOnlineUsers(@RequestParam List<Long> userIds) {
+        Long userId = currentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (userIds.isEmpty()) {
+            return ResponseEntity.ok(Set.of());
+        }
+        Set<Long> visible = new HashSet<>(userRepository.findFamilyMemberIdsIn(userId, userIds));
+        if (userIds.contains(userId)) {
+            visible.add(userId);
+        }
+        return ResponseEntity.ok(presenceRegistry.onlineUserIds(visible));
+    }
+
+    private Long currentUserId() {
+        return currentUserContext.getUserId(); // From the JWT claims
+    }
+}
@@ -0,0 +1,33 @@
+package com.familylibrary.controller;
+
+import com.familylibrary.service.CurrentUserContext;
+import com.familylibrary.service.EventStreamHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final EventStreamHub eventStreamHub;
+    private final CurrentUserContext currentUserContext;
+
+    // Events: "activity", "lending", "book-status" and "resync" (buffer overflowed or families changed, refetch everything).
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public SseEmitter stream() {
+        Long currentUserId = currentUserContext.getUserId();
+        if (currentUserId == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated");
+        }
+        return eventStreamHub.subscribe(currentUserId);
+    }
+}
@@ -5,14 +5,18 @@ import com.familylibrary.dto.UserDto; // Assuming UserDto exists
 import com.familylibrary.model.Family;
 import com.familylibrary.model.User;
 import com.familylibrary.repository.UserRepository;
+import com.familylibrary.service.PresenceRegistry;
+import com.familylibrary.service.UserDirectoryService;
 // import com.familylibrary.service.UserService; // Assuming UserService exists for mapping or richer logic - REMOVED
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -25,6 +29,8 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserRepository userRepository; 
+    private final UserDirectoryService userDirectoryService;
+    private final PresenceRegistry presenceRegistry;
     // private final UserService userService; // Optional: for more complex logic or DTO mapping - REMOVED
 
     @GetMapping("/current")
@@ -56,13 +62,20 @@ public class UserController {
         return ResponseEntity.ok(responseUser);
     }
 
+    /**
+     * Users sharing a family with the caller (and the caller), ordered by username.
+     * The body stays a plain array for existing clients; paging totals travel in headers.
+     */
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        List<UserDto> userDtos = users.stream()
-                                      .map(this::convertUserToDto)
-                                      .collect(Collectors.toList());
-        return ResponseEntity.ok(userDtos);
+    public ResponseEntity<List<UserDto>> getAllUsers(
+            @RequestParam(required = false) String q, // Matches username or display name
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        Page<UserDto> users = userDirectoryService.searchVisibleUsers(q, page, size);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(users.getTotalElements()))
+                .header("X-Total-Pages", String.valueOf(users.getTotalPages()))
+                .body(users.getContent());
     }
 
     private UserDto convertUserToDto(User user) {
@@ -72,7 +85,7 @@ public class UserController {
         dto.setDisplayName(user.getDisplayName());
         dto.setEmail(user.getEmail());
         dto.setAvatar(user.getAvatar());
-        dto.setOnline(user.isOnline());
+        dto.setOnline(presenceRegistry.isOnline(user.getId()));
 
         if (user.getFamilies() != null) {
             Set<FamilySimpleDto> familyDtos = user.getFamilies().stream()
@@ -85,6 +98,5 @@ public class UserController {
         return dto;
     }
 
-    // TODO: Add GET /api/users for listing all users (admin functionality)
     // TODO: Add GET /api/users/{id} for specific user (admin/profile functionality)
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.familylibrary.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One typed predicate on a key of Activity.data, e.g. {"path": "rating", "op": "GTE", "value": 4}
+ * or {"path": "dueDate", "op": "LT", "value": "2026-10-25T00:00"}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityDataFilter {
+
+    public enum Operator { EQ, NE, GT, GTE, LT, LTE, EXISTS }
+
+    @NotBlank(message = "Path cannot be blank")
+    private String path; // Dotted key path into data, e.g. "rating" or "book.language"
+
+    @NotNull(message = "Operator cannot be null")
+    private Operator op;
+
+    private Object value; // Number, string or boolean; ignored for EXISTS
+}
@@ -0,0 +1,26 @@
+package com.familylibrary.dto;
+
+import jakarta.validation.Valid;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search over the caller's family activities by their JSON payload.
+ * All criteria are ANDed; results are newest first and paged with the same cursor as the feed.
+ */
+@Data
+public class ActivityDataQueryRequest {
+
+    private Map<String, Object> contains; // JSON containment, e.g. {"action": "rated_book", "rating": 5}
+
+    @Valid
+    private List<ActivityDataFilter> filters; // Typed path filters
+
+    private List<String> types; // Optional activity types
+
+    private String cursor; // nextCursor from the previous page
+
+    private Integer limit;
+}
@@ -0,0 +1,15 @@
+package com.familylibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityPageDto {
+    private List<ActivityDto> items;
+    private String nextCursor; // Opaque; null when there are no older activities
+}
@@ -0,0 +1,15 @@
+package com.familylibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthTokensDto {
+    private String token; // Short-lived access token for the Authorization header
+    private String refreshToken; // Single use; exchange at /api/auth/refresh for a new pair
+    private String username;
+    private long expiresIn; // Access token lifetime in seconds
+}
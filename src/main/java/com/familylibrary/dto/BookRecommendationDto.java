@@ -13,4 +13,7 @@ public class BookRecommendationDto {
     private String reason; // Recommendation reason from AI
     private String coverImageUrl; // Optional, if AI can provide or we can find one
     private String isbn; // Optional
+    private Long bookId; // Matching book in the family catalog, if any
+    private boolean owned; // The user already has it (added it or keeps it on their own shelf)
+    private boolean availableInFamily; // A family member's copy is on the shelf and can be borrowed
 } 
\ No newline at end of file
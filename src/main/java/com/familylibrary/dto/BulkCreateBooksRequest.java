@@ -0,0 +1,18 @@
+package com.familylibrary.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateBooksRequest {
+
+    @NotEmpty(message = "Books cannot be empty")
+    private List<@Valid CreateBookRequest> books;
+}
@@ -1,7 +1,9 @@
 package com.familylibrary.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class DeepSeekChatRequestDto {
@@ -10,5 +12,7 @@ public class DeepSeekChatRequestDto {
     private boolean stream = false; // Default to false, can be configured
     private int max_tokens = 2048; // Default value
     private double temperature = 0.7; // Default value
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> response_format; // {"type": "json_object"} for JSON mode
     // Add other parameters like top_p, frequency_penalty, presence_penalty if needed
 } 
\ No newline at end of file
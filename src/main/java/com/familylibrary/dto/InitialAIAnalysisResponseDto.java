@@ -1,10 +1,14 @@
 package com.familylibrary.dto;
 
 import lombok.Data;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 public class InitialAIAnalysisResponseDto {
     private String analysisText; // Full text analysis from AI
     private List<BookRecommendationDto> recommendedBooks; // Structured recommendations if parsable
+    private LocalDateTime generatedAt; // Null if not generated by the AI (no books, service unavailable)
+    private boolean stale; // Books changed since; a fresh analysis is being generated in the background
 } 
\ No newline at end of file
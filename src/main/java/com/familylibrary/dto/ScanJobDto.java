@@ -0,0 +1,20 @@
+package com.familylibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobDto {
+    private String id;
+    private String status; // PENDING, RUNNING, DONE, NOT_FOUND or FAILED
+    private Map<String, Object> book; // Set when DONE
+    private String error; // Set when NOT_FOUND / FAILED
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+}
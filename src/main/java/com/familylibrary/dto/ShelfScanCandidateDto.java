@@ -0,0 +1,23 @@
+package com.familylibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfScanCandidateDto {
+    private int position; // 1-based, left to right (top to bottom for stacked books)
+    private String spineText;
+    private String detectedTitle;
+    private String detectedAuthor;
+    private String status; // found, not_found, error
+    private String error;
+    private Map<String, Object> metadata;
+    private CreateBookRequest book; // Pre-filled for POST /api/books/bulk
+    private boolean addable; // book can be sent to /bulk as is: it has an ISBN not yet in the catalog
+    private String notAddableReason;
+}
@@ -0,0 +1,26 @@
+package com.familylibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payload pushed over /api/stream. Deliberately thin: clients use it to decide which
+ * queries to refresh rather than as a source of truth.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamEventDto {
+    private String type; // "activity", "lending" or "book-status"
+    private String activityType; // For "activity": add, borrow, return, read
+    private Long bookId;
+    private Long lendingId; // Nullable
+    private Long userId;
+    private Long relatedUserId; // Nullable
+    private Long familyId; // Nullable
+    private String status; // For "lending" / "book-status": the new status
+    private LocalDateTime timestamp;
+}
@@ -1,6 +1,8 @@
 package com.familylibrary.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
@@ -13,6 +15,7 @@ public class UserDto {
     private String displayName;
     private String email;
     private String avatar;
+    @Getter(onMethod_ = @JsonProperty("isOnline")) // Lombok's isOnline() would otherwise serialize as "online"
     private boolean isOnline; // Changed from isOnline to isOnline to match typical boolean naming
     private java.util.Set<FamilySimpleDto> families;
     // Add any other fields you want to expose about the user
@@ -0,0 +1,17 @@
+package com.familylibrary.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by BookService once a book has been saved to a bookshelf.
+ * Carries ids only so listeners never touch the publisher's persistence context.
+ */
+@Value
+public class BookAddedEvent {
+    Long bookId;
+    Long userId;
+    Long familyId; // Family of the target bookshelf, nullable
+    LocalDateTime occurredAt;
+}
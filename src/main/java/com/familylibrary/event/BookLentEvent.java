@@ -0,0 +1,20 @@
+package com.familylibrary.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by BookLendingService when a lending record is created.
+ */
+@Value
+public class BookLentEvent {
+    Long lendingId;
+    Long bookId;
+    Long lenderId;
+    Long borrowerId;
+    Long familyId; // Family of the book's bookshelf, nullable
+    LocalDateTime dueDate; // Nullable
+    LocalDateTime lendDate; // As entered, may be backdated
+    LocalDateTime occurredAt; // When it was recorded
+}
@@ -0,0 +1,18 @@
+package com.familylibrary.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by BookLendingService when a borrowed book is returned.
+ */
+@Value
+public class BookReturnedEvent {
+    Long lendingId;
+    Long bookId;
+    Long lenderId;
+    Long borrowerId;
+    Long familyId; // Family of the book's bookshelf, nullable
+    LocalDateTime occurredAt;
+}
@@ -0,0 +1,12 @@
+package com.familylibrary.event;
+
+import lombok.Value;
+
+/**
+ * Published by BookshelfService when a bookshelf's access-relevant state (privacy) changes or it is deleted,
+ * and by FamilyService for the bookshelves of a deleted family.
+ */
+@Value
+public class BookshelfChangedEvent {
+    Long bookshelfId;
+}
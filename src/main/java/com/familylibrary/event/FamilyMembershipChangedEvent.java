@@ -0,0 +1,12 @@
+package com.familylibrary.event;
+
+import lombok.Value;
+
+/**
+ * Published by FamilyService when a user joins or leaves a family (including creating one).
+ */
+@Value
+public class FamilyMembershipChangedEvent {
+    Long userId;
+    Long familyId;
+}
@@ -0,0 +1,19 @@
+package com.familylibrary.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by ReadingHistoryService when a reading history entry gets its end date.
+ */
+@Value
+public class ReadingFinishedEvent {
+    Long readingHistoryId;
+    Long bookId;
+    Long userId;
+    Long familyId; // Family of the book's bookshelf, nullable
+    Integer rating; // Nullable
+    LocalDateTime endDate; // As entered, may be backdated
+    LocalDateTime occurredAt; // When it was recorded
+}
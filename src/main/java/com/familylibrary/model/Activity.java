@@ -9,7 +9,10 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "activities")
+@Table(name = "activities", indexes = {
+        @Index(name = "idx_activities_family_timestamp", columnList = "family_id, timestamp DESC, id DESC"),
+        @Index(name = "idx_activities_user_timestamp", columnList = "user_id, timestamp DESC, id DESC")
+})
 public class Activity {
 
     @Id
@@ -20,6 +23,12 @@ public class Activity {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Denormalized from the book's bookshelf (or the user's family) so the family feed
+    // can be served straight from idx_activities_family_timestamp without joining user_families.
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "family_id")
+    private Family family;
+
     @Column(name = "activity_type", nullable = false)
     private String activityType;
 
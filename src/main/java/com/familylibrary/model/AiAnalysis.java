@@ -0,0 +1,35 @@
+package com.familylibrary.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * The last AI reading analysis generated for a user, with the fingerprint of the book list it was
+ * generated from. A different fingerprint means the books changed and the analysis is stale.
+ */
+@Data
+@Entity
+@Table(name = "ai_analyses")
+public class AiAnalysis {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint; // SHA-256 hex of the user's sorted book ids and update times
+
+    @Column(name = "analysis_text", nullable = false, columnDefinition = "TEXT")
+    private String analysisText;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private String recommendations; // List of BookRecommendationDto
+
+    @Column(name = "generated_at", nullable = false)
+    private LocalDateTime generatedAt;
+}
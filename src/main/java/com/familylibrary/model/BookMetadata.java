@@ -0,0 +1,37 @@
+package com.familylibrary.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * Book metadata fetched from an external catalog, shared by all families. A row with
+ * {@code found = false} remembers that the catalog had nothing for the ISBN.
+ */
+@Data
+@Entity
+@Table(name = "book_metadata", indexes = {
+        @Index(name = "idx_book_metadata_expires_at", columnList = "expires_at")
+})
+public class BookMetadata {
+
+    @Id
+    @Column(name = "isbn13", length = 13)
+    private String isbn13; // Normalized ISBN-13 digits
+
+    @Column(nullable = false)
+    private boolean found;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private String payload; // Scan result as returned to clients; null for negative entries
+
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,29 @@
+package com.familylibrary.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A revoked login session or refresh token id. Loaded into memory at startup; the table is only
+ * the durable copy and is never read on the request path.
+ */
+@Data
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at")
+})
+public class RevokedToken {
+
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId; // Session id (sid) or refresh token id (jti)
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // No token carrying this id can be valid after this
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
@@ -29,8 +29,9 @@ public class User {
 
     private String avatar;
 
-    @Column(name = "is_online")
-    private boolean isOnline = false;
+    // Live presence is tracked in memory by PresenceRegistry; this is only its periodic snapshot.
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt;
 
     @OneToMany(mappedBy = "owner")
     private List<Bookshelf> bookshelves = new ArrayList<>();
@@ -50,8 +51,8 @@ public class User {
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ReadingHistory> readingHistories = new ArrayList<>();
 
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Activity> activities = new ArrayList<>();
+    // Activities are an append-only, partitioned log; query them through ActivityRepository
+    // instead of mapping them as a collection here.
 
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
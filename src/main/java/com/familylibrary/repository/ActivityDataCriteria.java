@@ -0,0 +1,24 @@
+package com.familylibrary.repository;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolved, already-validated criteria for {@link ActivityRepositoryCustom#searchByData}.
+ * JSON values are pre-serialized by the service; nothing here is concatenated into SQL.
+ */
+@Data
+public class ActivityDataCriteria {
+    private List<Long> familyIds = new ArrayList<>(); // Scope: these families...
+    private Long userId; // ...or, when familyIds is empty, this user's own activities
+    private List<String> types = new ArrayList<>();
+    private String containsJson; // Served by the jsonb_path_ops GIN index
+    private List<String> jsonPaths = new ArrayList<>(); // jsonpath predicates, one per typed range/exists filter
+    private List<String> jsonPathVars = new ArrayList<>(); // Matching vars objects ("{}" when unused)
+    private LocalDateTime beforeTimestamp;
+    private long beforeId;
+    private int limit;
+}
@@ -3,13 +3,18 @@ package com.familylibrary.repository;
 import com.familylibrary.model.Activity;
 import com.familylibrary.model.Book;
 import com.familylibrary.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ActivityRepository extends JpaRepository<Activity, Long> {
+public interface ActivityRepository extends JpaRepository<Activity, Long>, ActivityRepositoryCustom {
 
     List<Activity> findByUserOrderByTimestampDesc(User user);
 
@@ -19,4 +24,42 @@ public interface ActivityRepository extends JpaRepository<Activity, Long> {
 
     List<Activity> findByUserAndActivityTypeOrderByTimestampDesc(User user, String activityType);
 
-} 
\ No newline at end of file
+    // Keyset (cursor) pages: rows strictly "older" than (beforeTimestamp, beforeId), newest first.
+    // Each query walks idx_activities_family_timestamp / idx_activities_user_timestamp and stops
+    // after one page, so the cost is independent of how long the log has grown.
+
+    @Query("SELECT a FROM Activity a WHERE a.family.id = :familyId " +
+           "AND (a.timestamp < :beforeTimestamp OR (a.timestamp = :beforeTimestamp AND a.id < :beforeId)) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<Activity> findFamilyFeedPage(@Param("familyId") Long familyId,
+                                      @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                      @Param("beforeId") Long beforeId,
+                                      Pageable pageable);
+
+    @Query("SELECT a FROM Activity a WHERE a.family.id = :familyId AND a.activityType IN :types " +
+           "AND (a.timestamp < :beforeTimestamp OR (a.timestamp = :beforeTimestamp AND a.id < :beforeId)) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<Activity> findFamilyFeedPageByTypes(@Param("familyId") Long familyId,
+                                             @Param("types") Collection<String> types,
+                                             @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                             @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+
+    @Query("SELECT a FROM Activity a WHERE a.user.id = :userId " +
+           "AND (a.timestamp < :beforeTimestamp OR (a.timestamp = :beforeTimestamp AND a.id < :beforeId)) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<Activity> findUserFeedPage(@Param("userId") Long userId,
+                                    @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                    @Param("beforeId") Long beforeId,
+                                    Pageable pageable);
+
+    @Query("SELECT a FROM Activity a WHERE a.user.id = :userId AND a.activityType IN :types " +
+           "AND (a.timestamp < :beforeTimestamp OR (a.timestamp = :beforeTimestamp AND a.id < :beforeId)) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<Activity> findUserFeedPageByTypes(@Param("userId") Long userId,
+                                           @Param("types") Collection<String> types,
+                                           @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                           @Param("beforeId") Long beforeId,
+                                           Pageable pageable);
+
+}
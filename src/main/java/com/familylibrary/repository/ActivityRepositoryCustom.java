@@ -0,0 +1,10 @@
+package com.familylibrary.repository;
+
+import com.familylibrary.model.Activity;
+
+import java.util.List;
+
+public interface ActivityRepositoryCustom {
+
+    List<Activity> searchByData(ActivityDataCriteria criteria);
+}
@@ -0,0 +1,63 @@
+package com.familylibrary.repository;
+
+import com.familylibrary.model.Activity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.List;
+
+/**
+ * Native query for payload searches: JPQL has no jsonb operators. Containment uses {@code @>},
+ * which the jsonb_path_ops GIN index (idx_activities_data_path_ops) serves; range and existence
+ * filters go through jsonb_path_exists on the rows that survive the indexed predicates.
+ */
+public class ActivityRepositoryImpl implements ActivityRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Activity> searchByData(ActivityDataCriteria criteria) {
+        StringBuilder sql = new StringBuilder("SELECT a.* FROM activities a WHERE ");
+        if (!criteria.getFamilyIds().isEmpty()) {
+            sql.append("a.family_id IN (:familyIds)");
+        } else {
+            sql.append("a.user_id = :userId");
+        }
+        if (!criteria.getTypes().isEmpty()) {
+            sql.append(" AND a.activity_type IN (:types)");
+        }
+        if (criteria.getContainsJson() != null) {
+            sql.append(" AND a.data @> CAST(:contains AS jsonb)");
+        }
+        for (int i = 0; i < criteria.getJsonPaths().size(); i++) {
+            sql.append(" AND jsonb_path_exists(a.data, CAST(:path").append(i).append(" AS jsonpath), CAST(:vars")
+               .append(i).append(" AS jsonb))");
+        }
+        sql.append(" AND (a.timestamp < :beforeTimestamp OR (a.timestamp = :beforeTimestamp AND a.id < :beforeId))")
+           .append(" ORDER BY a.timestamp DESC, a.id DESC LIMIT :limit");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Activity.class);
+        if (!criteria.getFamilyIds().isEmpty()) {
+            query.setParameter("familyIds", criteria.getFamilyIds());
+        } else {
+            query.setParameter("userId", criteria.getUserId());
+        }
+        if (!criteria.getTypes().isEmpty()) {
+            query.setParameter("types", criteria.getTypes());
+        }
+        if (criteria.getContainsJson() != null) {
+            query.setParameter("contains", criteria.getContainsJson());
+        }
+        for (int i = 0; i < criteria.getJsonPaths().size(); i++) {
+            query.setParameter("path" + i, criteria.getJsonPaths().get(i));
+            query.setParameter("vars" + i, criteria.getJsonPathVars().get(i));
+        }
+        query.setParameter("beforeTimestamp", criteria.getBeforeTimestamp());
+        query.setParameter("beforeId", criteria.getBeforeId());
+        query.setParameter("limit", criteria.getLimit());
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,9 @@
+package com.familylibrary.repository;
+
+import com.familylibrary.model.AiAnalysis;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AiAnalysisRepository extends JpaRepository<AiAnalysis, Long> {
+}
@@ -4,10 +4,14 @@ import com.familylibrary.model.Book;
 import com.familylibrary.model.BookLending;
 import com.familylibrary.model.User;
 import com.familylibrary.model.LendingStatus;
+import com.familylibrary.repository.projection.LendingAccessView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookLendingRepository extends JpaRepository<BookLending, Long> {
@@ -28,6 +32,10 @@ public interface BookLendingRepository extends JpaRepository<BookLending, Long>
     // Find active lending for a specific book
     List<BookLending> findByBookAndStatus(Book book, LendingStatus status);
 
+    @Query("SELECT l.id AS id, b.id AS bookId, lender.id AS lenderId, borrower.id AS borrowerId " +
+           "FROM BookLending l JOIN l.book b JOIN l.lender lender JOIN l.borrower borrower WHERE l.id = :id")
+    Optional<LendingAccessView> findAccessViewById(@Param("id") Long id);
+
     // Potential future methods:
     // List<BookLending> findByLenderAndStatus(User lender, String status);
     // List<BookLending> findByBookAndStatus(Book book, String status);
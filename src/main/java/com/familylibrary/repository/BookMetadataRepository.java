@@ -0,0 +1,18 @@
+package com.familylibrary.repository;
+
+import com.familylibrary.model.BookMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BookMetadataRepository extends JpaRepository<BookMetadata, String> {
+
+    @Modifying
+    @Query("DELETE FROM BookMetadata m WHERE m.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -3,11 +3,16 @@ package com.familylibrary.repository;
 import com.familylibrary.model.Book;
 import com.familylibrary.model.Bookshelf;
 import com.familylibrary.model.User;
+import com.familylibrary.repository.projection.BookAccessView;
+import com.familylibrary.repository.projection.BookCatalogMatchView;
+import com.familylibrary.repository.projection.BookTitleView;
+import com.familylibrary.repository.projection.BookVersionView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +35,9 @@ public interface BookRepository extends JpaRepository<Book, Long> {
 
     List<Book> findByAddedById(Long userId);
 
+    @Query("SELECT b.id AS id, b.updatedAt AS updatedAt FROM Book b WHERE b.addedBy.id = :userId ORDER BY b.id")
+    List<BookVersionView> findVersionsByAddedById(@Param("userId") Long userId);
+
     @Query("SELECT b FROM Book b WHERE lower(b.title) LIKE lower(concat('%', :searchTerm, '%')) OR lower(b.author) LIKE lower(concat('%', :searchTerm, '%')) OR lower(b.isbn) LIKE lower(concat('%', :searchTerm, '%'))")
     List<Book> searchBooks(@Param("searchTerm") String searchTerm);
 
@@ -39,4 +47,30 @@ public interface BookRepository extends JpaRepository<Book, Long> {
 
     boolean existsByIsbn(String isbn);
 
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("SELECT max(b.positionNumber) FROM Book b WHERE b.bookshelf.id = :bookshelfId AND b.shelfNumber = :shelfNumber")
+    Integer findMaxPositionNumber(@Param("bookshelfId") Long bookshelfId, @Param("shelfNumber") Integer shelfNumber);
+
+    @Query("SELECT b.id AS id, b.title AS title FROM Book b WHERE b.id IN :ids")
+    List<BookTitleView> findTitlesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Books with any of the titles or ISBNs that the user added, keeps on their own shelves, or can see on a
+    // non-private shelf of one of their families; one statement for a whole recommendation list. Titles are
+    // normalized as RecommendationResolver does (《》「」" stripped, trimmed, lower-cased), ISBNs without hyphens
+    // and upper-cased. A book on no shelf still counts when the user added it.
+    @Query("SELECT b.id AS id, b.title AS title, b.isbn AS isbn, b.coverImageUrl AS coverImageUrl, b.status AS status, " +
+           "a.id AS addedById, o.id AS ownerId, f.id AS familyId " +
+           "FROM Book b LEFT JOIN b.bookshelf s LEFT JOIN s.owner o LEFT JOIN s.family f LEFT JOIN b.addedBy a " +
+           "WHERE (lower(trim(replace(replace(replace(replace(replace(b.title, '《', ''), '》', ''), '「', ''), '」', ''), '\"', ''))) IN :titles " +
+           "OR upper(replace(b.isbn, '-', '')) IN :isbns) " +
+           "AND (a.id = :userId OR o.id = :userId OR (s.isPrivate = false AND f.id IN " +
+           "(SELECT mf.id FROM User u JOIN u.families mf WHERE u.id = :userId)))")
+    List<BookCatalogMatchView> findCatalogMatches(@Param("userId") Long userId, @Param("titles") Collection<String> titles,
+                                                  @Param("isbns") Collection<String> isbns);
+
+    @Query("SELECT b.id AS id, s.id AS bookshelfId, a.id AS addedById " +
+           "FROM Book b LEFT JOIN b.bookshelf s LEFT JOIN b.addedBy a WHERE b.id = :id")
+    Optional<BookAccessView> findAccessViewById(@Param("id") Long id);
 } 
\ No newline at end of file
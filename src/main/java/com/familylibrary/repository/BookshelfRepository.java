@@ -3,7 +3,10 @@ package com.familylibrary.repository;
 import com.familylibrary.model.Bookshelf;
 import com.familylibrary.model.Family;
 import com.familylibrary.model.User;
+import com.familylibrary.repository.projection.BookshelfAccessView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,4 +27,11 @@ public interface BookshelfRepository extends JpaRepository<Bookshelf, Long> {
     Optional<Bookshelf> findByNameAndOwner(String name, User owner);
     Optional<Bookshelf> findByNameAndFamily(String name, Family family);
 
+    @Query("SELECT b.id AS id, o.id AS ownerId, f.id AS familyId, b.isPrivate AS privateShelf " +
+           "FROM Bookshelf b LEFT JOIN b.owner o LEFT JOIN b.family f WHERE b.id = :id")
+    Optional<BookshelfAccessView> findAccessViewById(@Param("id") Long id);
+
+    @Query("SELECT b.id FROM Bookshelf b WHERE b.family.id = :familyId")
+    List<Long> findIdsByFamilyId(@Param("familyId") Long familyId);
+
 } 
\ No newline at end of file
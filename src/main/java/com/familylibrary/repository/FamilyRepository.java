@@ -2,12 +2,31 @@ package com.familylibrary.repository;
 
 import com.familylibrary.model.Family;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FamilyRepository extends JpaRepository<Family, Long> {
     Optional<Family> findByName(String name);
     Boolean existsByName(String name);
+
+    // Reads user_families only; ordered so "first family" is deterministic.
+    @Query("SELECT f.id FROM User u JOIN u.families f WHERE u.id = :userId ORDER BY f.id")
+    List<Long> findIdsByMemberId(@Param("userId") Long userId);
+
+    // Family context in one round trip: the requested family if the user is a member of it, otherwise
+    // (familyId null) the user's lowest-id family, with members fetched in the same statement.
+    @Query("SELECT f FROM Family f LEFT JOIN FETCH f.members " +
+           "WHERE f.id = (SELECT MIN(mf.id) FROM User u JOIN u.families mf " +
+           "WHERE u.username = :username AND (:familyId IS NULL OR mf.id = :familyId))")
+    Optional<Family> findContextFamilyWithMembers(@Param("username") String username, @Param("familyId") Long familyId);
+
+    // Same resolution as above, id only (reads users and user_families, never families.members).
+    @Query("SELECT MIN(f.id) FROM User u JOIN u.families f " +
+           "WHERE u.username = :username AND (:familyId IS NULL OR f.id = :familyId)")
+    Optional<Long> findContextFamilyId(@Param("username") String username, @Param("familyId") Long familyId);
 } 
\ No newline at end of file
@@ -1,9 +1,17 @@
 package com.familylibrary.repository;
 
 import com.familylibrary.model.User;
+import com.familylibrary.repository.projection.UserDirectoryView;
+import com.familylibrary.repository.projection.UserNameView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +20,42 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email); // Assuming User has an email field
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
+
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    // Those of :ids that share at least one family with :userId (the user included, if in a family).
+    @Query("SELECT DISTINCT m.id FROM User u JOIN u.families f JOIN f.members m WHERE u.id = :userId AND m.id IN :ids")
+    List<Long> findFamilyMemberIdsIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.displayName AS displayName FROM User u WHERE u.id IN :ids")
+    List<UserNameView> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // The caller plus everyone sharing at least one family with them.
+    String VISIBLE_USERS_CTE =
+            "WITH me AS (SELECT id FROM users WHERE username = :username), " +
+            "my_families AS (SELECT uf.family_id FROM user_families uf JOIN me ON uf.user_id = me.id), " +
+            "visible AS (SELECT id AS user_id FROM me " +
+            "UNION SELECT uf.user_id FROM user_families uf JOIN my_families mf ON mf.family_id = uf.family_id) ";
+
+    String DIRECTORY_SEARCH = "(lower(u.username) LIKE :search OR lower(u.display_name) LIKE :search) ";
+
+    // One statement per page: shared families are aggregated in the database instead of
+    // initializing User.families row by row.
+    @Query(value = VISIBLE_USERS_CTE +
+            "SELECT u.id AS id, u.username AS username, u.display_name AS \"displayName\", u.email AS email, " +
+            "u.avatar AS avatar, " +
+            "CAST(COALESCE(json_agg(json_build_object('id', f.id, 'name', f.name) ORDER BY f.id) " +
+            "FILTER (WHERE f.id IS NOT NULL), '[]') AS text) AS families " +
+            "FROM users u JOIN visible v ON v.user_id = u.id " +
+            "LEFT JOIN user_families uf ON uf.user_id = u.id AND uf.family_id IN (SELECT family_id FROM my_families) " +
+            "LEFT JOIN families f ON f.id = uf.family_id " +
+            "WHERE " + DIRECTORY_SEARCH +
+            "GROUP BY u.id ORDER BY u.username, u.id",
+           countQuery = VISIBLE_USERS_CTE +
+            "SELECT count(*) FROM users u JOIN visible v ON v.user_id = u.id WHERE " + DIRECTORY_SEARCH,
+           nativeQuery = true)
+    Page<UserDirectoryView> findDirectoryPage(@Param("username") String username,
+                                              @Param("search") String search,
+                                              Pageable pageable);
 } 
\ No newline at end of file
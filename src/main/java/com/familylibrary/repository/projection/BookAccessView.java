@@ -0,0 +1,10 @@
+package com.familylibrary.repository.projection;
+
+/**
+ * Where a book lives and who added it, for permission checks.
+ */
+public interface BookAccessView {
+    Long getId();
+    Long getBookshelfId();
+    Long getAddedById();
+}
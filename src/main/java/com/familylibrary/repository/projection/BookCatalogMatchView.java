@@ -0,0 +1,17 @@
+package com.familylibrary.repository.projection;
+
+import com.familylibrary.model.BookStatus;
+
+/**
+ * A catalog book matched by title, with what is needed to tell whether a user owns it or can borrow it.
+ */
+public interface BookCatalogMatchView {
+    Long getId();
+    String getTitle();
+    String getIsbn();
+    String getCoverImageUrl();
+    BookStatus getStatus();
+    Long getAddedById();
+    Long getOwnerId();
+    Long getFamilyId();
+}
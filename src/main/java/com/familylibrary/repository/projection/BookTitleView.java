@@ -0,0 +1,9 @@
+package com.familylibrary.repository.projection;
+
+/**
+ * Lightweight projection used when only a book's title is needed.
+ */
+public interface BookTitleView {
+    Long getId();
+    String getTitle();
+}
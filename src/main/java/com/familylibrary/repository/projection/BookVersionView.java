@@ -0,0 +1,11 @@
+package com.familylibrary.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Id and last update of a book; enough to tell whether a list of books has changed.
+ */
+public interface BookVersionView {
+    Long getId();
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,11 @@
+package com.familylibrary.repository.projection;
+
+/**
+ * The columns that decide who may see or change a bookshelf.
+ */
+public interface BookshelfAccessView {
+    Long getId();
+    Long getOwnerId();
+    Long getFamilyId();
+    Boolean getPrivateShelf();
+}
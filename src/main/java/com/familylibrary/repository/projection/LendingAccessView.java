@@ -0,0 +1,11 @@
+package com.familylibrary.repository.projection;
+
+/**
+ * The parties of a lending, for permission checks. These never change after creation.
+ */
+public interface LendingAccessView {
+    Long getId();
+    Long getBookId();
+    Long getLenderId();
+    Long getBorrowerId();
+}
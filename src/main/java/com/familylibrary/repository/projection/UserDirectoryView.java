@@ -0,0 +1,14 @@
+package com.familylibrary.repository.projection;
+
+/**
+ * One row of the user directory: the user's own columns plus the families they share with the
+ * caller, aggregated by the database into a JSON array ({@code [{"id":1,"name":"..."}]}).
+ */
+public interface UserDirectoryView {
+    Long getId();
+    String getUsername();
+    String getDisplayName();
+    String getEmail();
+    String getAvatar();
+    String getFamilies();
+}
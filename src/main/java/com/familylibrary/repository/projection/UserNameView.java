@@ -0,0 +1,11 @@
+package com.familylibrary.repository.projection;
+
+/**
+ * Lightweight projection used when only a user's name is needed (e.g. labelling feed entries),
+ * so callers don't have to hydrate full User entities and their lazy collections.
+ */
+public interface UserNameView {
+    Long getId();
+    String getUsername();
+    String getDisplayName();
+}
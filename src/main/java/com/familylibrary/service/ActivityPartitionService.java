@@ -0,0 +1,215 @@
+package com.familylibrary.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps {@code activities} range-partitioned by month on {@code timestamp}.
+ * <p>
+ * Hibernate's {@code ddl-auto: update} creates a plain table on a fresh database; on startup this
+ * service converts it once into a partitioned table (copying existing rows), then keeps
+ * partitions created a few months ahead and applies the retention policy daily. Old months are
+ * either dropped outright or compacted into per-family/user/type counts in
+ * {@code activity_monthly_summaries} before being dropped, so the hot table only ever holds
+ * the retention window. A default partition catches rows outside the prepared range so inserts
+ * never fail; when their month's partition is created later, those rows are moved into it.
+ */
+@Service
+public class ActivityPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityPartitionService.class);
+
+    private static final String TABLE = "activities";
+    private static final Pattern PARTITION_NAME = Pattern.compile("^activities_y(\\d{4})m(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final String retentionMode;
+
+    public ActivityPartitionService(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${activity.partitioning.enabled:true}") boolean enabled,
+                                    @Value("${activity.partitioning.months-ahead:3}") int monthsAhead,
+                                    @Value("${activity.retention.months:24}") int retentionMonths,
+                                    @Value("${activity.retention.mode:compact}") String retentionMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.retentionMode = retentionMode.toLowerCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        String product = jdbcTemplate.execute((Connection c) -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            logger.info("Activity partitioning skipped: unsupported database {}", product);
+            return;
+        }
+        if (enabled) {
+            convertToPartitionedTableIfNeeded();
+            runMaintenance();
+        }
+        ensureDataIndex();
+    }
+
+    @Scheduled(cron = "${activity.partitioning.maintenance-cron:0 15 3 * * *}")
+    public void scheduledMaintenance() {
+        if (enabled && isPartitioned()) {
+            runMaintenance();
+        }
+    }
+
+    void runMaintenance() {
+        YearMonth current = YearMonth.now();
+        for (int i = -1; i <= monthsAhead; i++) {
+            createPartitionIfMissing(current.plusMonths(i));
+        }
+        applyRetention(current.minusMonths(retentionMonths));
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relname = ? AND n.nspname = current_schema()", String.class, TABLE);
+        return !kinds.isEmpty() && "p".equals(kinds.get(0));
+    }
+
+    private void convertToPartitionedTableIfNeeded() {
+        if (isPartitioned()) {
+            return;
+        }
+        logger.info("Converting table '{}' to monthly range partitions", TABLE);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE activities RENAME TO activities_unpartitioned");
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS activities_log_id_seq");
+            jdbcTemplate.execute("CREATE TABLE activities (LIKE activities_unpartitioned INCLUDING DEFAULTS) " +
+                    "PARTITION BY RANGE (\"timestamp\")");
+            jdbcTemplate.execute("ALTER TABLE activities ALTER COLUMN id SET DEFAULT nextval('activities_log_id_seq')");
+            jdbcTemplate.execute("ALTER SEQUENCE activities_log_id_seq OWNED BY activities.id");
+            // The partition key has to be part of the primary key.
+            jdbcTemplate.execute("ALTER TABLE activities ADD PRIMARY KEY (id, \"timestamp\")");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS activities_default PARTITION OF activities DEFAULT");
+
+            List<String> months = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT to_char(date_trunc('month', \"timestamp\"), 'YYYY-MM') FROM activities_unpartitioned",
+                    String.class);
+            for (String month : months) {
+                createPartitionIfMissing(YearMonth.parse(month));
+            }
+            createPartitionIfMissing(YearMonth.now());
+
+            jdbcTemplate.execute("INSERT INTO activities SELECT * FROM activities_unpartitioned");
+            jdbcTemplate.execute("SELECT setval('activities_log_id_seq', COALESCE((SELECT max(id) FROM activities), 0) + 1, false)");
+            jdbcTemplate.execute("DROP TABLE activities_unpartitioned");
+
+            // Indexes on the parent cascade to every current and future partition.
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_activities_family_timestamp " +
+                    "ON activities (family_id, \"timestamp\" DESC, id DESC)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_activities_user_timestamp " +
+                    "ON activities (user_id, \"timestamp\" DESC, id DESC)");
+        });
+        logger.info("Table '{}' is now partitioned by month", TABLE);
+    }
+
+    // Hibernate cannot declare GIN indexes. jsonb_path_ops only supports @> (and jsonpath @?/@@),
+    // but is smaller and faster than the default opclass, which is all the payload search needs.
+    private void ensureDataIndex() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_activities_data_path_ops " +
+                "ON activities USING GIN (data jsonb_path_ops)");
+    }
+
+    private void createPartitionIfMissing(YearMonth month) {
+        String name = partitionName(month);
+        if (relationExists(name)) {
+            return;
+        }
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String create = "CREATE TABLE " + name + " PARTITION OF activities FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                boolean strayRows = relationExists("activities_default") && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM activities_default WHERE \"timestamp\" >= ?::date AND \"timestamp\" < ?::date)",
+                        Boolean.class, from.toString(), to.toString()));
+                if (!strayRows) {
+                    jdbcTemplate.execute(create);
+                    return;
+                }
+                // Postgres refuses a partition whose rows sit in the default one, so move them across:
+                // detach the default, create the month, move its rows, re-attach. One transaction,
+                // so inserts wait on the parent's lock for the duration rather than fail.
+                jdbcTemplate.execute("ALTER TABLE activities DETACH PARTITION activities_default");
+                jdbcTemplate.execute(create);
+                int moved = jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM activities_default " +
+                        "WHERE \"timestamp\" >= ?::date AND \"timestamp\" < ?::date", from.toString(), to.toString());
+                jdbcTemplate.update("DELETE FROM activities_default WHERE \"timestamp\" >= ?::date AND \"timestamp\" < ?::date",
+                        from.toString(), to.toString());
+                jdbcTemplate.execute("ALTER TABLE activities ATTACH PARTITION activities_default DEFAULT");
+                logger.info("Created activity partition {} with {} rows moved from the default partition", name, moved);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not create activity partition {}: {}", name, e.getMessage());
+        }
+    }
+
+    private boolean relationExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private void applyRetention(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname::text FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = ?", String.class, TABLE);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(oldestKept)) {
+                expirePartition(partition, month);
+            }
+        }
+    }
+
+    private void expirePartition(String partition, YearMonth month) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if ("compact".equals(retentionMode)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS activity_monthly_summaries (" +
+                        "month date NOT NULL, family_id bigint, user_id bigint NOT NULL, " +
+                        "activity_type varchar(255) NOT NULL, activity_count bigint NOT NULL)");
+                jdbcTemplate.update("INSERT INTO activity_monthly_summaries (month, family_id, user_id, activity_type, activity_count) " +
+                        "SELECT ?::date, family_id, user_id, activity_type, count(*) FROM " + partition +
+                        " GROUP BY family_id, user_id, activity_type", month.atDay(1).toString());
+            }
+            // Detach first so the drop only takes a lock on the partition, not the whole log.
+            jdbcTemplate.execute("ALTER TABLE activities DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        });
+        logger.info("Expired activity partition {} ({})", partition, retentionMode);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("activities_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+}
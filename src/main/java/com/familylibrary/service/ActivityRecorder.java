@@ -0,0 +1,218 @@
+package com.familylibrary.service;
+
+import com.familylibrary.event.BookAddedEvent;
+import com.familylibrary.event.BookLentEvent;
+import com.familylibrary.event.BookReturnedEvent;
+import com.familylibrary.event.ReadingFinishedEvent;
+import com.familylibrary.repository.FamilyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns domain events into rows in {@code activities} off the request path.
+ * <p>
+ * Listeners run after the publishing transaction commits and only enqueue; a single
+ * background writer drains the queue and inserts whatever has accumulated with one
+ * JDBC batch, so a burst of lendings costs one round trip instead of one per event.
+ * Activities are a best-effort log: if the queue is full the event is dropped and logged.
+ */
+@Service
+public class ActivityRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityRecorder.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO activities (user_id, activity_type, book_id, related_user_id, family_id, timestamp, data) " +
+            "VALUES (?, ?, ?, ?, ?, ?, CAST(? AS jsonb))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FamilyRepository familyRepository;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<PendingActivity> queue;
+    private final int batchSize;
+    private final long shutdownTimeoutMillis;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ActivityRecorder(JdbcTemplate jdbcTemplate,
+                            FamilyRepository familyRepository,
+                            ObjectMapper objectMapper,
+                            @Value("${activity.recorder.queue-capacity:10000}") int queueCapacity,
+                            @Value("${activity.recorder.batch-size:200}") int batchSize,
+                            @Value("${activity.recorder.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.familyRepository = familyRepository;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "activity-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Let the writer finish its batch and drain what is queued; interrupting it mid batchUpdate loses the batch.
+        running = false;
+        writer.join(shutdownTimeoutMillis);
+        if (writer.isAlive()) {
+            logger.warn("Activity writer did not finish within {} ms; interrupting with {} activities pending",
+                    shutdownTimeoutMillis, queue.size());
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(1));
+            return;
+        }
+        // Flush anything enqueued after the writer's last drain.
+        List<PendingActivity> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            writeBatch(remaining);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookAdded(BookAddedEvent event) {
+        enqueue(new PendingActivity(event.getUserId(), "add", event.getBookId(), null, event.getFamilyId(),
+                event.getOccurredAt(), data("added_book")));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookLent(BookLentEvent event) {
+        Map<String, Object> data = data("borrowed_book");
+        data.put("lendingId", event.getLendingId());
+        if (event.getDueDate() != null) {
+            data.put("dueDate", event.getDueDate().toString());
+        }
+        if (event.getLendDate() != null) {
+            data.put("lendDate", event.getLendDate().toString());
+        }
+        // Recorded from the borrower's point of view: "<borrower> borrowed <book> from <lender>".
+        enqueue(new PendingActivity(event.getBorrowerId(), "borrow", event.getBookId(), event.getLenderId(),
+                event.getFamilyId(), event.getOccurredAt(), data));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookReturned(BookReturnedEvent event) {
+        Map<String, Object> data = data("returned_book");
+        data.put("lendingId", event.getLendingId());
+        enqueue(new PendingActivity(event.getBorrowerId(), "return", event.getBookId(), event.getLenderId(),
+                event.getFamilyId(), event.getOccurredAt(), data));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReadingFinished(ReadingFinishedEvent event) {
+        Map<String, Object> data = data("finished_reading");
+        if (event.getRating() != null) {
+            data.put("rating", event.getRating());
+        }
+        if (event.getEndDate() != null) {
+            data.put("endDate", event.getEndDate().toString());
+        }
+        enqueue(new PendingActivity(event.getUserId(), "read", event.getBookId(), null, event.getFamilyId(),
+                event.getOccurredAt(), data));
+    }
+
+    private Map<String, Object> data(String action) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("action", action);
+        return data;
+    }
+
+    private void enqueue(PendingActivity activity) {
+        if (!queue.offer(activity)) {
+            logger.warn("Activity queue is full; dropping '{}' activity for user {}", activity.activityType(), activity.userId());
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingActivity> batch = new ArrayList<>(batchSize);
+        // After stop() clears running, keep going until the queue is empty.
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingActivity first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Failed to write {} activities", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingActivity> batch) {
+        // Events without a bookshelf family fall back to the user's first family, looked up once per user per batch.
+        Map<Long, Long> fallbackFamilies = new HashMap<>();
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (PendingActivity activity : batch) {
+            Long familyId = activity.familyId() != null
+                    ? activity.familyId()
+                    : fallbackFamilies.computeIfAbsent(activity.userId(), this::firstFamilyId);
+            rows.add(new Object[] {
+                    activity.userId(),
+                    activity.activityType(),
+                    activity.bookId(),
+                    activity.relatedUserId(),
+                    familyId,
+                    Timestamp.valueOf(activity.occurredAt()),
+                    toJson(activity.data())
+            });
+        }
+        int[] argTypes = { Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.VARCHAR };
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, argTypes);
+        logger.debug("Recorded {} activities", rows.size());
+    }
+
+    private Long firstFamilyId(Long userId) {
+        List<Long> familyIds = familyRepository.findIdsByMemberId(userId);
+        return familyIds.isEmpty() ? null : familyIds.get(0);
+    }
+
+    private String toJson(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing activity data: {}", data, e);
+            return null;
+        }
+    }
+
+    private record PendingActivity(Long userId, String activityType, Long bookId, Long relatedUserId,
+                                   Long familyId, LocalDateTime occurredAt, Map<String, Object> data) {
+    }
+}
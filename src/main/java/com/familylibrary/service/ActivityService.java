@@ -1,30 +1,70 @@
 package com.familylibrary.service;
 
+import com.familylibrary.dto.ActivityDataFilter;
+import com.familylibrary.dto.ActivityDataQueryRequest;
 import com.familylibrary.dto.ActivityDto;
+import com.familylibrary.dto.ActivityPageDto;
 import com.familylibrary.dto.CreateActivityRequest;
 import com.familylibrary.model.Activity;
 import com.familylibrary.model.Book;
+import com.familylibrary.model.Family;
 import com.familylibrary.model.User;
+import com.familylibrary.repository.ActivityDataCriteria;
 import com.familylibrary.repository.ActivityRepository;
 import com.familylibrary.repository.BookRepository;
+import com.familylibrary.repository.FamilyRepository;
 import com.familylibrary.repository.UserRepository;
+import com.familylibrary.repository.projection.BookTitleView;
+import com.familylibrary.repository.projection.UserNameView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ActivityService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Sentinel "cursor" for the first page: newer than anything in the table.
+    private static final LocalDateTime FEED_START_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    // Paths are spliced into jsonpath text, so only plain dotted identifiers are accepted.
+    private static final Pattern DATA_PATH = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*$");
+
+    private static final Comparator<Activity> NEWEST_FIRST = Comparator
+            .comparing(Activity::getTimestamp)
+            .thenComparing(Activity::getId)
+            .reversed();
+
     private final ActivityRepository activityRepository;
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
+    private final FamilyRepository familyRepository;
+    private final CurrentUserContext currentUserContext;
+    private final ObjectMapper objectMapper;
 
     @Transactional
     public ActivityDto createActivity(CreateActivityRequest request) {
@@ -48,6 +88,7 @@ public class ActivityService {
         activity.setActivityType(request.getActivityType());
         activity.setBook(book); // Can be null
         activity.setRelatedUser(relatedUser); // Can be null
+        activity.setFamily(resolveFamily(user, book)); // Can be null
         activity.setData(request.getData()); // Can be null
         // Timestamp is set by @PrePersist in Activity entity
 
@@ -56,22 +97,15 @@ public class ActivityService {
     }
 
     @Transactional(readOnly = true)
-    public List<ActivityDto> getActivitiesForUser(Long userId, String activityType) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
-        
-        List<Activity> activities;
-        if (activityType != null && !activityType.isBlank()) {
-            activities = activityRepository.findByUserAndActivityTypeOrderByTimestampDesc(user, activityType);
-        } else {
-            activities = activityRepository.findByUserOrderByTimestampDesc(user);
+    public List<ActivityDto> getActivitiesForUser(Long userId, String activityType, Integer limit) {
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("User not found with id: " + userId);
         }
-        
-        return activities.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        List<String> types = (activityType != null && !activityType.isBlank()) ? List.of(activityType) : List.of();
+        List<Activity> activities = fetchUserPage(userId, types, FEED_START_TIMESTAMP, Long.MAX_VALUE, PageRequest.of(0, pageSize(limit)));
+        return convertAllToDto(activities);
     }
-    
+
     @Transactional(readOnly = true)
     public ActivityDto getActivityById(Long id) {
         Activity activity = activityRepository.findById(id)
@@ -79,39 +113,270 @@ public class ActivityService {
         return convertToDto(activity);
     }
 
-    public List<ActivityDto> getAllVisibleActivitiesForCurrentUser(String type) {
-        // TODO: Implement logic to get all activities visible to the current user.
-        // This might involve: 
-        // 1. Getting the current authenticated user from Spring Security context.
-        // 2. Fetching activities based on user ID, family ID, or other visibility rules.
-        // 3. Filtering by 'type' if provided.
-        // 4. Converting to ActivityDto.
+    @Transactional(readOnly = true)
+    public List<ActivityDto> getAllVisibleActivitiesForCurrentUser(String type, Integer limit) {
+        List<String> types = (type != null && !type.isBlank()) ? List.of(type) : List.of();
+        return getFamilyFeedForCurrentUser(null, limit, types).getItems();
+    }
+
+    /**
+     * Activities of every family the current user belongs to, newest first, one keyset page at a time.
+     * Users without a family only see their own activities.
+     */
+    @Transactional(readOnly = true)
+    public ActivityPageDto getFamilyFeedForCurrentUser(String cursor, Integer limit, List<String> types) {
+        Long currentUserId = currentUserContext.getUserId();
+        if (currentUserId == null) {
+            throw new IllegalStateException("User is not authenticated or authentication details are not available.");
+        }
+
+        int size = pageSize(limit);
+        FeedCursor position = (cursor != null && !cursor.isBlank())
+                ? decodeCursor(cursor)
+                : new FeedCursor(FEED_START_TIMESTAMP, Long.MAX_VALUE);
+        LocalDateTime beforeTimestamp = position.timestamp();
+        long beforeId = position.id();
+        List<String> typeFilter = types != null ? types.stream().filter(t -> t != null && !t.isBlank()).toList() : List.of();
 
-        System.out.println("DEBUG: ActivityService.getAllVisibleActivitiesForCurrentUser(type: " + type + ") called - placeholder implementation. Returning empty list.");
-        return new ArrayList<>(); // Placeholder
+        // Fetch one extra row to learn whether another page exists.
+        Pageable window = PageRequest.of(0, size + 1);
+        List<Long> familyIds = currentUserContext.getFamilyIds(); // From the token; no user_families query
+        List<Activity> rows;
+        if (familyIds.isEmpty()) {
+            rows = fetchUserPage(currentUserId, typeFilter, beforeTimestamp, beforeId, window);
+        } else if (familyIds.size() == 1) {
+            rows = fetchFamilyPage(familyIds.get(0), typeFilter, beforeTimestamp, beforeId, window);
+        } else {
+            // One bounded index range scan per family, merged here; each family contributes at most size + 1 rows.
+            rows = new ArrayList<>();
+            for (Long familyId : familyIds) {
+                rows.addAll(fetchFamilyPage(familyId, typeFilter, beforeTimestamp, beforeId, window));
+            }
+            rows.sort(NEWEST_FIRST);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Activity last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(last.getTimestamp(), last.getId());
+        }
+        return new ActivityPageDto(convertAllToDto(rows), nextCursor);
     }
-    
+
+    /**
+     * Searches the current user's family activities by their JSON payload.
+     * EQ filters are folded into a single containment document so they are answered by the
+     * jsonb_path_ops GIN index; range/NE/EXISTS filters become jsonpath predicates evaluated
+     * on the rows that remain.
+     */
+    @Transactional(readOnly = true)
+    public ActivityPageDto searchActivitiesByData(ActivityDataQueryRequest request) {
+        Long currentUserId = currentUserContext.getUserId();
+        if (currentUserId == null) {
+            throw new IllegalStateException("User is not authenticated or authentication details are not available.");
+        }
+
+        int size = pageSize(request.getLimit());
+        FeedCursor position = (request.getCursor() != null && !request.getCursor().isBlank())
+                ? decodeCursor(request.getCursor())
+                : new FeedCursor(FEED_START_TIMESTAMP, Long.MAX_VALUE);
+
+        ActivityDataCriteria criteria = new ActivityDataCriteria();
+        List<Long> familyIds = currentUserContext.getFamilyIds();
+        if (familyIds.isEmpty()) {
+            criteria.setUserId(currentUserId);
+        } else {
+            criteria.setFamilyIds(familyIds);
+        }
+        if (request.getTypes() != null) {
+            criteria.setTypes(request.getTypes().stream().filter(t -> t != null && !t.isBlank()).toList());
+        }
+
+        Map<String, Object> contains = new LinkedHashMap<>();
+        if (request.getContains() != null) {
+            contains.putAll(request.getContains());
+        }
+        if (request.getFilters() != null) {
+            for (ActivityDataFilter filter : request.getFilters()) {
+                addFilter(criteria, contains, filter);
+            }
+        }
+        if (!contains.isEmpty()) {
+            criteria.setContainsJson(toJson(contains));
+        }
+        criteria.setBeforeTimestamp(position.timestamp());
+        criteria.setBeforeId(position.id());
+        criteria.setLimit(size + 1); // One extra row to learn whether another page exists
+
+        List<Activity> rows = activityRepository.searchByData(criteria);
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Activity last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(last.getTimestamp(), last.getId());
+        }
+        return new ActivityPageDto(convertAllToDto(rows), nextCursor);
+    }
+
     // We might not need a public delete method for activities, as they are often audit logs.
     // If deletion is required, it can be added here.
 
+    private List<Activity> fetchFamilyPage(Long familyId, List<String> types, LocalDateTime beforeTimestamp, long beforeId, Pageable window) {
+        return types.isEmpty()
+                ? activityRepository.findFamilyFeedPage(familyId, beforeTimestamp, beforeId, window)
+                : activityRepository.findFamilyFeedPageByTypes(familyId, types, beforeTimestamp, beforeId, window);
+    }
+
+    private List<Activity> fetchUserPage(Long userId, List<String> types, LocalDateTime beforeTimestamp, long beforeId, Pageable window) {
+        return types.isEmpty()
+                ? activityRepository.findUserFeedPage(userId, beforeTimestamp, beforeId, window)
+                : activityRepository.findUserFeedPageByTypes(userId, types, beforeTimestamp, beforeId, window);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addFilter(ActivityDataCriteria criteria, Map<String, Object> contains, ActivityDataFilter filter) {
+        String path = filter.getPath();
+        if (path == null || !DATA_PATH.matcher(path).matches()) {
+            throw new IllegalArgumentException("Invalid data path: " + path);
+        }
+        if (filter.getOp() == ActivityDataFilter.Operator.EXISTS) {
+            criteria.getJsonPaths().add("$." + path);
+            criteria.getJsonPathVars().add("{}");
+            return;
+        }
+        Object value = filter.getValue();
+        if (value == null || value instanceof Map || value instanceof List) {
+            throw new IllegalArgumentException("Filter on '" + path + "' needs a number, string or boolean value");
+        }
+        if (filter.getOp() == ActivityDataFilter.Operator.EQ) {
+            // {"a.b": 1} -> {"a": {"b": 1}}, merged into the containment document
+            String[] keys = path.split("\\.");
+            Map<String, Object> node = contains;
+            for (int i = 0; i < keys.length - 1; i++) {
+                Object child = node.computeIfAbsent(keys[i], k -> new LinkedHashMap<String, Object>());
+                if (!(child instanceof Map)) {
+                    throw new IllegalArgumentException("Conflicting filters on data path: " + path);
+                }
+                node = (Map<String, Object>) child;
+            }
+            node.put(keys[keys.length - 1], value);
+            return;
+        }
+        String operator = switch (filter.getOp()) {
+            case NE -> "!=";
+            case GT -> ">";
+            case GTE -> ">=";
+            case LT -> "<";
+            case LTE -> "<=";
+            default -> throw new IllegalArgumentException("Unsupported operator: " + filter.getOp());
+        };
+        // The value travels as a jsonpath variable, never as part of the path text.
+        criteria.getJsonPaths().add("$." + path + " ? (@ " + operator + " $v)");
+        criteria.getJsonPathVars().add(toJson(Map.of("v", value)));
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid data filter value", e);
+        }
+    }
+
+    private Family resolveFamily(User user, Book book) {
+        if (book != null && book.getBookshelf() != null && book.getBookshelf().getFamily() != null) {
+            return book.getBookshelf().getFamily();
+        }
+        List<Long> familyIds = familyRepository.findIdsByMemberId(user.getId());
+        return familyIds.isEmpty() ? null : familyRepository.getReferenceById(familyIds.get(0));
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private String encodeCursor(LocalDateTime timestamp, Long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private FeedCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new FeedCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Converts a page of activities with two batched lookups for user names and book titles,
+     * instead of initializing the lazy user/book/relatedUser proxies row by row.
+     * Proxy ids are read without touching the database.
+     */
+    private List<ActivityDto> convertAllToDto(List<Activity> activities) {
+        if (activities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> bookIds = new HashSet<>();
+        for (Activity activity : activities) {
+            userIds.add(activity.getUser().getId());
+            if (activity.getRelatedUser() != null) {
+                userIds.add(activity.getRelatedUser().getId());
+            }
+            if (activity.getBook() != null) {
+                bookIds.add(activity.getBook().getId());
+            }
+        }
+        Map<Long, String> usernames = userRepository.findNamesByIdIn(userIds).stream()
+                .collect(Collectors.toMap(UserNameView::getId, UserNameView::getUsername));
+        Map<Long, String> bookTitles = bookIds.isEmpty()
+                ? Collections.emptyMap()
+                : bookRepository.findTitlesByIdIn(bookIds).stream()
+                        .collect(Collectors.toMap(BookTitleView::getId, BookTitleView::getTitle));
+
+        return activities.stream()
+                .map(activity -> convertToDto(activity, usernames::get, bookTitles::get))
+                .collect(Collectors.toList());
+    }
+
     private ActivityDto convertToDto(Activity activity) {
+        Function<Long, String> usernameLookup = id -> id.equals(activity.getUser().getId())
+                ? activity.getUser().getUsername()
+                : activity.getRelatedUser().getUsername();
+        return convertToDto(activity, usernameLookup, id -> activity.getBook().getTitle());
+    }
+
+    private ActivityDto convertToDto(Activity activity, Function<Long, String> usernameLookup, Function<Long, String> titleLookup) {
         ActivityDto dto = new ActivityDto();
         dto.setId(activity.getId());
         dto.setUserId(activity.getUser().getId());
-        dto.setUsername(activity.getUser().getUsername()); // Or displayName
+        dto.setUsername(usernameLookup.apply(activity.getUser().getId())); // Or displayName
         dto.setActivityType(activity.getActivityType());
         dto.setTimestamp(activity.getTimestamp());
         dto.setData(activity.getData());
 
         if (activity.getBook() != null) {
             dto.setBookId(activity.getBook().getId());
-            dto.setBookTitle(activity.getBook().getTitle());
+            dto.setBookTitle(titleLookup.apply(activity.getBook().getId()));
         }
 
         if (activity.getRelatedUser() != null) {
             dto.setRelatedUserId(activity.getRelatedUser().getId());
-            dto.setRelatedUsername(activity.getRelatedUser().getUsername()); // Or displayName
+            dto.setRelatedUsername(usernameLookup.apply(activity.getRelatedUser().getId())); // Or displayName
         }
         return dto;
     }
-} 
\ No newline at end of file
+
+    private record FeedCursor(LocalDateTime timestamp, long id) {
+    }
+}
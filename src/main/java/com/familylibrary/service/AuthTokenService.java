@@ -0,0 +1,99 @@
+package com.familylibrary.service;
+
+import com.familylibrary.config.JwtUserPrincipal;
+import com.familylibrary.config.JwtUtil;
+import com.familylibrary.config.JwtVerifier;
+import com.familylibrary.dto.AuthTokensDto;
+import com.familylibrary.repository.FamilyRepository;
+import com.familylibrary.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Issues access/refresh token pairs, rotates refresh tokens and ends sessions.
+ * <p>
+ * Every login starts a session id carried by all of its tokens. Refreshing revokes the presented
+ * refresh token's id; presenting an already-rotated refresh token again means it leaked, so the
+ * whole session is revoked. Logout revokes the session id, which the JWT filter checks in memory
+ * on every request.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuthTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthTokenService.class);
+
+    private final JwtUtil jwtUtil;
+    private final JwtVerifier jwtVerifier;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserRepository userRepository;
+    private final FamilyRepository familyRepository;
+
+    public AuthTokensDto issueTokens(Long userId, String username) {
+        return issueTokens(userId, username, UUID.randomUUID().toString());
+    }
+
+    public AuthTokensDto refresh(String refreshToken) {
+        Claims claims = verifyRefreshToken(refreshToken);
+        String sessionId = claims.get(JwtUtil.CLAIM_SESSION_ID, String.class);
+        if (tokenRevocationService.isRevoked(sessionId)) {
+            throw new BadCredentialsException("Session has been logged out");
+        }
+        if (!tokenRevocationService.revoke(claims.getId(), claims.getExpiration().getTime())) {
+            logger.warn("Refresh token reuse detected for user {}; revoking session {}", claims.getSubject(), sessionId);
+            revokeSession(sessionId);
+            throw new BadCredentialsException("Refresh token has already been used");
+        }
+        // Re-read id and families so membership changes reach the new access token.
+        Long userId = userRepository.findIdByUsername(claims.getSubject())
+                .orElseThrow(() -> new BadCredentialsException("User no longer exists"));
+        return issueTokens(userId, claims.getSubject(), sessionId);
+    }
+
+    public void logout(JwtUserPrincipal principal, String refreshToken) {
+        if (principal != null) {
+            revokeSession(principal.getSessionId());
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            try {
+                revokeSession(verifyRefreshToken(refreshToken).get(JwtUtil.CLAIM_SESSION_ID, String.class));
+            } catch (BadCredentialsException e) {
+                logger.debug("Ignoring invalid refresh token on logout: {}", e.getMessage());
+            }
+        }
+    }
+
+    private AuthTokensDto issueTokens(Long userId, String username, String sessionId) {
+        String accessToken = jwtUtil.generateToken(userId, username, familyRepository.findIdsByMemberId(userId), sessionId);
+        String refreshToken = jwtUtil.generateRefreshToken(userId, username, sessionId, UUID.randomUUID().toString());
+        return new AuthTokensDto(accessToken, refreshToken, username, jwtUtil.getExpirationTime() / 1000);
+    }
+
+    private void revokeSession(String sessionId) {
+        if (sessionId != null) {
+            // Nothing from this session outlives its longest-lived token.
+            tokenRevocationService.revoke(sessionId, System.currentTimeMillis() + jwtUtil.getRefreshExpirationTime());
+        }
+    }
+
+    private Claims verifyRefreshToken(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtVerifier.verify(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid refresh token", e);
+        }
+        if (!JwtUtil.TOKEN_TYPE_REFRESH.equals(claims.get(JwtUtil.CLAIM_TOKEN_TYPE, String.class))
+                || claims.getId() == null || claims.get(JwtUtil.CLAIM_SESSION_ID, String.class) == null) {
+            throw new BadCredentialsException("Not a refresh token");
+        }
+        return claims;
+    }
+}
@@ -1,6 +1,8 @@
 package com.familylibrary.service;
 
 import com.familylibrary.dto.BookLendingDto;
+import com.familylibrary.event.BookLentEvent;
+import com.familylibrary.event.BookReturnedEvent;
 import com.familylibrary.model.Book;
 import com.familylibrary.model.BookLending;
 import com.familylibrary.model.User;
@@ -11,6 +13,8 @@ import com.familylibrary.repository.BookRepository;
 import com.familylibrary.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -30,6 +34,7 @@ public class BookLendingService {
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public List<BookLendingDto> getBookLendings(String lenderIdStr, String borrowerIdStr, Long bookId) {
@@ -114,10 +119,13 @@ public class BookLendingService {
         book.setStatus(BookStatus.BORROWED);
         bookRepository.save(book);
 
+        eventPublisher.publishEvent(new BookLentEvent(savedLending.getId(), book.getId(), lender.getId(), borrower.getId(),
+                familyIdOf(book), savedLending.getDueDate(), savedLending.getLendDate(), LocalDateTime.now()));
         return convertToDtoWithDetails(savedLending);
     }
 
     @Transactional
+    @PreAuthorize("hasPermission(#lendingId, 'BookLending', 'write')") // Lender or borrower
     public BookLendingDto returnBook(Long lendingId) {
         BookLending lending = bookLendingRepository.findById(lendingId)
                 .orElseThrow(() -> new EntityNotFoundException("BookLending record not found with id: " + lendingId));
@@ -134,9 +142,17 @@ public class BookLendingService {
         book.setStatus(BookStatus.AVAILABLE);
         bookRepository.save(book);
 
+        eventPublisher.publishEvent(new BookReturnedEvent(updatedLending.getId(), book.getId(), lending.getLender().getId(),
+                lending.getBorrower().getId(), familyIdOf(book), updatedLending.getReturnDate()));
         return convertToDtoWithDetails(updatedLending);
     }
 
+    private Long familyIdOf(Book book) {
+        return book.getBookshelf() != null && book.getBookshelf().getFamily() != null
+                ? book.getBookshelf().getFamily().getId()
+                : null;
+    }
+
     private Long resolveUserId(String userIdStr, Long currentActualUserId) {
         if (userIdStr == null || userIdStr.trim().isEmpty()) return null;
         if ("current".equalsIgnoreCase(userIdStr.trim())) {
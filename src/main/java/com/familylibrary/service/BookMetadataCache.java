@@ -0,0 +1,190 @@
+package com.familylibrary.service;
+
+import com.familylibrary.model.BookMetadata;
+import com.familylibrary.repository.BookMetadataRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache in front of the external book catalog.
+ * <p>
+ * Tier one is a bounded in-memory LRU; tier two is the {@code book_metadata} table keyed by
+ * normalized ISBN-13, shared across restarts and instances. Hits and misses are both cached
+ * (misses with a shorter TTL), so rescans and popular titles need no outbound call. Concurrent
+ * lookups of the same key are coalesced: one caller loads, the others wait for its result.
+ * Loader failures are not cached. Title searches are cached in memory only; when they yield an
+ * ISBN the result is stored under that ISBN as well.
+ */
+@Service
+public class BookMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookMetadataCache.class);
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final BookMetadataRepository bookMetadataRepository;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+
+    private final Map<String, CachedLookup> memory;
+    private final Map<String, CompletableFuture<CachedLookup>> inFlight = new ConcurrentHashMap<>();
+
+    public BookMetadataCache(BookMetadataRepository bookMetadataRepository,
+                             ObjectMapper objectMapper,
+                             @Value("${books.metadata-cache.ttl-days:30}") long ttlDays,
+                             @Value("${books.metadata-cache.negative-ttl-hours:24}") long negativeTtlHours,
+                             @Value("${books.metadata-cache.max-entries:5000}") int maxEntries) {
+        this.bookMetadataRepository = bookMetadataRepository;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.DAYS.toMillis(ttlDays);
+        this.negativeTtlMillis = TimeUnit.HOURS.toMillis(negativeTtlHours);
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedLookup> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * @param loader fetches metadata for the normalized ISBN-13; returns null if the catalog has none
+     * @return the metadata, or null for a (cached) miss
+     */
+    public Map<String, Object> getByIsbn(String isbn, Function<String, Map<String, Object>> loader) {
+        String isbn13 = IsbnUtils.toIsbn13(isbn);
+        if (isbn13 == null) {
+            return loader.apply(isbn); // Not a valid ISBN; nothing sensible to key on
+        }
+        return lookup(isbn13, () -> {
+            CachedLookup stored = fromDatabase(isbn13);
+            if (stored != null) {
+                return stored;
+            }
+            CachedLookup loaded = toLookup(loader.apply(isbn13));
+            store(isbn13, loaded);
+            return loaded;
+        });
+    }
+
+    public Map<String, Object> getByTitle(String title, Function<String, Map<String, Object>> loader) {
+        String key = "title:" + title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return lookup(key, () -> {
+            CachedLookup loaded = toLookup(loader.apply(title));
+            String isbn13 = loaded.metadata() != null ? IsbnUtils.toIsbn13((String) loaded.metadata().get("isbn")) : null;
+            if (isbn13 != null) {
+                memory.put(isbn13, loaded);
+                store(isbn13, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    private Map<String, Object> lookup(String key, Supplier<CachedLookup> resolver) {
+        CachedLookup cached = memory.get(key);
+        if (cached != null && !cached.isExpired()) {
+            return cached.metadata();
+        }
+        CompletableFuture<CachedLookup> mine = new CompletableFuture<>();
+        CompletableFuture<CachedLookup> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join().metadata();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            // Another loader may have finished between the miss above and claiming the slot.
+            CachedLookup resolved = memory.get(key);
+            if (resolved == null || resolved.isExpired()) {
+                resolved = resolver.get();
+            }
+            memory.put(key, resolved);
+            mine.complete(resolved);
+            return resolved.metadata();
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private CachedLookup toLookup(Map<String, Object> metadata) {
+        long ttl = metadata != null ? ttlMillis : negativeTtlMillis;
+        return new CachedLookup(metadata, System.currentTimeMillis() + ttl);
+    }
+
+    private CachedLookup fromDatabase(String isbn13) {
+        try {
+            return bookMetadataRepository.findById(isbn13)
+                    .filter(row -> row.getExpiresAt().isAfter(LocalDateTime.now()))
+                    .map(row -> new CachedLookup(row.isFound() ? readPayload(row.getPayload()) : null,
+                            row.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()))
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            // The table is only an optimization; fall through to the catalog.
+            logger.warn("Could not read cached metadata for {}: {}", isbn13, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String isbn13, CachedLookup lookup) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            BookMetadata row = new BookMetadata();
+            row.setIsbn13(isbn13);
+            row.setFound(lookup.metadata() != null);
+            row.setPayload(lookup.metadata() != null ? objectMapper.writeValueAsString(lookup.metadata()) : null);
+            row.setFetchedAt(now);
+            row.setExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(lookup.expiresAtMillis()), ZoneId.systemDefault()));
+            bookMetadataRepository.save(row);
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Could not store metadata for {}: {}", isbn13, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> readPayload(String payload) {
+        try {
+            return payload != null ? objectMapper.readValue(payload, PAYLOAD_TYPE) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt book_metadata payload", e);
+        }
+    }
+
+    @Scheduled(cron = "${books.metadata-cache.purge-cron:0 45 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int removed = bookMetadataRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            logger.info("Purged {} expired book metadata entries", removed);
+        }
+    }
+
+    private record CachedLookup(Map<String, Object> metadata, long expiresAtMillis) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAtMillis;
+        }
+    }
+}
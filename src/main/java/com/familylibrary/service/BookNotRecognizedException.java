@@ -0,0 +1,14 @@
+package com.familylibrary.service;
+
+import java.io.IOException;
+
+/**
+ * The scan ran to completion but no book could be identified from the image. Unlike a failed
+ * Vision or catalog call this is a definite answer for that image, so it may be remembered.
+ */
+public class BookNotRecognizedException extends IOException {
+
+    public BookNotRecognizedException(String message) {
+        super(message);
+    }
+}
@@ -1,159 +1,244 @@
 package com.familylibrary.service;
 
 import com.google.cloud.vision.v1.*;
+import com.familylibrary.service.ScanImagePreprocessor.ImageSource;
 import com.google.protobuf.ByteString;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 @Service
 public class BookScanService {
 
-    @Value("${google.books.api.key}")
-    private String googleBooksApiKey;
-
-    private final RestTemplate restTemplate;
-
-    public BookScanService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    @Value("${google.cloud.vision.max-images-per-scan:48}")
+    private int maxImagesPerScan;
+
+    @Value("${scan.max-isbn-candidates:3}")
+    private int maxIsbnCandidates;
+
+    private final MetadataProviderChain metadataProviderChain;
+    private final ImageAnnotator imageAnnotator;
+    private final Ean13BarcodeDecoder barcodeDecoder;
+    private final BookMetadataCache bookMetadataCache;
+    private final ScanImagePreprocessor imagePreprocessor;
+    private final IsbnExtractor isbnExtractor;
+    private final ScanResultCache scanResultCache;
+
+    public BookScanService(MetadataProviderChain metadataProviderChain, ImageAnnotator imageAnnotator, Ean13BarcodeDecoder barcodeDecoder,
+                           BookMetadataCache bookMetadataCache, ScanImagePreprocessor imagePreprocessor, IsbnExtractor isbnExtractor,
+                           ScanResultCache scanResultCache) {
+        this.metadataProviderChain = metadataProviderChain;
+        this.imageAnnotator = imageAnnotator;
+        this.barcodeDecoder = barcodeDecoder;
+        this.bookMetadataCache = bookMetadataCache;
+        this.imagePreprocessor = imagePreprocessor;
+        this.isbnExtractor = isbnExtractor;
+        this.scanResultCache = scanResultCache;
     }
 
     public Map<String, Object> scanBook(MultipartFile image) throws IOException {
-        // 1. 使用 Google Cloud Vision API 进行文本识别
-        String text = detectText(image);
-
-        // 2. 从识别的文本中提取 ISBN
-        String isbn = extractIsbn(text);
+        return scanBook(image::getInputStream);
+    }
 
-        // 3. 使用 ISBN 查询 Google Books API
-        if (isbn != null) {
-            Map<String, Object> result = fetchBookInfo(isbn);
-            if (result != null) {
-                return result;
+    /**
+     * @param image must be readable more than once
+     */
+    public Map<String, Object> scanBook(ImageSource image) throws IOException {
+        // 0. 只解码一次（已旋正、缩小、灰度），先在本地识别 ISBN 条形码，成功则无需调用 OCR
+        BufferedImage prepared = imagePreprocessor.prepare(image);
+        Long fingerprint = scanResultCache.fingerprint(prepared);
+        String barcodeIsbn = decodeIsbn(image, prepared);
+        if (barcodeIsbn != null) {
+            Map<String, Object> byBarcode = bookMetadataCache.getByIsbn(barcodeIsbn, metadataProviderChain::findByIsbn);
+            if (byBarcode != null) {
+                scanResultCache.put(fingerprint, byBarcode);
+                return byBarcode;
             }
         }
+        // 条形码是精确的；相似封面（重拍、不同家庭成员拍同一版本）只用来跳过 OCR 和书目查询
+        Map<String, Object> cached = cachedResult(fingerprint, barcodeIsbn);
+        if (cached != null) {
+            return cached;
+        }
 
-        // 4. 如果没有找到 ISBN，尝试使用书名搜索
-        String title = extractTitle(text);
-        if (title != null) {
-            Map<String, Object> result = searchBookByTitle(title);
-            if (result != null) {
-                return result;
+        // 1. 使用 Google Cloud Vision API 进行文本识别
+        AnnotateImageResponse response = imageAnnotator.annotate(List.of(toRequest(ocrBytes(image, prepared)))).get(0);
+        Map<String, Object> result = identifyBook(detectedText(response));
+        if (result == null) {
+            throw new BookNotRecognizedException("无法识别图书信息");
+        }
+        scanResultCache.put(fingerprint, result);
+        return result;
+    }
+
+    /**
+     * Scans several images. Barcodes are read locally first, then the {@link ScanResultCache}; the rest
+     * go to Vision in batches of up to {@link ImageAnnotator#getMaxBatchSize()} so a stack of books
+     * costs one round trip per batch.
+     * One entry per image, in upload order, with "status" found / not_found / error.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> scanBooks(List<MultipartFile> images) throws IOException {
+        if (images == null || images.isEmpty()) {
+            throw new IllegalArgumentException("No images uploaded");
+        }
+        if (images.size() > maxImagesPerScan) {
+            throw new IllegalArgumentException("At most " + maxImagesPerScan + " images per scan");
+        }
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(images.size(), null));
+        List<Integer> needOcr = new ArrayList<>();
+        // Only the compact OCR encodings are kept across the loop, never the decoded pixels.
+        Map<Integer, byte[]> ocrContents = new HashMap<>();
+        Map<Integer, Long> fingerprints = new HashMap<>();
+        for (int i = 0; i < images.size(); i++) {
+            MultipartFile image = images.get(i);
+            BufferedImage prepared = imagePreprocessor.prepare(image::getInputStream);
+            Long fingerprint = scanResultCache.fingerprint(prepared);
+            String barcodeIsbn = decodeIsbn(image::getInputStream, prepared);
+            if (barcodeIsbn != null) {
+                try {
+                    Map<String, Object> book = bookMetadataCache.getByIsbn(barcodeIsbn, metadataProviderChain::findByIsbn);
+                    if (book != null) {
+                        scanResultCache.put(fingerprint, book);
+                        results.set(i, scanResult(i, image, "found", book, null));
+                        continue;
+                    }
+                } catch (RestClientException e) {
+                    results.set(i, scanResult(i, image, "error", null, e.getMessage()));
+                    continue;
+                }
+            }
+            Map<String, Object> cached = cachedResult(fingerprint, barcodeIsbn);
+            if (cached != null) {
+                results.set(i, scanResult(i, image, "found", cached, null));
+                continue;
             }
+            ocrContents.put(i, ocrBytes(image::getInputStream, prepared));
+            fingerprints.put(i, fingerprint);
+            needOcr.add(i);
         }
 
-        throw new IOException("无法识别图书信息");
+        // Only images without a readable barcode go to Vision.
+        int batchSize = imageAnnotator.getMaxBatchSize();
+        for (int from = 0; from < needOcr.size(); from += batchSize) {
+            List<Integer> batch = needOcr.subList(from, Math.min(from + batchSize, needOcr.size()));
+            List<AnnotateImageRequest> requests = new ArrayList<>(batch.size());
+            for (Integer index : batch) {
+                requests.add(toRequest(ocrContents.get(index)));
+            }
+            List<AnnotateImageResponse> responses = imageAnnotator.annotate(requests);
+            for (int i = 0; i < batch.size(); i++) {
+                int index = batch.get(i);
+                Map<String, Object> result = ocrResult(index, images.get(index), responses.get(i));
+                if ("found".equals(result.get("status"))) {
+                    scanResultCache.put(fingerprints.get(index), (Map<String, Object>) result.get("book"));
+                }
+                results.set(index, result);
+            }
+        }
+        return results;
     }
 
-    private String detectText(MultipartFile image) throws IOException {
-        try (ImageAnnotatorClient client = ImageAnnotatorClient.create()) {
-            ByteString imgBytes = ByteString.copyFrom(image.getBytes());
-            Image img = Image.newBuilder().setContent(imgBytes).build();
-            Feature feat = Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build();
-            AnnotateImageRequest request = AnnotateImageRequest.newBuilder()
-                    .addFeatures(feat)
-                    .setImage(img)
-                    .build();
-            BatchAnnotateImagesResponse response = client.batchAnnotateImages(Collections.singletonList(request));
-            AnnotateImageResponse result = response.getResponses(0);
-
-            if (result.hasError()) {
-                throw new IOException("Error detecting text: " + result.getError().getMessage());
-            }
+    private Map<String, Object> ocrResult(int index, MultipartFile image, AnnotateImageResponse response) {
+        try {
+            Map<String, Object> book = identifyBook(detectedText(response));
+            return scanResult(index, image, book != null ? "found" : "not_found", book, null);
+        } catch (IOException | RestClientException e) {
+            // One unreadable image or failed lookup must not sink the rest of the batch.
+            return scanResult(index, image, "error", null, e.getMessage());
+        }
+    }
 
-            return result.getFullTextAnnotation().getText();
+    private Map<String, Object> scanResult(int index, MultipartFile image, String status, Map<String, Object> book, String error) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("filename", image.getOriginalFilename());
+        result.put("status", status);
+        if (error != null) {
+            result.put("error", error);
+        } else {
+            result.put("book", book);
         }
+        return result;
+    }
+
+    // ISBNs are EAN-13 codes in the 978/979 "Bookland" prefixes; other products are ignored.
+    private String decodeIsbn(ImageSource image, BufferedImage prepared) throws IOException {
+        Optional<String> barcode = prepared != null ? barcodeDecoder.decode(prepared) : barcodeDecoder.decode(readAll(image));
+        return barcode
+                .filter(code -> code.startsWith("978") || code.startsWith("979"))
+                .orElse(null);
     }
 
-    private String extractIsbn(String text) {
-        // 使用正则表达式匹配 ISBN 格式
-        // ISBN-10: 0-7475-3269-9
-        // ISBN-13: 978-0-7475-3269-9
-        String isbnPattern = "\\b(?:ISBN[- ]?)?(?:(?:97[89])[- ]?)?[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9X]\\b";
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(isbnPattern);
-        java.util.regex.Matcher matcher = pattern.matcher(text);
-        
-        if (matcher.find()) {
-            return matcher.group().replaceAll("[^0-9X]", "");
+    // A look-alike cover is only trusted if it doesn't contradict a barcode read from this photo.
+    private Map<String, Object> cachedResult(Long fingerprint, String barcodeIsbn) {
+        Map<String, Object> cached = scanResultCache.find(fingerprint);
+        if (cached != null && barcodeIsbn != null && !barcodeIsbn.equals(cached.get("isbn"))) {
+            return null;
         }
-        return null;
+        return cached;
     }
 
-    private String extractTitle(String text) {
-        // 简单的启发式方法：假设第一行是标题
-        String[] lines = text.split("\\n");
-        if (lines.length > 0) {
-            return lines[0].trim();
+    private Map<String, Object> identifyBook(String text) {
+        // 2. 从识别的文本中提取所有校验通过的 ISBN，按可信度排序
+        List<String> isbns = isbnExtractor.extract(text);
+
+        // 3. 依次查询书目信息，直到命中
+        for (String isbn : isbns.subList(0, Math.min(isbns.size(), maxIsbnCandidates))) {
+            Map<String, Object> result = bookMetadataCache.getByIsbn(isbn, metadataProviderChain::findByIsbn);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        // 4. 如果没有找到 ISBN，尝试使用书名搜索
+        String title = extractTitle(text);
+        if (title != null && !title.isEmpty()) {
+            return bookMetadataCache.getByTitle(title, metadataProviderChain::searchByTitle);
         }
         return null;
     }
 
-    private Map<String, Object> fetchBookInfo(String isbn) {
-        String url = String.format("https://www.googleapis.com/books/v1/volumes?q=isbn:%s&key=%s", 
-            isbn, googleBooksApiKey);
-        
-        Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-        
-        if (response != null && response.containsKey("items") && ((List<?>) response.get("items")).size() > 0) {
-            Map<String, Object> bookInfo = (Map<String, Object>) ((List<?>) response.get("items")).get(0);
-            Map<String, Object> volumeInfo = (Map<String, Object>) bookInfo.get("volumeInfo");
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("title", volumeInfo.get("title"));
-            result.put("authors", volumeInfo.get("authors"));
-            result.put("publisher", volumeInfo.get("publisher"));
-            result.put("publishedDate", volumeInfo.get("publishedDate"));
-            result.put("description", volumeInfo.get("description"));
-            result.put("isbn", isbn);
-            result.put("imageUrl", volumeInfo.get("imageLinks") != null ? 
-                ((Map<String, Object>) volumeInfo.get("imageLinks")).get("thumbnail") : null);
-            
-            return result;
+    // Falls back to the original upload when the format could not be decoded locally.
+    private byte[] ocrBytes(ImageSource image, BufferedImage prepared) throws IOException {
+        return prepared != null ? imagePreprocessor.encodeForOcr(prepared) : readAll(image);
+    }
+
+    private static byte[] readAll(ImageSource image) throws IOException {
+        try (InputStream in = image.openStream()) {
+            return in.readAllBytes();
         }
-        
-        return null;
     }
 
-    private Map<String, Object> searchBookByTitle(String title) {
-        String url = String.format("https://www.googleapis.com/books/v1/volumes?q=intitle:%s&key=%s", 
-            title, googleBooksApiKey);
-        
-        Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-        
-        if (response != null && response.containsKey("items") && ((List<?>) response.get("items")).size() > 0) {
-            Map<String, Object> bookInfo = (Map<String, Object>) ((List<?>) response.get("items")).get(0);
-            Map<String, Object> volumeInfo = (Map<String, Object>) bookInfo.get("volumeInfo");
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("title", volumeInfo.get("title"));
-            result.put("authors", volumeInfo.get("authors"));
-            result.put("publisher", volumeInfo.get("publisher"));
-            result.put("publishedDate", volumeInfo.get("publishedDate"));
-            result.put("description", volumeInfo.get("description"));
-            result.put("isbn", extractIsbnFromIndustryIdentifiers(volumeInfo));
-            result.put("imageUrl", volumeInfo.get("imageLinks") != null ? 
-                ((Map<String, Object>) volumeInfo.get("imageLinks")).get("thumbnail") : null);
-            
-            return result;
+    private AnnotateImageRequest toRequest(byte[] image) {
+        ByteString imgBytes = ByteString.copyFrom(image);
+        Image img = Image.newBuilder().setContent(imgBytes).build();
+        Feature feat = Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build();
+        return AnnotateImageRequest.newBuilder()
+                .addFeatures(feat)
+                .setImage(img)
+                .build();
+    }
+
+    private String detectedText(AnnotateImageResponse result) throws IOException {
+        if (result.hasError()) {
+            throw new IOException("Error detecting text: " + result.getError().getMessage());
         }
-        
-        return null;
+        return result.getFullTextAnnotation().getText();
     }
 
-    private String extractIsbnFromIndustryIdentifiers(Map<String, Object> volumeInfo) {
-        if (volumeInfo.containsKey("industryIdentifiers")) {
-            List<Map<String, Object>> identifiers = (List<Map<String, Object>>) volumeInfo.get("industryIdentifiers");
-            for (Map<String, Object> identifier : identifiers) {
-                String type = (String) identifier.get("type");
-                if ("ISBN_13".equals(type)) {
-                    return (String) identifier.get("identifier");
-                }
-            }
+    private String extractTitle(String text) {
+        // 简单的启发式方法：假设第一行是标题
+        String[] lines = text.split("\\n");
+        if (lines.length > 0) {
+            return lines[0].trim();
         }
         return null;
     }
-} 
\ No newline at end of file
+}
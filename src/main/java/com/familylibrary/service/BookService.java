@@ -4,6 +4,7 @@ import com.familylibrary.dto.BookDto;
 import com.familylibrary.dto.CreateBookRequest;
 import com.familylibrary.dto.ShelfPositionDto;
 import com.familylibrary.dto.UserDto;
+import com.familylibrary.event.BookAddedEvent;
 import com.familylibrary.model.*;
 import com.familylibrary.repository.BookLendingRepository;
 import com.familylibrary.repository.BookRepository;
@@ -11,15 +12,22 @@ import com.familylibrary.repository.BookshelfRepository;
 import com.familylibrary.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +38,9 @@ public class BookService {
     private final UserRepository userRepository;
     private final BookshelfRepository bookshelfRepository;
     private final BookLendingRepository bookLendingRepository;
+    private final CurrentUserContext currentUserContext;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PermissionEvaluator permissionEvaluator;
 
     @Transactional(readOnly = true)
     public List<BookDto> getAllBooks(Long bookshelfId, String query, Integer limit, String sort) {
@@ -43,6 +54,7 @@ public class BookService {
     }
 
     @Transactional(readOnly = true)
+    @PreAuthorize("hasPermission(#id, 'Book', 'read')")
     public BookDto getBookById(Long id) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + id));
@@ -81,10 +93,59 @@ public class BookService {
         book.setAddedBy(currentUser);
 
         Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookAddedEvent(savedBook.getId(), currentUser.getId(),
+                bookshelf.getFamily() != null ? bookshelf.getFamily().getId() : null, LocalDateTime.now()));
         return convertToBookDetailDto(savedBook);
     }
 
+    // All or nothing, so a shelf scan can be re-submitted after fixing one bad entry. The whole batch is
+    // checked before anything is written; the exception names the first bad entry (1-based). Every
+    // target bookshelf must be writable by the caller (403 otherwise), as for any other book change.
+    @Transactional
+    public List<BookDto> createBooks(List<CreateBookRequest> requests) {
+        Set<String> isbns = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateBookRequest request = requests.get(i);
+            if (request.getIsbn() == null || request.getIsbn().trim().isEmpty()) {
+                throw new IllegalArgumentException(describeEntry(i, request) + ": ISBN cannot be blank.");
+            }
+            if (!isbns.add(request.getIsbn())) {
+                throw new IllegalArgumentException(describeEntry(i, request) + ": ISBN " + request.getIsbn() + " appears more than once.");
+            }
+        }
+        Set<String> existing = new HashSet<>(bookRepository.findExistingIsbns(isbns));
+        Set<Long> bookshelfIds = requests.stream().map(CreateBookRequest::getBookshelfId).collect(Collectors.toSet());
+        Set<Long> knownBookshelfIds = bookshelfRepository.findAllById(bookshelfIds).stream()
+                .map(Bookshelf::getId)
+                .collect(Collectors.toSet());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateBookRequest request = requests.get(i);
+            if (existing.contains(request.getIsbn())) {
+                throw new IllegalArgumentException(describeEntry(i, request) + ": Book with ISBN " + request.getIsbn() + " already exists.");
+            }
+            if (!knownBookshelfIds.contains(request.getBookshelfId())) {
+                throw new IllegalArgumentException(describeEntry(i, request) + ": Bookshelf not found with id: " + request.getBookshelfId());
+            }
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        for (Long bookshelfId : bookshelfIds) {
+            if (!permissionEvaluator.hasPermission(authentication, bookshelfId, "Bookshelf", "write")) {
+                throw new AccessDeniedException("No write access to bookshelf " + bookshelfId);
+            }
+        }
+        return requests.stream().map(this::createBook).collect(Collectors.toList());
+    }
+
+    private static String describeEntry(int index, CreateBookRequest request) {
+        return "Book " + (index + 1) + " ('" + request.getTitle() + "')";
+    }
+
     private User getCurrentUser() {
+        // Only used as the addedBy association, so a reference (no SELECT) is enough.
+        Long currentUserId = currentUserContext.getUserId();
+        if (currentUserId != null) {
+            return userRepository.getReferenceById(currentUserId);
+        }
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() == null) {
             throw new IllegalStateException("User is not authenticated or authentication details are not available.");
@@ -3,6 +3,7 @@ package com.familylibrary.service;
 import com.familylibrary.dto.BookshelfDto;
 import com.familylibrary.dto.CreateBookshelfRequest;
 import com.familylibrary.dto.UpdateBookshelfRequest;
+import com.familylibrary.event.BookshelfChangedEvent;
 import com.familylibrary.model.Book;
 import com.familylibrary.model.Bookshelf;
 import com.familylibrary.model.Family;
@@ -17,6 +18,8 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,6 +39,7 @@ public class BookshelfService {
     private final UserRepository userRepository;
     private final FamilyRepository familyRepository;
     private final ObjectMapper objectMapper; // For JSON conversion
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public BookshelfDto createBookshelf(CreateBookshelfRequest request) {
@@ -88,6 +92,7 @@ public class BookshelfService {
     }
 
     @Transactional(readOnly = true)
+    @PreAuthorize("hasPermission(#id, 'Bookshelf', 'read')")
     public BookshelfDto getBookshelfById(Long id) {
         Bookshelf bookshelf = bookshelfRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Bookshelf not found with id: " + id));
@@ -114,10 +119,10 @@ public class BookshelfService {
     }
 
     @Transactional
+    @PreAuthorize("hasPermission(#id, 'Bookshelf', 'write')") // Owner, or family members for ownerless shelves
     public BookshelfDto updateBookshelf(Long id, UpdateBookshelfRequest request) {
         Bookshelf bookshelf = bookshelfRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Bookshelf not found with id: " + id));
-        // TODO: Authorization check - only owner or family admin should update
 
         if (request.getName() != null && !request.getName().isBlank()) {
             bookshelf.setName(request.getName());
@@ -139,19 +144,21 @@ public class BookshelfService {
         }
 
         Bookshelf updatedBookshelf = bookshelfRepository.save(bookshelf);
+        eventPublisher.publishEvent(new BookshelfChangedEvent(id)); // Privacy may have changed
         return convertToDto(updatedBookshelf);
     }
 
     @Transactional
+    @PreAuthorize("hasPermission(#id, 'Bookshelf', 'write')")
     public void deleteBookshelf(Long id) {
         Bookshelf bookshelf = bookshelfRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Bookshelf not found with id: " + id));
-        // TODO: Authorization check
 
         if (!bookshelf.getBooks().isEmpty()) {
             throw new IllegalStateException("Cannot delete bookshelf: " + bookshelf.getName() + " (ID: " + id + ") as it still contains books. Please remove or reassign books first.");
         }
         bookshelfRepository.delete(bookshelf); // Use delete(entity) for potential cascading if set up, or deleteById(id)
+        eventPublisher.publishEvent(new BookshelfChangedEvent(id));
         logger.info("Successfully deleted bookshelf ID: {}", id);
     }
 
@@ -0,0 +1,156 @@
+package com.familylibrary.service;
+
+import com.familylibrary.config.JwtUserPrincipal;
+import com.familylibrary.event.FamilyMembershipChangedEvent;
+import com.familylibrary.model.User;
+import com.familylibrary.repository.FamilyRepository;
+import com.familylibrary.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who is calling, resolved without a query whenever possible.
+ * <p>
+ * Id, username and family ids come straight from the {@link JwtUserPrincipal} the JWT filter put in
+ * the security context. When a service really needs the {@link User} entity, it is loaded at most once
+ * per request (kept as a request attribute) and shared across requests through a small cache with a
+ * short TTL ({@code security.user-cache.ttl-ms}). The returned entity is a detached snapshot: read
+ * its columns or use it as an association target, but don't navigate its lazy collections.
+ * <p>
+ * The token's family ids are a snapshot from when it was issued. {@link #getFamilyIds()} trusts
+ * them unless the user's membership changed after that, in which case it reads the current ones.
+ */
+@Component
+public class CurrentUserContext {
+
+    private static final String REQUEST_ATTRIBUTE = CurrentUserContext.class.getName() + ".user";
+
+    private final UserRepository userRepository;
+    private final FamilyRepository familyRepository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long accessTokenLifetimeMillis;
+    private final Map<Long, CachedUser> users = new ConcurrentHashMap<>();
+    private final Map<Long, Long> membershipChangedAt = new ConcurrentHashMap<>();
+
+    public CurrentUserContext(UserRepository userRepository, FamilyRepository familyRepository,
+                              @Value("${security.user-cache.ttl-ms:30000}") long ttlMillis,
+                              @Value("${security.user-cache.max-entries:1000}") int maxEntries,
+                              @Value("${jwt.expiration}") long accessTokenLifetimeMillis) {
+        this.userRepository = userRepository;
+        this.familyRepository = familyRepository;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.accessTokenLifetimeMillis = accessTokenLifetimeMillis;
+    }
+
+    /**
+     * The token-backed principal, or null for anonymous requests and background threads.
+     */
+    public JwtUserPrincipal getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtUserPrincipal principal) {
+            return principal;
+        }
+        return null;
+    }
+
+    public Long getUserId() {
+        JwtUserPrincipal principal = getPrincipal();
+        return principal != null ? principal.getUserId() : null;
+    }
+
+    /**
+     * The current user's family ids in ascending order, or null when not authenticated. Taken from
+     * the token unless the user joined or left a family since it was issued.
+     */
+    public List<Long> getFamilyIds() {
+        JwtUserPrincipal principal = getPrincipal();
+        if (principal == null) {
+            return null;
+        }
+        Long changedAt = membershipChangedAt.get(principal.getUserId());
+        // iat has second precision, so a change in the same second also counts as "after".
+        if (changedAt != null && (principal.getIssuedAt() == null || changedAt >= principal.getIssuedAt().toEpochMilli())) {
+            return familyRepository.findIdsByMemberId(principal.getUserId());
+        }
+        return principal.getFamilyIds();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(FamilyMembershipChangedEvent event) {
+        long now = System.currentTimeMillis();
+        // Tokens issued before the oldest remembered change have expired by now.
+        membershipChangedAt.values().removeIf(changedAt -> now - changedAt > accessTokenLifetimeMillis);
+        membershipChangedAt.put(event.getUserId(), now);
+    }
+
+    /**
+     * The current user's entity, or null when not authenticated (or the user no longer exists).
+     */
+    public User getUser() {
+        Long userId = getUserId();
+        if (userId == null) {
+            return null;
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User resolved) {
+            return resolved;
+        }
+        User user = loadCached(userId);
+        if (request != null && user != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    public void evict(Long userId) {
+        users.remove(userId);
+    }
+
+    private User loadCached(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedUser cached = users.get(userId);
+        if (cached != null && now - cached.loadedAt() < ttlMillis) {
+            return cached.user();
+        }
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            users.remove(userId);
+            return null;
+        }
+        // Share a copy, never the instance managed by the caller's persistence context.
+        User snapshot = snapshotOf(user);
+        if (users.size() >= maxEntries) {
+            users.clear();
+        }
+        users.put(userId, new CachedUser(snapshot, now));
+        return snapshot;
+    }
+
+    private User snapshotOf(User user) {
+        User snapshot = new User();
+        snapshot.setId(user.getId());
+        snapshot.setUsername(user.getUsername());
+        snapshot.setDisplayName(user.getDisplayName());
+        snapshot.setEmail(user.getEmail());
+        snapshot.setAvatar(user.getAvatar());
+        snapshot.setLastSeenAt(user.getLastSeenAt());
+        snapshot.setCreatedAt(user.getCreatedAt());
+        snapshot.setUpdatedAt(user.getUpdatedAt());
+        return snapshot; // No password hash, no collections
+    }
+
+    private record CachedUser(User user, long loadedAt) {
+    }
+}
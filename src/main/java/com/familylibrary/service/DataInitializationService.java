@@ -42,10 +42,10 @@ public class DataInitializationService {
         familyRepository.save(zhangFamily);
 
         // 2. Create Users
-        User jiahao = createUser("jiahao", "张家豪", "jiahao@example.com", "password123", "https://images.unsplash.com/photo-1601288496920-b6154fe3626a?ixlib=rb-4.0.3&auto=format&fit=crop&w=150&h=150", true);
-        User lina = createUser("lina", "张丽娜", "lina@example.com", "password123", "https://images.unsplash.com/photo-1544005313-94ddf0286df2?ixlib=rb-4.0.3&auto=format&fit=crop&w=150&h=150", false);
-        User wei = createUser("wei", "张伟", "wei@example.com", "password123", "https://images.unsplash.com/photo-1506794778202-cad84cf45f1d?ixlib=rb-4.0.3&auto=format&fit=crop&w=150&h=150", false);
-        User xiaoming = createUser("xiaoming", "小明", "xiaoming@example.com", "password123", "https://pixabay.com/get/gabdd1cd2f4eddf59119f47a07092bf4b0a8be1fecbdec3cdb744772486e1ab28d92b63675cfc1cf8e6a331aefcf5fb9696bee4aacf28df50991248bc5214a55d_1280.jpg", false);
+        User jiahao = createUser("jiahao", "张家豪", "jiahao@example.com", "password123", "https://images.unsplash.com/photo-1601288496920-b6154fe3626a?ixlib=rb-4.0.3&auto=format&fit=crop&w=150&h=150");
+        User lina = createUser("lina", "张丽娜", "lina@example.com", "password123", "https://images.unsplash.com/photo-1544005313-94ddf0286df2?ixlib=rb-4.0.3&auto=format&fit=crop&w=150&h=150");
+        User wei = createUser("wei", "张伟", "wei@example.com", "password123", "https://images.unsplash.com/photo-1506794778202-cad84cf45f1d?ixlib=rb-4.0.3&auto=format&fit=crop&w=150&h=150");
+        User xiaoming = createUser("xiaoming", "小明", "xiaoming@example.com", "password123", "https://pixabay.com/get/gabdd1cd2f4eddf59119f47a07092bf4b0a8be1fecbdec3cdb744772486e1ab28d92b63675cfc1cf8e6a331aefcf5fb9696bee4aacf28df50991248bc5214a55d_1280.jpg");
 
         // 3. Add Users to Family
         addMemberToFamily(zhangFamily, jiahao, lina, wei, xiaoming);
@@ -82,14 +82,13 @@ public class DataInitializationService {
         System.out.println("Sample data initialized.");
     }
 
-    private User createUser(String username, String displayName, String email, String password, String avatar, boolean isOnline) {
+    private User createUser(String username, String displayName, String email, String password, String avatar) {
         User user = new User();
         user.setUsername(username);
         user.setDisplayName(displayName);
         user.setEmail(email);
         user.setPassword(passwordEncoder.encode(password));
         user.setAvatar(avatar);
-        user.setOnline(isOnline);
         return userRepository.save(user);
     }
 
@@ -158,6 +157,7 @@ public class DataInitializationService {
         activity.setActivityType(activityType);
         if (book != null) activity.setBook(book);
         if (relatedUser != null) activity.setRelatedUser(relatedUser);
+        if (book != null) activity.setFamily(book.getBookshelf().getFamily());
         if (data != null) activity.setData(data);
         // Timestamp is set by @PrePersist in Activity entity
         activityRepository.save(activity);
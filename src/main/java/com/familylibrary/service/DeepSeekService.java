@@ -2,8 +2,14 @@ package com.familylibrary.service;
 
 import com.familylibrary.dto.*;
 import com.familylibrary.model.Book;
-import com.familylibrary.model.User;
 import com.familylibrary.repository.BookRepository;
+import com.familylibrary.service.DeepSeekStreamingClient.ChatStream;
+import com.familylibrary.service.DeepSeekStreamingClient.ChatStreamListener;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
@@ -12,13 +18,22 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class DeepSeekService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekService.class);
+    private static final int MAX_RECOMMENDATIONS = 5;
+
     @Value("${deepseek.api.key}")
     private String deepSeekApiKey;
 
@@ -27,16 +42,29 @@ public class DeepSeekService {
 
     private final RestTemplate restTemplate;
     private final BookRepository bookRepository; // To fetch user's books
-    private final UserService userService; // To get current user
+    private final DeepSeekStreamingClient deepSeekStreamingClient;
+    private final RecommendationResolver recommendationResolver;
+    private final ObjectMapper objectMapper;
+
+    @Value("${deepseek.stream.emitter-timeout-ms:120000}")
+    private long streamEmitterTimeoutMillis;
 
     @Autowired
-    public DeepSeekService(RestTemplate restTemplate, BookRepository bookRepository, UserService userService) {
+    public DeepSeekService(RestTemplate restTemplate, BookRepository bookRepository,
+                           DeepSeekStreamingClient deepSeekStreamingClient, RecommendationResolver recommendationResolver,
+                           ObjectMapper objectMapper) {
         this.restTemplate = restTemplate;
         this.bookRepository = bookRepository;
-        this.userService = userService;
+        this.deepSeekStreamingClient = deepSeekStreamingClient;
+        this.recommendationResolver = recommendationResolver;
+        this.objectMapper = objectMapper;
     }
 
     private DeepSeekChatResponseDto callDeepSeekAPI(List<DeepSeekMessageDto> messages) {
+        return callDeepSeekAPI(messages, false);
+    }
+
+    private DeepSeekChatResponseDto callDeepSeekAPI(List<DeepSeekMessageDto> messages, boolean jsonOutput) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setBearerAuth(deepSeekApiKey);
@@ -44,6 +72,9 @@ public class DeepSeekService {
         DeepSeekChatRequestDto requestDto = new DeepSeekChatRequestDto();
         requestDto.setModel("deepseek-chat"); // Or your preferred model
         requestDto.setMessages(messages);
+        if (jsonOutput) {
+            requestDto.setResponse_format(Map.of("type", "json_object"));
+        }
         // Set other parameters like temperature, max_tokens if needed
         // requestDto.setTemperature(0.7);
         // requestDto.setMax_tokens(1024);
@@ -53,21 +84,20 @@ public class DeepSeekService {
         try {
             return restTemplate.exchange(deepSeekApiUrl, HttpMethod.POST, entity, DeepSeekChatResponseDto.class).getBody();
         } catch (Exception e) {
-            // Log error e.g., using SLF4J logger
-            System.err.println("Error calling DeepSeek API: " + e.getMessage());
+            logger.warn("Error calling DeepSeek API: {}", e.getMessage());
             // Consider throwing a custom exception or returning a specific error DTO
             return null;
         }
     }
 
-    public InitialAIAnalysisResponseDto getInitialAnalysisForCurrentUser() {
-        User currentUser = userService.getCurrentUser();
-        if (currentUser == null) {
-            // Handle case where user is not found or not authenticated
-            return null; 
-        }
-
-        List<Book> userBooks = bookRepository.findByAddedById(currentUser.getId());
+    /**
+     * Runs the analysis for the books {@code userId} added. Called from the request thread or in the
+     * background by {@link InitialAnalysisService}, so it must not rely on the security context.
+     *
+     * @return the analysis, or null if the AI service could not be reached
+     */
+    public InitialAIAnalysisResponseDto generateInitialAnalysis(Long userId) {
+        List<Book> userBooks = bookRepository.findByAddedById(userId);
         if (userBooks.isEmpty()) {
             InitialAIAnalysisResponseDto emptyResponse = new InitialAIAnalysisResponseDto();
             emptyResponse.setAnalysisText("您的书架上还没有书籍，无法进行分析和推荐。请先添加一些书籍。");
@@ -80,84 +110,87 @@ public class DeepSeekService {
                                 .collect(Collectors.joining("\n"));
 
         List<DeepSeekMessageDto> messages = new ArrayList<>();
-        messages.add(new DeepSeekMessageDto("system", "你是一位资深、友好、温暖的图书推荐和阅读分析专家。我会提供他们书架上的书籍，请你简要地概括用户的阅读品味、个人性格，并据此推荐2-3本我可能会喜欢的书籍。请在回复开始时先对用户的阅读品味、个人性格进行一段总结性分析，语言尽量高级、简明、凝练，富有内涵和文采，尽量是“金句”，然后以列表形式推荐书籍，每本书籍包括书名、作者和简短的推荐理由，不要显式地写出“推荐理由：”，直接说就行，篇幅有限。推荐的书籍不要与我书单中的书籍重复。"));
+        messages.add(new DeepSeekMessageDto("system", "你是一位资深、友好、温暖的图书推荐和阅读分析专家。我会提供他们书架上的书籍，请你简要地概括用户的阅读品味、个人性格，并据此推荐2-3本我可能会喜欢的书籍。分析语言尽量高级、简明、凝练，富有内涵和文采，尽量是“金句”；每本推荐书籍包括书名、作者和简短的推荐理由，篇幅有限。推荐的书籍不要与我书单中的书籍重复。"
+                + "请只输出一个 JSON 对象，不要输出其他内容，格式如下：{\"analysis\": \"对阅读品味和性格的总结性分析\", \"recommendations\": [{\"title\": \"书名\", \"author\": \"作者\", \"reason\": \"推荐理由\"}]}"));
         messages.add(new DeepSeekMessageDto("user", "我书架上的书如下：\n" + bookListString + "\n\n请根据以上书籍进行分析和推荐。"));
 
-        DeepSeekChatResponseDto deepSeekResponse = callDeepSeekAPI(messages);
+        DeepSeekChatResponseDto deepSeekResponse = callDeepSeekAPI(messages, true);
 
         if (deepSeekResponse != null && deepSeekResponse.getChoices() != null && !deepSeekResponse.getChoices().isEmpty()) {
-            String rawAnalysis = deepSeekResponse.getChoices().get(0).getMessage().getContent();
-            // Basic parsing attempt (can be significantly improved with more robust parsing or if DeepSeek offers structured output)
+            String content = deepSeekResponse.getChoices().get(0).getMessage().getContent();
             InitialAIAnalysisResponseDto response = new InitialAIAnalysisResponseDto();
-            response.setAnalysisText(rawAnalysis); // For now, set the full response as analysis
-            
-            // TODO: Implement more sophisticated parsing to extract structured recommendations
-            // This is a placeholder and will likely need adjustment based on actual API response format
-            List<BookRecommendationDto> recommendations = parseRecommendations(rawAnalysis, userBooks);
-            response.setRecommendedBooks(recommendations);
+            try {
+                parseAnalysis(content, response);
+            } catch (IOException e) {
+                // JSON mode should prevent this; keep the text rather than lose the whole answer.
+                logger.warn("DeepSeek analysis was not valid JSON: {}", e.getMessage());
+                response.setAnalysisText(content);
+                response.setRecommendedBooks(new ArrayList<>());
+            }
+            recommendationResolver.enrich(response.getRecommendedBooks());
+            response.setGeneratedAt(LocalDateTime.now());
             return response;
-        } else {
-            InitialAIAnalysisResponseDto errorResponse = new InitialAIAnalysisResponseDto();
-            errorResponse.setAnalysisText("抱歉，AI分析服务暂时不可用，请稍后再试。");
-            errorResponse.setRecommendedBooks(new ArrayList<>());
-            return errorResponse;
         }
+        return null;
     }
 
-    // Placeholder for parsing recommendations from raw text
-    // This needs to be implemented based on how DeepSeek structures its response.
-    private List<BookRecommendationDto> parseRecommendations(String rawText, List<Book> existingBooks) {
+    /**
+     * Reads {"analysis": ..., "recommendations": [{"title", "author", "reason"}, ...]} token by token,
+     * skipping unknown fields, so extra keys or nesting from the model don't break parsing.
+     */
+    private void parseAnalysis(String content, InitialAIAnalysisResponseDto response) throws IOException {
+        // Tolerate a ```json fence around the object.
+        int from = content.indexOf('{');
+        int to = content.lastIndexOf('}');
+        if (from < 0 || to < from) {
+            throw new IOException("No JSON object in response");
+        }
         List<BookRecommendationDto> recommendations = new ArrayList<>();
-        // Example: Look for lines starting with "书名：", "作者：", "推荐理由："
-        // This is highly dependent on the AI's output format and may require regex or other NLP techniques.
-        // For simplicity, this example won't perform complex parsing.
-        // It's better if the AI can be prompted to provide a JSON or structured list directly.
-
-        String[] lines = rawText.split("\n");
-        BookRecommendationDto currentRecommendation = null;
-
-        for (String line : lines) {
-            line = line.trim();
-            if (line.startsWith("书名：") || line.startsWith("书名:")) {
-                if (currentRecommendation != null && currentRecommendation.getTitle() != null && !isBookAlreadyInList(currentRecommendation.getTitle(), existingBooks)) {
-                    recommendations.add(currentRecommendation);
+        String analysis = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(content.substring(from, to + 1))) {
+            parser.nextToken(); // START_OBJECT
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("analysis".equals(field) && value == JsonToken.VALUE_STRING) {
+                    analysis = parser.getText();
+                } else if ("recommendations".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        BookRecommendationDto recommendation = readRecommendation(parser);
+                        if (recommendation.getTitle() != null && recommendations.size() < MAX_RECOMMENDATIONS) {
+                            recommendations.add(recommendation);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
                 }
-                currentRecommendation = new BookRecommendationDto();
-                currentRecommendation.setTitle(line.substring(line.indexOf(":") + 1).trim());
-            } else if (currentRecommendation != null && (line.startsWith("作者：") || line.startsWith("作者:"))) {
-                currentRecommendation.setAuthor(line.substring(line.indexOf(":") + 1).trim());
-            } else if (currentRecommendation != null && (line.startsWith("推荐理由：") || line.startsWith("推荐理由:"))) {
-                currentRecommendation.setReason(line.substring(line.indexOf(":") + 1).trim());
             }
         }
-        // Add the last recommendation if it exists and is not a duplicate
-        if (currentRecommendation != null && currentRecommendation.getTitle() != null && currentRecommendation.getAuthor() != null && currentRecommendation.getReason() != null && !isBookAlreadyInList(currentRecommendation.getTitle(), existingBooks)) {
-            recommendations.add(currentRecommendation);
-        }
-        
-        // Limit to 5 recommendations
-        if (recommendations.size() > 5) {
-            return recommendations.subList(0, 5);
+        if (analysis == null) {
+            throw new IOException("Missing \"analysis\"");
         }
-        return recommendations;
+        response.setAnalysisText(analysis);
+        response.setRecommendedBooks(recommendations);
     }
-    
-    private boolean isBookAlreadyInList(String title, List<Book> existingBooks) {
-        if (title == null) return false;
-        return existingBooks.stream().anyMatch(book -> title.equalsIgnoreCase(book.getTitle()));
+
+    private static BookRecommendationDto readRecommendation(JsonParser parser) throws IOException {
+        BookRecommendationDto recommendation = new BookRecommendationDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            String text = value == JsonToken.VALUE_STRING ? parser.getText().trim() : null;
+            switch (field) {
+                case "title" -> recommendation.setTitle(text != null ? text.replaceAll("^《|》$", "") : null);
+                case "author" -> recommendation.setAuthor(text);
+                case "reason" -> recommendation.setReason(text);
+                default -> parser.skipChildren();
+            }
+        }
+        return recommendation;
     }
 
     public DeepSeekMessageDto getAIChatResponse(AIQueryDto queryDto) {
-        User currentUser = userService.getCurrentUser();
-        String userIdentifier = (currentUser != null) ? "用户 " + currentUser.getUsername() : "用户";
-
-        List<DeepSeekMessageDto> messages = new ArrayList<>();
-        messages.add(new DeepSeekMessageDto("system", "你是一位友好的AI阅读助手。请根据用户的提问进行回答。如果用户提到书籍，你可以结合上下文提供相关的书籍信息或推荐。"));
-        
-        if (queryDto.getHistory() != null && !queryDto.getHistory().isEmpty()) {
-            messages.addAll(queryDto.getHistory());
-        }
-        messages.add(new DeepSeekMessageDto("user", queryDto.getQuery()));
+        List<DeepSeekMessageDto> messages = buildChatMessages(queryDto);
 
         DeepSeekChatResponseDto deepSeekResponse = callDeepSeekAPI(messages);
 
@@ -167,4 +200,60 @@ public class DeepSeekService {
             return new DeepSeekMessageDto("assistant", "抱歉，AI服务暂时遇到问题，请稍后再试。");
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Same conversation as {@link #getAIChatResponse}, relayed token by token: "delta" events carry
+     * {"content": ...}, then one "done" or "error" event ends the stream. No request thread is held
+     * while the model generates; closing the connection aborts the upstream call.
+     */
+    public SseEmitter streamAIChatResponse(AIQueryDto queryDto) {
+        SseEmitter emitter = new SseEmitter(streamEmitterTimeoutMillis);
+        ChatStream stream = deepSeekStreamingClient.streamChat(buildChatMessages(queryDto), new ChatStreamListener() {
+            @Override
+            public void onDelta(String content) {
+                try {
+                    emitter.send(SseEmitter.event().name("delta").data(Map.of("content", content), MediaType.APPLICATION_JSON));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void onComplete(String finishReason) {
+                try {
+                    emitter.send(SseEmitter.event().name("done")
+                            .data(Map.of("finishReason", finishReason != null ? finishReason : "stop"), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                try {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("message", "抱歉，AI服务暂时遇到问题，请稍后再试。"), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+        emitter.onTimeout(stream::cancel);
+        emitter.onError(error -> stream.cancel());
+        emitter.onCompletion(stream::cancel);
+        return emitter;
+    }
+
+    private List<DeepSeekMessageDto> buildChatMessages(AIQueryDto queryDto) {
+        List<DeepSeekMessageDto> messages = new ArrayList<>();
+        messages.add(new DeepSeekMessageDto("system", "你是一位友好的AI阅读助手。请根据用户的提问进行回答。如果用户提到书籍，你可以结合上下文提供相关的书籍信息或推荐。"));
+
+        if (queryDto.getHistory() != null && !queryDto.getHistory().isEmpty()) {
+            messages.addAll(queryDto.getHistory());
+        }
+        messages.add(new DeepSeekMessageDto("user", queryDto.getQuery()));
+        return messages;
+    }
+}
@@ -0,0 +1,211 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.DeepSeekChatRequestDto;
+import com.familylibrary.dto.DeepSeekMessageDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Calls DeepSeek chat completions with {@code stream: true} and hands each content delta to a
+ * listener as it arrives.
+ * <p>
+ * Uses the JDK's asynchronous {@link HttpClient}: the response body is pushed line by line into a
+ * {@link Flow.Subscriber} on the client's own selector/executor threads, so no thread waits for
+ * the generation. Each {@code data:} line of the upstream event stream is parsed on its own; the
+ * stream ends at {@code data: [DONE]}, a finish reason or end of body. Cancelling the returned
+ * handle cancels the subscription, which closes the upstream connection.
+ */
+@Service
+public class DeepSeekStreamingClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekStreamingClient.class);
+
+    private static final int MAX_ERROR_BODY = 2048;
+
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final String apiKey;
+    private final URI apiUrl;
+    private final String model;
+    private final Duration firstByteTimeout;
+
+    public DeepSeekStreamingClient(ObjectMapper objectMapper,
+                                   @Value("${deepseek.api.key}") String apiKey,
+                                   @Value("${deepseek.api.url:https://api.deepseek.com/chat/completions}") String apiUrl,
+                                   @Value("${deepseek.api.model:deepseek-chat}") String model,
+                                   @Value("${deepseek.stream.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                                   @Value("${deepseek.stream.first-byte-timeout-ms:30000}") long firstByteTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.apiKey = apiKey;
+        this.apiUrl = URI.create(apiUrl);
+        this.model = model;
+        this.firstByteTimeout = Duration.ofMillis(firstByteTimeoutMillis);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+    }
+
+    public interface ChatStreamListener {
+        void onDelta(String content);
+
+        void onComplete(String finishReason);
+
+        void onError(Throwable error);
+    }
+
+    /** Handle of a running stream; exactly one of the listener's terminal callbacks is called. */
+    public interface ChatStream {
+        void cancel();
+    }
+
+    public ChatStream streamChat(List<DeepSeekMessageDto> messages, ChatStreamListener listener) {
+        DeepSeekChatRequestDto requestDto = new DeepSeekChatRequestDto();
+        requestDto.setModel(model);
+        requestDto.setMessages(messages);
+        requestDto.setStream(true);
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(requestDto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize DeepSeek request", e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(apiUrl)
+                .timeout(firstByteTimeout) // Until response headers; the body may take as long as the model needs
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        EventLineSubscriber subscriber = new EventLineSubscriber(listener);
+        httpClient.sendAsync(request, info -> {
+                    subscriber.statusCode = info.statusCode();
+                    return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber);
+                })
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        subscriber.fail(error); // Connect failure or no headers within the timeout
+                    }
+                });
+        return subscriber::cancel;
+    }
+
+    /** Receives the upstream body one line at a time. Calls are serialized by the client. */
+    private final class EventLineSubscriber implements Flow.Subscriber<String> {
+        private final ChatStreamListener listener;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final StringBuilder errorBody = new StringBuilder();
+        private volatile int statusCode;
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        private EventLineSubscriber(ChatStreamListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (finished.get()) {
+                return;
+            }
+            if (statusCode != 200) {
+                if (errorBody.length() < MAX_ERROR_BODY) {
+                    errorBody.append(line);
+                }
+                return;
+            }
+            // Blank lines separate events and ':' lines are keep-alive comments.
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                succeed(null);
+                return;
+            }
+            try {
+                JsonNode choice = objectMapper.readTree(data).path("choices").path(0);
+                String content = choice.path("delta").path("content").asText("");
+                if (!content.isEmpty()) {
+                    listener.onDelta(content);
+                }
+                String finishReason = choice.path("finish_reason").asText(null);
+                if (finishReason != null) {
+                    succeed(finishReason);
+                }
+            } catch (JsonProcessingException e) {
+                logger.debug("Skipping unparsable DeepSeek stream line: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                fail(e); // The listener could not deliver (client gone); stop pulling tokens
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (statusCode != 200) {
+                fail(new IllegalStateException("DeepSeek returned " + statusCode + ": " + errorBody));
+            } else {
+                succeed(null); // Body ended without [DONE]; deliver what we have
+            }
+        }
+
+        private void succeed(String finishReason) {
+            if (finished.compareAndSet(false, true)) {
+                cancelSubscription();
+                listener.onComplete(finishReason);
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (finished.compareAndSet(false, true)) {
+                cancelSubscription();
+                logger.warn("DeepSeek stream failed: {}", error.toString());
+                listener.onError(error);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            finished.set(true); // The caller is gone; no callbacks wanted
+            cancelSubscription();
+        }
+
+        private void cancelSubscription() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
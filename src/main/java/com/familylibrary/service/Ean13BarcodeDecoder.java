@@ -0,0 +1,309 @@
+package com.familylibrary.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Pure-Java EAN-13 reader for the ISBN barcode on the back of a book.
+ * <p>
+ * Instead of processing the whole picture it samples a few evenly spaced rows and columns:
+ * each line is converted to luminance, binarized against the local min/max contrast, turned into
+ * alternating white/black run lengths and searched for a start guard followed by 12 digit
+ * patterns, the middle and end guards. Lines are read in both directions, so barcodes photographed
+ * sideways or upside down are found too. A code counts only if its check digit is valid and
+ * enough lines agree on it; anything else returns empty and the caller falls back to OCR.
+ */
+@Service
+public class Ean13BarcodeDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(Ean13BarcodeDecoder.class);
+
+    // Module widths of the L-code digits, read space-bar-space-bar. R-codes use the same widths
+    // starting with a bar; G-codes are the L widths reversed.
+    private static final int[][] L_PATTERNS = {
+            {3, 2, 1, 1}, {2, 2, 2, 1}, {2, 1, 2, 2}, {1, 4, 1, 1}, {1, 1, 3, 2},
+            {1, 2, 3, 1}, {1, 1, 1, 4}, {1, 3, 1, 2}, {1, 2, 1, 3}, {3, 1, 1, 2}
+    };
+    private static final int[][] G_PATTERNS = new int[10][];
+    // L/G parity of the six left digits encodes the first digit (bit set = G).
+    private static final int[] FIRST_DIGIT_PARITY = {0x00, 0x0B, 0x0D, 0x0E, 0x13, 0x19, 0x1C, 0x15, 0x16, 0x1A};
+
+    static {
+        for (int d = 0; d < 10; d++) {
+            int[] l = L_PATTERNS[d];
+            G_PATTERNS[d] = new int[] {l[3], l[2], l[1], l[0]};
+        }
+    }
+
+    private static final int RUNS_PER_CODE = 3 + 6 * 4 + 5 + 6 * 4 + 3;
+    private static final int MIN_CONTRAST = 32;
+    private static final double MAX_DIGIT_VARIANCE = 1.9; // Summed over the 4 elements, in modules
+    private static final double MAX_ELEMENT_VARIANCE = 0.9;
+
+    private final boolean enabled;
+    private final int scanlines;
+    private final int minAgreement;
+
+    public Ean13BarcodeDecoder(@Value("${scan.barcode.enabled:true}") boolean enabled,
+                               @Value("${scan.barcode.scanlines:24}") int scanlines,
+                               @Value("${scan.barcode.min-agreement:2}") int minAgreement) {
+        this.enabled = enabled;
+        this.scanlines = Math.max(1, scanlines);
+        this.minAgreement = Math.max(1, minAgreement);
+    }
+
+    /**
+     * @return the 13 digits of the first EAN-13 code found with enough agreeing scanlines
+     */
+    public Optional<String> decode(byte[] imageBytes) {
+        if (!enabled || imageBytes == null || imageBytes.length == 0) {
+            return Optional.empty();
+        }
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Barcode stage could not read image: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (image == null) {
+            return Optional.empty(); // Format ImageIO cannot decode (e.g. HEIC); OCR may still manage
+        }
+        return decode(image);
+    }
+
+    public Optional<String> decode(BufferedImage image) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        Map<String, Integer> votes = new HashMap<>();
+        String code = scan(image, true, votes);
+        if (code == null) {
+            code = scan(image, false, votes);
+        }
+        logger.debug("Barcode stage {} in {} ms", code != null ? "found " + code : "found nothing",
+                (System.nanoTime() - start) / 1_000_000);
+        return Optional.ofNullable(code);
+    }
+
+    private String scan(BufferedImage image, boolean rows, Map<String, Integer> votes) {
+        int lines = rows ? image.getHeight() : image.getWidth();
+        int length = rows ? image.getWidth() : image.getHeight();
+        int[] rgb = new int[length];
+        int[] luminance = new int[length];
+        for (int i = 1; i <= scanlines; i++) {
+            int line = (int) ((long) lines * i / (scanlines + 1));
+            if (rows) {
+                image.getRGB(0, line, length, 1, rgb, 0, length);
+            } else {
+                image.getRGB(line, 0, 1, length, rgb, 0, 1);
+            }
+            for (int p = 0; p < length; p++) {
+                int c = rgb[p];
+                luminance[p] = (((c >> 16) & 0xFF) * 306 + ((c >> 8) & 0xFF) * 601 + (c & 0xFF) * 117) >> 10;
+            }
+            int[] runs = toRuns(binarize(luminance));
+            String code = decodeLine(runs);
+            if (code == null) {
+                code = decodeLine(reverse(runs));
+            }
+            if (code != null && votes.merge(code, 1, Integer::sum) >= minAgreement) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    // Threshold at the midpoint of the min/max around each pixel; flat areas (no bars) stay white.
+    private static boolean[] binarize(int[] luminance) {
+        int n = luminance.length;
+        int block = Math.max(16, n / 8);
+        int blocks = (n + block - 1) / block;
+        int[] min = new int[blocks];
+        int[] max = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int lo = 255;
+            int hi = 0;
+            for (int p = b * block, end = Math.min(n, p + block); p < end; p++) {
+                lo = Math.min(lo, luminance[p]);
+                hi = Math.max(hi, luminance[p]);
+            }
+            min[b] = lo;
+            max[b] = hi;
+        }
+        boolean[] dark = new boolean[n];
+        for (int b = 0; b < blocks; b++) {
+            int lo = Math.min(min[b], Math.min(min[Math.max(0, b - 1)], min[Math.min(blocks - 1, b + 1)]));
+            int hi = Math.max(max[b], Math.max(max[Math.max(0, b - 1)], max[Math.min(blocks - 1, b + 1)]));
+            if (hi - lo < MIN_CONTRAST) {
+                continue;
+            }
+            int threshold = (lo + hi) / 2;
+            for (int p = b * block, end = Math.min(n, p + block); p < end; p++) {
+                dark[p] = luminance[p] < threshold;
+            }
+        }
+        return dark;
+    }
+
+    // Run lengths with even indices white and odd indices black (a leading 0 if the line starts dark).
+    private static int[] toRuns(boolean[] dark) {
+        int[] runs = new int[dark.length + 1];
+        int count = 0;
+        boolean current = false;
+        int length = 0;
+        for (boolean pixel : dark) {
+            if (pixel == current) {
+                length++;
+            } else {
+                runs[count++] = length;
+                current = pixel;
+                length = 1;
+            }
+        }
+        runs[count++] = length;
+        int[] result = new int[count];
+        System.arraycopy(runs, 0, result, 0, count);
+        return result;
+    }
+
+    private static int[] reverse(int[] runs) {
+        // Keep white on even indices: if the reversed line would start dark, lead with a 0 run.
+        boolean startsDark = runs.length % 2 == 0;
+        int[] reversed = new int[runs.length + (startsDark ? 1 : 0)];
+        int offset = startsDark ? 1 : 0;
+        for (int i = 0; i < runs.length; i++) {
+            reversed[offset + i] = runs[runs.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static String decodeLine(int[] runs) {
+        for (int i = 1; i + RUNS_PER_CODE < runs.length; i += 2) {
+            String code = decodeAt(runs, i);
+            if (code != null) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    private static String decodeAt(int[] runs, int start) {
+        double module = (runs[start] + runs[start + 1] + runs[start + 2]) / 3.0;
+        if (!isGuard(runs, start, 3, module) || runs[start - 1] < 3 * module) {
+            return null; // Start guard must be preceded by a quiet zone
+        }
+        int[] digits = new int[13];
+        int parity = 0;
+        int pos = start + 3;
+        int leftWidth = 0;
+        for (int k = 0; k < 6; k++) {
+            int l = matchDigit(runs, pos, L_PATTERNS);
+            int g = matchDigit(runs, pos, G_PATTERNS);
+            if (l < 0 && g < 0) {
+                return null;
+            }
+            boolean useG = l < 0 || (g >= 0 && variance(runs, pos, G_PATTERNS[g]) < variance(runs, pos, L_PATTERNS[l]));
+            digits[k + 1] = useG ? g : l;
+            if (useG) {
+                parity |= 1 << (5 - k);
+            }
+            leftWidth += runs[pos] + runs[pos + 1] + runs[pos + 2] + runs[pos + 3];
+            pos += 4;
+        }
+        double digitModule = leftWidth / 42.0;
+        if (!isGuard(runs, pos, 5, digitModule)) {
+            return null;
+        }
+        pos += 5;
+        int rightWidth = 0;
+        for (int k = 0; k < 6; k++) {
+            int r = matchDigit(runs, pos, L_PATTERNS);
+            if (r < 0) {
+                return null;
+            }
+            digits[k + 7] = r;
+            rightWidth += runs[pos] + runs[pos + 1] + runs[pos + 2] + runs[pos + 3];
+            pos += 4;
+        }
+        if (Math.abs(leftWidth - rightWidth) > 0.25 * leftWidth || !isGuard(runs, pos, 3, rightWidth / 42.0)) {
+            return null; // Halves of different sizes: two unrelated patterns that happened to line up
+        }
+        digits[0] = firstDigit(parity);
+        if (digits[0] < 0 || !checksumValid(digits)) {
+            return null;
+        }
+        StringBuilder code = new StringBuilder(13);
+        for (int digit : digits) {
+            code.append(digit);
+        }
+        return code.toString();
+    }
+
+    private static boolean isGuard(int[] runs, int offset, int count, double module) {
+        for (int i = 0; i < count; i++) {
+            if (Math.abs(runs[offset + i] - module) > Math.max(1.0, module * 0.7)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int matchDigit(int[] runs, int offset, int[][] patterns) {
+        int best = -1;
+        double bestVariance = MAX_DIGIT_VARIANCE;
+        for (int d = 0; d < 10; d++) {
+            double variance = variance(runs, offset, patterns[d]);
+            if (variance < bestVariance) {
+                best = d;
+                bestVariance = variance;
+            }
+        }
+        return best;
+    }
+
+    // Total deviation from the pattern in modules, or +inf if any single element is too far off.
+    private static double variance(int[] runs, int offset, int[] pattern) {
+        double unit = (runs[offset] + runs[offset + 1] + runs[offset + 2] + runs[offset + 3]) / 7.0;
+        if (unit == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double total = 0;
+        for (int j = 0; j < 4; j++) {
+            double deviation = Math.abs(runs[offset + j] / unit - pattern[j]);
+            if (deviation > MAX_ELEMENT_VARIANCE) {
+                return Double.POSITIVE_INFINITY;
+            }
+            total += deviation;
+        }
+        return total;
+    }
+
+    private static int firstDigit(int parity) {
+        for (int d = 0; d < 10; d++) {
+            if (FIRST_DIGIT_PARITY[d] == parity) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    static boolean checksumValid(int[] digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += digits[i] * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10 == digits[12];
+    }
+}
@@ -0,0 +1,371 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.StreamEventDto;
+import com.familylibrary.event.BookAddedEvent;
+import com.familylibrary.event.BookLentEvent;
+import com.familylibrary.event.BookReturnedEvent;
+import com.familylibrary.event.FamilyMembershipChangedEvent;
+import com.familylibrary.event.ReadingFinishedEvent;
+import com.familylibrary.model.BookStatus;
+import com.familylibrary.model.LendingStatus;
+import com.familylibrary.repository.FamilyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of change notifications to Server-Sent Events connections.
+ * <p>
+ * An idle connection is just an {@link SseEmitter} parked in servlet async mode plus a small
+ * buffer, so thousands of them cost no threads. Publishing only appends to the buffers of the
+ * affected subscriptions (indexed by family and by user) and schedules a flush on a small
+ * dispatcher pool; a slow client can never block the publisher. When a buffer overflows the
+ * oldest events are discarded and the client is sent a "resync" event telling it to refetch.
+ * When a user joins or leaves a family their open subscriptions are moved to the new families
+ * and also told to resync, since what they may see has changed.
+ * <p>
+ * A send blocks while the client's TCP window is full, and the emitter's monitor is held
+ * meanwhile, so it cannot be cancelled. A watchdog therefore marks any send running longer than
+ * {@code send-timeout-ms} as stalled: the subscription leaves the fan-out, the pool gets a stand-in
+ * thread (up to {@code max-stalled-sends}) so other clients keep flowing, and the stream is
+ * closed once the write returns or fails. The browser reconnects and refetches.
+ */
+@Service
+public class EventStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamHub.class);
+
+    private final FamilyRepository familyRepository;
+    private final long emitterTimeoutMillis;
+    private final int bufferCapacity;
+
+    private final Map<Long, Set<Subscription>> subscriptionsByFamily = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor dispatcher;
+    private final ScheduledExecutorService heartbeat;
+    private final long sendTimeoutNanos;
+    private final int maxStalledSends;
+    private final Set<Subscription> sending = ConcurrentHashMap.newKeySet();
+    private int stalledSends; // Guarded by this
+
+    public EventStreamHub(FamilyRepository familyRepository,
+                          @Value("${stream.emitter-timeout-ms:1800000}") long emitterTimeoutMillis,
+                          @Value("${stream.buffer-capacity:64}") int bufferCapacity,
+                          @Value("${stream.dispatcher-threads:2}") int dispatcherThreads,
+                          @Value("${stream.heartbeat-seconds:25}") long heartbeatSeconds,
+                          @Value("${stream.send-timeout-ms:5000}") long sendTimeoutMillis,
+                          @Value("${stream.max-stalled-sends:32}") int maxStalledSends) {
+        this.familyRepository = familyRepository;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.bufferCapacity = bufferCapacity;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.maxStalledSends = maxStalledSends;
+        this.dispatcher = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("sse-dispatch"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("sse-heartbeat"));
+        // Comment frames keep proxies from closing idle connections and surface dead clients.
+        this.heartbeat.scheduleAtFixedRate(this::pingAll, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        long checkMillis = Math.max(100, Math.min(1000, sendTimeoutMillis / 2));
+        this.heartbeat.scheduleAtFixedRate(this::detectStalledSends, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        subscriptionsByUser.values().forEach(subscriptions -> subscriptions.forEach(s -> s.emitter.complete()));
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscription subscription = new Subscription(userId, emitter, bufferCapacity);
+
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(() -> unregister(subscription));
+        emitter.onError(e -> unregister(subscription));
+
+        // Visible to onMembershipChanged before the families are read, so a change in between is not lost.
+        subscriptionsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        Set<Long> familyIds;
+        synchronized (subscription) {
+            familyIds = Set.copyOf(familyRepository.findIdsByMemberId(userId));
+            for (Long familyId : familyIds) {
+                subscriptionsByFamily.computeIfAbsent(familyId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+            }
+            subscription.familyIds = familyIds;
+        }
+        int connections = connectionCount.incrementAndGet();
+        logger.debug("SSE subscription opened for user {} (families {}), {} open", userId, familyIds, connections);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(FamilyMembershipChangedEvent event) {
+        Set<Subscription> subscriptions = subscriptionsByUser.get(event.getUserId());
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return;
+        }
+        Set<Long> familyIds = Set.copyOf(familyRepository.findIdsByMemberId(event.getUserId()));
+        for (Subscription subscription : subscriptions) {
+            synchronized (subscription) {
+                if (subscription.closed.get()) {
+                    continue;
+                }
+                for (Long familyId : subscription.familyIds) {
+                    if (!familyIds.contains(familyId)) {
+                        removeFrom(subscriptionsByFamily, familyId, subscription);
+                    }
+                }
+                for (Long familyId : familyIds) {
+                    subscriptionsByFamily.computeIfAbsent(familyId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+                }
+                subscription.familyIds = familyIds;
+            }
+            subscription.resyncPending.set(true);
+            scheduleFlush(subscription);
+        }
+        logger.debug("SSE subscriptions of user {} now follow families {}", event.getUserId(), familyIds);
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookAdded(BookAddedEvent event) {
+        publish(event.getFamilyId(), Set.of(event.getUserId()),
+                new StreamEventDto("activity", "add", event.getBookId(), null, event.getUserId(), null,
+                        event.getFamilyId(), null, event.getOccurredAt()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookLent(BookLentEvent event) {
+        Set<Long> involved = new HashSet<>(Arrays.asList(event.getLenderId(), event.getBorrowerId()));
+        publishLendingChange(event.getFamilyId(), involved, "borrow", event.getBookId(), event.getLendingId(),
+                event.getBorrowerId(), event.getLenderId(), LendingStatus.BORROWED, BookStatus.BORROWED, event.getOccurredAt());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookReturned(BookReturnedEvent event) {
+        Set<Long> involved = new HashSet<>(Arrays.asList(event.getLenderId(), event.getBorrowerId()));
+        publishLendingChange(event.getFamilyId(), involved, "return", event.getBookId(), event.getLendingId(),
+                event.getBorrowerId(), event.getLenderId(), LendingStatus.RETURNED, BookStatus.AVAILABLE, event.getOccurredAt());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReadingFinished(ReadingFinishedEvent event) {
+        publish(event.getFamilyId(), Set.of(event.getUserId()),
+                new StreamEventDto("activity", "read", event.getBookId(), null, event.getUserId(), null,
+                        event.getFamilyId(), null, event.getOccurredAt()));
+    }
+
+    private void publishLendingChange(Long familyId, Set<Long> involvedUserIds, String activityType, Long bookId, Long lendingId,
+                                      Long borrowerId, Long lenderId, LendingStatus lendingStatus, BookStatus bookStatus,
+                                      LocalDateTime timestamp) {
+        publish(familyId, involvedUserIds, new StreamEventDto("activity", activityType, bookId, lendingId,
+                borrowerId, lenderId, familyId, null, timestamp));
+        publish(familyId, involvedUserIds, new StreamEventDto("lending", null, bookId, lendingId,
+                borrowerId, lenderId, familyId, lendingStatus.name(), timestamp));
+        publish(familyId, involvedUserIds, new StreamEventDto("book-status", null, bookId, null,
+                null, null, familyId, bookStatus.name(), timestamp));
+    }
+
+    /**
+     * Delivers an event to every connection of the family plus every connection of the directly
+     * involved users (who may not share that family, e.g. books on a personal shelf).
+     */
+    void publish(Long familyId, Set<Long> involvedUserIds, StreamEventDto event) {
+        Set<Subscription> targets = new LinkedHashSet<>();
+        if (familyId != null) {
+            targets.addAll(subscriptionsByFamily.getOrDefault(familyId, Set.of()));
+        }
+        for (Long userId : involvedUserIds) {
+            if (userId != null) {
+                targets.addAll(subscriptionsByUser.getOrDefault(userId, Set.of()));
+            }
+        }
+        for (Subscription subscription : targets) {
+            subscription.offer(event);
+            scheduleFlush(subscription);
+        }
+    }
+
+    private void pingAll() {
+        subscriptionsByUser.values().forEach(subscriptions -> subscriptions.forEach(subscription -> {
+            subscription.pingPending = true;
+            scheduleFlush(subscription);
+        }));
+    }
+
+    private void scheduleFlush(Subscription subscription) {
+        if (subscription.flushScheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> flush(subscription));
+            } catch (RuntimeException e) {
+                subscription.flushScheduled.set(false);
+                logger.warn("Could not schedule SSE flush for user {}: {}", subscription.userId, e.getMessage());
+            }
+        }
+    }
+
+    private void flush(Subscription subscription) {
+        try {
+            if (subscription.resyncPending.getAndSet(false)) {
+                send(subscription, SseEmitter.event().name("resync").data("{}", MediaType.APPLICATION_JSON));
+            }
+            StreamEventDto event;
+            while (!subscription.stalled && (event = subscription.buffer.poll()) != null) {
+                send(subscription, SseEmitter.event().name(event.getType()).data(event, MediaType.APPLICATION_JSON));
+            }
+            if (subscription.pingPending && !subscription.stalled) {
+                subscription.pingPending = false;
+                send(subscription, SseEmitter.event().comment("ping"));
+            }
+            if (subscription.stalled) {
+                subscription.emitter.complete(); // Events were missed; the client reconnects and refetches
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("SSE connection for user {} is gone: {}", subscription.userId, e.getMessage());
+            unregister(subscription);
+            subscription.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscription.flushScheduled.set(false);
+            if (subscription.stalled) {
+                releaseStandIn(subscription);
+            }
+        }
+        // An event may have arrived after the buffer was drained but before the flag was cleared.
+        if (!subscription.stalled && !subscription.buffer.isEmpty()) {
+            scheduleFlush(subscription);
+        }
+    }
+
+    private void send(Subscription subscription, SseEmitter.SseEventBuilder event) throws IOException {
+        subscription.sendStartedNanos = System.nanoTime();
+        sending.add(subscription);
+        try {
+            subscription.emitter.send(event);
+        } finally {
+            sending.remove(subscription);
+        }
+    }
+
+    private void detectStalledSends() {
+        long now = System.nanoTime();
+        for (Subscription subscription : sending) {
+            if (!subscription.stalled && now - subscription.sendStartedNanos > sendTimeoutNanos) {
+                subscription.stalled = true;
+                unregister(subscription); // No new events for it; its buffer is abandoned
+                boolean standIn = addStandIn(subscription);
+                logger.warn("SSE send to user {} stalled for over {} ms; dropping the connection{}", subscription.userId,
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos), standIn ? "" : " (no stand-in thread left)");
+            }
+        }
+    }
+
+    // The stalled send keeps its thread until the write returns; lend the pool another one meanwhile.
+    private synchronized boolean addStandIn(Subscription subscription) {
+        if (stalledSends >= maxStalledSends) {
+            return false;
+        }
+        stalledSends++;
+        subscription.hasStandIn = true;
+        dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + 1);
+        dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + 1);
+        return true;
+    }
+
+    private synchronized void releaseStandIn(Subscription subscription) {
+        if (!subscription.hasStandIn) {
+            return;
+        }
+        subscription.hasStandIn = false;
+        stalledSends--;
+        dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() - 1);
+        dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() - 1);
+    }
+
+    private void unregister(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return;
+        }
+        removeFrom(subscriptionsByUser, subscription.userId, subscription);
+        synchronized (subscription) { // Against a concurrent move to other families
+            for (Long familyId : subscription.familyIds) {
+                removeFrom(subscriptionsByFamily, familyId, subscription);
+            }
+        }
+        connectionCount.decrementAndGet();
+    }
+
+    private void removeFrom(Map<Long, Set<Subscription>> index, Long key, Subscription subscription) {
+        index.computeIfPresent(key, (k, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Subscription {
+        private final Long userId;
+        private volatile Set<Long> familyIds = Set.of(); // Replaced under the subscription's monitor
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<StreamEventDto> buffer;
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final AtomicBoolean resyncPending = new AtomicBoolean(); // Overflowed, or families changed
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean pingPending;
+        private volatile long sendStartedNanos;
+        private volatile boolean stalled;
+        private boolean hasStandIn; // Guarded by the hub
+
+        private Subscription(Long userId, SseEmitter emitter, int bufferCapacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        }
+
+        // Drop-oldest: the newest state is what matters, and "resync" covers the gap.
+        private void offer(StreamEventDto event) {
+            while (!buffer.offer(event)) {
+                buffer.poll();
+                resyncPending.set(true);
+            }
+        }
+    }
+}
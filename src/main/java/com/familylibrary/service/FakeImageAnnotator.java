@@ -0,0 +1,57 @@
+package com.familylibrary.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.google.protobuf.ByteString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Vision: an "image" that is valid UTF-8 is returned as its own recognized
+ * text, anything else yields no text. Lets the scan flow be exercised (e.g. uploading a .txt
+ * containing "ISBN 978-7-02-002442-1") without credentials or network access.
+ */
+@Service
+@ConditionalOnProperty(name = "google.cloud.vision.annotator", havingValue = "fake")
+public class FakeImageAnnotator implements ImageAnnotator {
+
+    private final int maxBatchSize;
+    private final AtomicLong batchCount = new AtomicLong();
+
+    public FakeImageAnnotator(@Value("${google.cloud.vision.max-batch-size:16}") int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, 16));
+    }
+
+    @Override
+    public List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " images per batch");
+        }
+        batchCount.incrementAndGet();
+        List<AnnotateImageResponse> responses = new ArrayList<>(requests.size());
+        for (AnnotateImageRequest request : requests) {
+            ByteString content = request.getImage().getContent();
+            String text = content.isValidUtf8() ? content.toStringUtf8() : "";
+            responses.add(AnnotateImageResponse.newBuilder()
+                    .setFullTextAnnotation(TextAnnotation.newBuilder().setText(text).build())
+                    .build());
+        }
+        return responses;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /** Number of annotate calls so far, i.e. round trips a real client would have made. */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+}
@@ -0,0 +1,243 @@
+package com.familylibrary.service;
+
+import com.familylibrary.config.JwtUserPrincipal;
+import com.familylibrary.event.BookshelfChangedEvent;
+import com.familylibrary.event.FamilyMembershipChangedEvent;
+import com.familylibrary.repository.BookLendingRepository;
+import com.familylibrary.repository.BookRepository;
+import com.familylibrary.repository.BookshelfRepository;
+import com.familylibrary.repository.FamilyRepository;
+import com.familylibrary.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Answers {@code hasPermission(#id, 'Bookshelf' | 'Book' | 'BookLending', 'read' | 'write')} in
+ * {@code @PreAuthorize} expressions from family membership.
+ * <p>
+ * Rules: a bookshelf is readable by its owner and, unless private, by members of its family; it is
+ * writable by its owner, or by any family member when it has no owner. Books follow their bookshelf,
+ * and whoever added a book may always read and change it. Lendings are readable by their two parties
+ * and by anyone who can read the book, and writable only by the two parties.
+ * <p>
+ * Everything a decision needs (username to id, user to families, bookshelf to owner/family/privacy,
+ * book to bookshelf, lending to parties) is cached in memory, so a check after warm-up costs a few
+ * map lookups instead of queries against user_families. Entries are evicted by
+ * {@link FamilyMembershipChangedEvent} and {@link BookshelfChangedEvent} after the change commits;
+ * the remaining mappings never change once written. Every eviction bumps a generation counter, and a
+ * value loaded across an eviction is dropped instead of cached, so a read that raced the change
+ * cannot write the old state back. Each cache is cleared when it reaches
+ * {@code permissions.cache.max-entries} so memory stays bounded.
+ */
+@Service
+public class FamilyPermissionEvaluator implements PermissionEvaluator {
+
+    private static final Logger logger = LoggerFactory.getLogger(FamilyPermissionEvaluator.class);
+
+    private final UserRepository userRepository;
+    private final FamilyRepository familyRepository;
+    private final BookshelfRepository bookshelfRepository;
+    private final BookRepository bookRepository;
+    private final BookLendingRepository bookLendingRepository;
+    private final int maxEntries;
+
+    private final Map<String, Long> userIdsByUsername = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> familiesByUser = new ConcurrentHashMap<>();
+    private final Map<Long, ShelfAccess> shelves = new ConcurrentHashMap<>();
+    private final Map<Long, BookAccess> books = new ConcurrentHashMap<>();
+    private final Map<Long, LendingAccess> lendings = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public FamilyPermissionEvaluator(UserRepository userRepository,
+                                     FamilyRepository familyRepository,
+                                     BookshelfRepository bookshelfRepository,
+                                     BookRepository bookRepository,
+                                     BookLendingRepository bookLendingRepository,
+                                     @Value("${permissions.cache.max-entries:10000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.familyRepository = familyRepository;
+        this.bookshelfRepository = bookshelfRepository;
+        this.bookRepository = bookRepository;
+        this.bookLendingRepository = bookLendingRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
+        // Only id-based checks are supported: hasPermission(#id, 'Type', 'read')
+        return false;
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission) {
+        if (authentication == null || !authentication.isAuthenticated() || !(targetId instanceof Number)) {
+            return false;
+        }
+        Long userId = currentUserId(authentication);
+        if (userId == null) {
+            return false;
+        }
+        Long id = ((Number) targetId).longValue();
+        boolean write = "write".equalsIgnoreCase(String.valueOf(permission));
+        boolean granted = switch (targetType) {
+            case "Bookshelf" -> write ? canWriteBookshelf(userId, id) : canReadBookshelf(userId, id);
+            case "Book" -> write ? canWriteBook(userId, id) : canReadBook(userId, id);
+            case "BookLending" -> write ? canWriteLending(userId, id) : canReadLending(userId, id);
+            default -> false;
+        };
+        if (!granted) {
+            logger.debug("Denied {} on {} {} for user {}", permission, targetType, id, userId);
+        }
+        return granted;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(FamilyMembershipChangedEvent event) {
+        generation.incrementAndGet(); // Before removing, so a load in flight sees it
+        familiesByUser.remove(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookshelfChanged(BookshelfChangedEvent event) {
+        generation.incrementAndGet();
+        shelves.remove(event.getBookshelfId());
+        // Deleting a bookshelf deletes its books.
+        books.values().removeIf(book -> event.getBookshelfId().equals(book.bookshelfId()));
+    }
+
+    private boolean canReadBookshelf(Long userId, Long bookshelfId) {
+        ShelfAccess shelf = shelf(bookshelfId);
+        if (shelf == null) {
+            return false;
+        }
+        return userId.equals(shelf.ownerId()) || (!shelf.privateShelf() && isMember(userId, shelf.familyId()));
+    }
+
+    private boolean canWriteBookshelf(Long userId, Long bookshelfId) {
+        ShelfAccess shelf = shelf(bookshelfId);
+        if (shelf == null) {
+            return false;
+        }
+        return userId.equals(shelf.ownerId()) || (shelf.ownerId() == null && isMember(userId, shelf.familyId()));
+    }
+
+    private boolean canReadBook(Long userId, Long bookId) {
+        BookAccess book = book(bookId);
+        if (book == null) {
+            return false;
+        }
+        return userId.equals(book.addedById()) || (book.bookshelfId() != null && canReadBookshelf(userId, book.bookshelfId()));
+    }
+
+    private boolean canWriteBook(Long userId, Long bookId) {
+        BookAccess book = book(bookId);
+        if (book == null) {
+            return false;
+        }
+        return userId.equals(book.addedById()) || (book.bookshelfId() != null && canWriteBookshelf(userId, book.bookshelfId()));
+    }
+
+    private boolean canReadLending(Long userId, Long lendingId) {
+        LendingAccess lending = lending(lendingId);
+        if (lending == null) {
+            return false;
+        }
+        return isParty(userId, lending) || canReadBook(userId, lending.bookId());
+    }
+
+    private boolean canWriteLending(Long userId, Long lendingId) {
+        LendingAccess lending = lending(lendingId);
+        return lending != null && isParty(userId, lending);
+    }
+
+    private boolean isParty(Long userId, LendingAccess lending) {
+        return userId.equals(lending.lenderId()) || userId.equals(lending.borrowerId());
+    }
+
+    private boolean isMember(Long userId, Long familyId) {
+        if (familyId == null) {
+            return false;
+        }
+        Set<Long> familyIds = cached(familiesByUser, userId, id -> Set.copyOf(familyRepository.findIdsByMemberId(id)));
+        return familyIds.contains(familyId);
+    }
+
+    private Long currentUserId(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof JwtUserPrincipal principal) {
+            return principal.getUserId();
+        }
+        String username = authentication.getName();
+        Long userId = userIdsByUsername.get(username);
+        if (userId == null) {
+            userId = userRepository.findIdByUsername(username).orElse(null);
+            if (userId != null) {
+                put(userIdsByUsername, username, userId);
+            }
+        }
+        return userId;
+    }
+
+    private ShelfAccess shelf(Long bookshelfId) {
+        return cached(shelves, bookshelfId, id -> bookshelfRepository.findAccessViewById(id)
+                .map(view -> new ShelfAccess(view.getOwnerId(), view.getFamilyId(), Boolean.TRUE.equals(view.getPrivateShelf())))
+                .orElse(null));
+    }
+
+    private BookAccess book(Long bookId) {
+        return cached(books, bookId, id -> bookRepository.findAccessViewById(id)
+                .map(view -> new BookAccess(view.getBookshelfId(), view.getAddedById()))
+                .orElse(null));
+    }
+
+    private LendingAccess lending(Long lendingId) {
+        return cached(lendings, lendingId, id -> bookLendingRepository.findAccessViewById(id)
+                .map(view -> new LendingAccess(view.getBookId(), view.getLenderId(), view.getBorrowerId()))
+                .orElse(null));
+    }
+
+    // Loads outside computeIfAbsent so a slow query never blocks other keys; missing rows are not cached.
+    private <K, V> V cached(Map<K, V> cache, K key, Function<K, V> loader) {
+        V value = cache.get(key);
+        if (value == null) {
+            long loadedAt = generation.get();
+            value = loader.apply(key);
+            if (value != null && generation.get() == loadedAt) {
+                put(cache, key, value);
+                // An eviction between the check and the put may have missed this entry; undo it.
+                if (generation.get() != loadedAt) {
+                    cache.remove(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    private <K, V> void put(Map<K, V> cache, K key, V value) {
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+        cache.put(key, value);
+    }
+
+    private record ShelfAccess(Long ownerId, Long familyId, boolean privateShelf) {
+    }
+
+    private record BookAccess(Long bookshelfId, Long addedById) {
+    }
+
+    private record LendingAccess(Long bookId, Long lenderId, Long borrowerId) {
+    }
+}
@@ -3,13 +3,18 @@ package com.familylibrary.service;
 import com.familylibrary.dto.FamilyDto;
 import com.familylibrary.dto.CreateFamilyRequest;
 import com.familylibrary.dto.UserDto;
+import com.familylibrary.event.BookshelfChangedEvent;
+import com.familylibrary.event.FamilyMembershipChangedEvent;
 import com.familylibrary.model.Family;
 import com.familylibrary.model.User;
+import com.familylibrary.repository.BookshelfRepository;
 import com.familylibrary.repository.FamilyRepository;
 import com.familylibrary.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -17,7 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +31,9 @@ public class FamilyService {
 
     private final FamilyRepository familyRepository;
     private final UserRepository userRepository;
+    private final BookshelfRepository bookshelfRepository;
+    private final PresenceRegistry presenceRegistry;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public FamilyDto createFamily(CreateFamilyRequest request) {
@@ -55,6 +63,7 @@ public class FamilyService {
 
         Family savedFamily = familyRepository.save(family); // Save family first, which might generate ID
         userRepository.save(currentUser); // Then save user with the new family association
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(currentUser.getId(), savedFamily.getId()));
 
         return convertToDto(savedFamily);
     }
@@ -93,6 +102,7 @@ public class FamilyService {
         family.getMembers().add(user);
         
         userRepository.save(user); // This should cascade and update the join table
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(userId, familyId));
         // familyRepository.save(family); // Not strictly necessary if User is owning side and cascades correctly
         return convertToDto(familyRepository.findById(familyId).orElseThrow()); // Re-fetch to get updated state
     }
@@ -108,6 +118,7 @@ public class FamilyService {
         family.getMembers().remove(user);
 
         userRepository.save(user);
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(userId, familyId));
         return convertToDto(familyRepository.findById(familyId).orElseThrow());
     }
     
@@ -119,46 +130,59 @@ public class FamilyService {
         if (!family.getMembers().isEmpty()) {
              throw new DataIntegrityViolationException("Cannot delete family with id " + familyId + " as it still has members. Please remove members first.");
         }
-        
+        // No members means no membership to evict; the family's bookshelves are what cached permissions still know.
+        List<Long> bookshelfIds = bookshelfRepository.findIdsByFamilyId(familyId);
+
         familyRepository.deleteById(familyId);
+        bookshelfIds.forEach(bookshelfId -> eventPublisher.publishEvent(new BookshelfChangedEvent(bookshelfId)));
     }
 
+    /**
+     * The family the current request acts on: {@code familyId} (from the X-Family-Id header or the path)
+     * when given, otherwise the user's lowest-id family so the choice is stable across requests.
+     * Returns null when the user belongs to no family.
+     */
     @Transactional(readOnly = true)
-    public FamilyDto getFamilyForCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        String username;
-        if (principal instanceof UserDetails) {
-            username = ((UserDetails)principal).getUsername();
-        } else {
-            username = principal.toString();
-        }
-
-        User currentUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("Current user not found: " + username));
+    public FamilyDto getFamilyForCurrentUser(Long familyId) {
+        return findContextFamily(familyId).map(this::convertToDto).orElse(null);
+    }
 
-        // Assuming a user belongs to one primary family or we take the first one.
-        // This logic might need refinement based on your exact requirements (e.g., if a user can be in multiple families)
-        if (currentUser.getFamilies() != null && !currentUser.getFamilies().isEmpty()) {
-            Family currentFamily = currentUser.getFamilies().iterator().next(); // Get the first family
-            return convertToDto(currentFamily);
-        }
-        return null; // Or throw an exception if a user is expected to always have a family
+    @Transactional(readOnly = true)
+    public List<UserDto> getUsersForCurrentFamily(Long familyId) {
+        return findContextFamily(familyId)
+                .map(family -> family.getMembers().stream()
+                        .map(this::convertToUserDto)
+                        .collect(Collectors.toList()))
+                .orElse(Collections.emptyList());
     }
 
+    /**
+     * Id of the current family context without loading the family itself; empty when the user has no family.
+     */
     @Transactional(readOnly = true)
-    public List<UserDto> getUsersForCurrentFamily() {
-        FamilyDto currentFamilyDto = getFamilyForCurrentUser();
-        if (currentFamilyDto == null) {
-            // Handle case where current user has no family or family couldn't be determined
-            return Collections.emptyList(); 
+    public Optional<Long> resolveFamilyIdForCurrentUser(Long familyId) {
+        Optional<Long> resolved = familyRepository.findContextFamilyId(currentUsername(), familyId);
+        if (resolved.isEmpty() && familyId != null) {
+            throw new EntityNotFoundException("Family not found with id: " + familyId + " for current user");
         }
+        return resolved;
+    }
 
-        Family currentFamily = familyRepository.findById(currentFamilyDto.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Family not found with id: " + currentFamilyDto.getId()));
+    private Optional<Family> findContextFamily(Long familyId) {
+        Optional<Family> family = familyRepository.findContextFamilyWithMembers(currentUsername(), familyId);
+        if (family.isEmpty() && familyId != null) {
+            // Same answer whether the family doesn't exist or the user just isn't a member of it.
+            throw new EntityNotFoundException("Family not found with id: " + familyId + " for current user");
+        }
+        return family;
+    }
 
-        return currentFamily.getMembers().stream()
-                .map(this::convertToUserDto)
-                .collect(Collectors.toList());
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) {
+            throw new IllegalStateException("User not authenticated. Anonymous access not allowed for this operation.");
+        }
+        return authentication.getName();
     }
 
     private FamilyDto convertToDto(Family family) {
@@ -178,7 +202,7 @@ public class FamilyService {
         dto.setDisplayName(user.getDisplayName());
         dto.setEmail(user.getEmail());
         dto.setAvatar(user.getAvatar());
-        // dto.setIsOnline(user.getIsOnline()); // Assuming isOnline is a field in User model and UserDto
+        dto.setOnline(presenceRegistry.isOnline(user.getId()));
         // Add other necessary fields from User to UserDto
         return dto;
     }
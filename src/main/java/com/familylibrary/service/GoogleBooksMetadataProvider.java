@@ -0,0 +1,113 @@
+package com.familylibrary.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class GoogleBooksMetadataProvider implements MetadataProvider {
+
+    private final String apiKey;
+    private final String baseUrl;
+    private final boolean enabled;
+    private final long hedgeDelayMillis;
+    private final long timeoutMillis;
+    private final RestTemplate restTemplate;
+
+    public GoogleBooksMetadataProvider(@Value("${google.books.api.key}") String apiKey,
+                                       @Value("${books.metadata.providers.google-books.base-url:https://www.googleapis.com/books/v1}") String baseUrl,
+                                       @Value("${books.metadata.providers.google-books.enabled:true}") boolean enabled,
+                                       @Value("${books.metadata.providers.google-books.hedge-delay-ms:50}") long hedgeDelayMillis,
+                                       @Value("${books.metadata.providers.google-books.timeout-ms:2500}") long timeoutMillis) {
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.enabled = enabled;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.timeoutMillis = timeoutMillis;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) timeoutMillis);
+        requestFactory.setReadTimeout((int) timeoutMillis);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public String getName() {
+        return "google-books";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean supportsTitleSearch() {
+        return true;
+    }
+
+    @Override
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    @Override
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public Map<String, Object> findByIsbn(String isbn13) {
+        Map<String, Object> volumeInfo = firstVolume(baseUrl + "/volumes?q=isbn:{isbn}&key={key}", isbn13);
+        return volumeInfo != null ? toResult(volumeInfo, isbn13) : null;
+    }
+
+    @Override
+    public Map<String, Object> searchByTitle(String title) {
+        Map<String, Object> volumeInfo = firstVolume(baseUrl + "/volumes?q=intitle:{title}&key={key}", title);
+        return volumeInfo != null ? toResult(volumeInfo, extractIsbnFromIndustryIdentifiers(volumeInfo)) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> firstVolume(String urlTemplate, String query) {
+        Map<String, Object> response = restTemplate.getForObject(urlTemplate, Map.class, query, apiKey);
+
+        if (response != null && response.containsKey("items") && ((List<?>) response.get("items")).size() > 0) {
+            Map<String, Object> bookInfo = (Map<String, Object>) ((List<?>) response.get("items")).get(0);
+            return (Map<String, Object>) bookInfo.get("volumeInfo");
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toResult(Map<String, Object> volumeInfo, String isbn) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("title", volumeInfo.get("title"));
+        result.put("authors", volumeInfo.get("authors"));
+        result.put("publisher", volumeInfo.get("publisher"));
+        result.put("publishedDate", volumeInfo.get("publishedDate"));
+        result.put("description", volumeInfo.get("description"));
+        result.put("isbn", isbn);
+        result.put("imageUrl", volumeInfo.get("imageLinks") != null ?
+            ((Map<String, Object>) volumeInfo.get("imageLinks")).get("thumbnail") : null);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String extractIsbnFromIndustryIdentifiers(Map<String, Object> volumeInfo) {
+        if (volumeInfo.containsKey("industryIdentifiers")) {
+            List<Map<String, Object>> identifiers = (List<Map<String, Object>>) volumeInfo.get("industryIdentifiers");
+            for (Map<String, Object> identifier : identifiers) {
+                String type = (String) identifier.get("type");
+                if ("ISBN_13".equals(type)) {
+                    return (String) identifier.get("identifier");
+                }
+            }
+        }
+        return null;
+    }
+}
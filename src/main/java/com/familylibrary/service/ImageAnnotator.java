@@ -0,0 +1,24 @@
+package com.familylibrary.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs Vision annotation requests. {@link VisionImageAnnotator} calls Google Cloud Vision;
+ * {@link FakeImageAnnotator} (google.cloud.vision.annotator=fake) answers locally for
+ * development and tests.
+ */
+public interface ImageAnnotator {
+
+    /**
+     * Annotates at most {@link #getMaxBatchSize()} images in one round trip.
+     *
+     * @return one response per request, in request order
+     */
+    List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) throws IOException;
+
+    int getMaxBatchSize();
+}
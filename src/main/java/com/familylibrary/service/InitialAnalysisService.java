@@ -0,0 +1,235 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.BookRecommendationDto;
+import com.familylibrary.dto.InitialAIAnalysisResponseDto;
+import com.familylibrary.event.BookAddedEvent;
+import com.familylibrary.model.AiAnalysis;
+import com.familylibrary.model.User;
+import com.familylibrary.repository.AiAnalysisRepository;
+import com.familylibrary.repository.BookRepository;
+import com.familylibrary.repository.projection.BookVersionView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the dashboard's AI reading analysis from the {@code ai_analyses} table instead of calling
+ * DeepSeek on every load.
+ * <p>
+ * Each stored analysis carries a fingerprint of the book list it was generated from (SHA-256 of
+ * the user's book ids and update times, in id order), computed from a two-column projection. A
+ * matching fingerprint is served as is. A stale one is still served at once, flagged
+ * {@code stale}, while a fresh analysis is generated in the background. Only a user's very first
+ * analysis is generated on the request thread. Adding a book schedules a regeneration after
+ * {@code regenerate-delay-ms}, so bulk adds cost one LLM call; removals are picked up by the
+ * fingerprint on the next load. Generations are coalesced per user and failures are never stored.
+ */
+@Service
+public class InitialAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InitialAnalysisService.class);
+    private static final TypeReference<List<BookRecommendationDto>> RECOMMENDATIONS_TYPE = new TypeReference<>() {};
+    private static final String UNAVAILABLE = "抱歉，AI分析服务暂时不可用，请稍后再试。";
+
+    private final DeepSeekService deepSeekService;
+    private final RecommendationResolver recommendationResolver;
+    private final UserService userService;
+    private final BookRepository bookRepository;
+    private final AiAnalysisRepository aiAnalysisRepository;
+    private final ObjectMapper objectMapper;
+    private final long regenerateDelayMillis;
+    private final long firstGenerationTimeoutMillis;
+    private final ScheduledExecutorService executor;
+
+    private final Map<Long, CompletableFuture<InitialAIAnalysisResponseDto>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> scheduled = new ConcurrentHashMap<>();
+
+    public InitialAnalysisService(DeepSeekService deepSeekService, RecommendationResolver recommendationResolver, UserService userService,
+                                  BookRepository bookRepository, AiAnalysisRepository aiAnalysisRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${ai.analysis.regenerate-delay-ms:30000}") long regenerateDelayMillis,
+                                  @Value("${ai.analysis.first-generation-timeout-ms:60000}") long firstGenerationTimeoutMillis,
+                                  @Value("${ai.analysis.threads:2}") int threads) {
+        this.deepSeekService = deepSeekService;
+        this.recommendationResolver = recommendationResolver;
+        this.userService = userService;
+        this.bookRepository = bookRepository;
+        this.aiAnalysisRepository = aiAnalysisRepository;
+        this.objectMapper = objectMapper;
+        this.regenerateDelayMillis = regenerateDelayMillis;
+        this.firstGenerationTimeoutMillis = firstGenerationTimeoutMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ai-analysis-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the analysis for the current user, or null if there is no authenticated user
+     */
+    public InitialAIAnalysisResponseDto getForCurrentUser() {
+        User currentUser = userService.getCurrentUser();
+        if (currentUser == null) {
+            return null;
+        }
+        Long userId = currentUser.getId();
+        List<BookVersionView> versions = bookRepository.findVersionsByAddedById(userId);
+        if (versions.isEmpty()) {
+            return deepSeekService.generateInitialAnalysis(userId); // Fixed "add some books" text, no AI call
+        }
+        String fingerprint = fingerprint(versions);
+
+        AiAnalysis stored = aiAnalysisRepository.findById(userId).orElse(null);
+        if (stored != null) {
+            boolean stale = !fingerprint.equals(stored.getFingerprint());
+            if (stale) {
+                regenerate(userId);
+            }
+            return withAvailability(userId, toDto(stored, stale));
+        }
+
+        try {
+            InitialAIAnalysisResponseDto generated = regenerate(userId).get(firstGenerationTimeoutMillis, TimeUnit.MILLISECONDS);
+            return generated != null ? withAvailability(userId, generated) : unavailable();
+        } catch (TimeoutException e) {
+            return unavailable(); // Keeps running; stored for the next load
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return unavailable();
+        } catch (ExecutionException e) {
+            return unavailable();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookAdded(BookAddedEvent event) {
+        Long userId = event.getUserId();
+        if (userId == null || scheduled.putIfAbsent(userId, Boolean.TRUE) != null) {
+            return; // Already pending: a bulk add shares one regeneration
+        }
+        // Nothing to refresh before the first analysis; that one is generated when first requested.
+        if (!aiAnalysisRepository.existsById(userId)) {
+            scheduled.remove(userId);
+            return;
+        }
+        executor.schedule(() -> {
+            scheduled.remove(userId);
+            regenerate(userId);
+        }, regenerateDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Starts a generation for {@code userId}, or joins the one already running. */
+    private CompletableFuture<InitialAIAnalysisResponseDto> regenerate(Long userId) {
+        CompletableFuture<InitialAIAnalysisResponseDto> mine = new CompletableFuture<>();
+        CompletableFuture<InitialAIAnalysisResponseDto> existing = inFlight.putIfAbsent(userId, mine);
+        if (existing != null) {
+            return existing;
+        }
+        executor.execute(() -> {
+            try {
+                mine.complete(generateAndStore(userId));
+            } catch (RuntimeException e) {
+                logger.warn("AI analysis for user {} failed: {}", userId, e.getMessage());
+                mine.completeExceptionally(e);
+            } finally {
+                inFlight.remove(userId, mine);
+            }
+        });
+        return mine;
+    }
+
+    private InitialAIAnalysisResponseDto generateAndStore(Long userId) {
+        // Fingerprint first: books added while the model runs make the stored result stale, not lost.
+        String fingerprint = fingerprint(bookRepository.findVersionsByAddedById(userId));
+        long start = System.nanoTime();
+        InitialAIAnalysisResponseDto generated = deepSeekService.generateInitialAnalysis(userId);
+        if (generated == null || generated.getGeneratedAt() == null) {
+            return generated; // Unavailable or no books: nothing worth storing
+        }
+        AiAnalysis row = new AiAnalysis();
+        row.setUserId(userId);
+        row.setFingerprint(fingerprint);
+        row.setAnalysisText(generated.getAnalysisText());
+        row.setGeneratedAt(generated.getGeneratedAt());
+        try {
+            row.setRecommendations(objectMapper.writeValueAsString(generated.getRecommendedBooks()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize recommendations", e);
+        }
+        aiAnalysisRepository.save(row);
+        logger.info("Generated AI analysis for user {} in {} ms", userId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return generated;
+    }
+
+    // Lending changes without touching the fingerprint, so availability is resolved per read, never stored.
+    private InitialAIAnalysisResponseDto withAvailability(Long userId, InitialAIAnalysisResponseDto analysis) {
+        recommendationResolver.resolveAvailability(userId, analysis.getRecommendedBooks());
+        return analysis;
+    }
+
+    private InitialAIAnalysisResponseDto toDto(AiAnalysis stored, boolean stale) {
+        InitialAIAnalysisResponseDto dto = new InitialAIAnalysisResponseDto();
+        dto.setAnalysisText(stored.getAnalysisText());
+        dto.setGeneratedAt(stored.getGeneratedAt());
+        dto.setStale(stale);
+        try {
+            dto.setRecommendedBooks(stored.getRecommendations() != null
+                    ? objectMapper.readValue(stored.getRecommendations(), RECOMMENDATIONS_TYPE)
+                    : new ArrayList<>());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt ai_analyses recommendations", e);
+        }
+        return dto;
+    }
+
+    private static InitialAIAnalysisResponseDto unavailable() {
+        InitialAIAnalysisResponseDto errorResponse = new InitialAIAnalysisResponseDto();
+        errorResponse.setAnalysisText(UNAVAILABLE);
+        errorResponse.setRecommendedBooks(new ArrayList<>());
+        return errorResponse;
+    }
+
+    static String fingerprint(List<BookVersionView> versions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (BookVersionView version : versions) {
+                long updated = version.getUpdatedAt() != null ? version.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+                digest.update((version.getId() + ":" + updated + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
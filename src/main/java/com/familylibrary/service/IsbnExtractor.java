@@ -0,0 +1,105 @@
+package com.familylibrary.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the ISBNs in OCR text, best candidate first.
+ * <p>
+ * Every digit run that could be an ISBN is collected (separators and a few common OCR confusions
+ * tolerated), checked against the ISBN-10 / ISBN-13 check digits and normalized to ISBN-13, so
+ * phone numbers, prices and dates drop out before any catalog call. Candidates are then scored:
+ * a nearby "ISBN" label counts most, ISBN-13 form and repeated sightings (e.g. label text plus
+ * the digits under the barcode) add to it.
+ */
+@Service
+public class IsbnExtractor {
+
+    // A digit run of 10 to 13+ digits, allowing single separators between digits.
+    private static final Pattern DIGIT_RUN = Pattern.compile("(?<![0-9A-Za-z])[0-9](?:[ \\-‐–.]?[0-9]){8,}(?:[ \\-‐–.]?[0-9Xx])?(?![0-9])");
+    private static final Pattern LABEL = Pattern.compile("(?i)\\bISBN(?:[- ]?1[03])?\\b|书号");
+    // After a label OCR often reads 0 as O and 1 as l/I; only fixed up right behind a label.
+    private static final Pattern LABELLED = Pattern.compile("(?i)(?:\\bISBN(?:[- ]?1[03])?|书号)\\s*[:：]?\\s*([0-9OoIl|][0-9OoIl| \\-‐–]{8,20}[0-9OoIl|Xx])");
+
+    private static final int LABEL_WINDOW = 40;
+
+    /**
+     * @return distinct ISBN-13s, highest score first
+     */
+    public List<String> extract(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<Integer> labels = new ArrayList<>();
+        Matcher label = LABEL.matcher(text);
+        while (label.find()) {
+            labels.add(label.end());
+        }
+
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        Matcher run = DIGIT_RUN.matcher(text);
+        while (run.find()) {
+            addRun(candidates, run.group(), run.start(), labels);
+        }
+        Matcher labelled = LABELLED.matcher(text);
+        while (labelled.find()) {
+            String repaired = labelled.group(1).replaceAll("[Oo]", "0").replaceAll("[Il|]", "1");
+            if (!repaired.equals(labelled.group(1))) {
+                addRun(candidates, repaired, labelled.start(1), labels);
+            }
+        }
+
+        return candidates.values().stream()
+                .sorted(Comparator.comparingDouble(Candidate::score).reversed().thenComparingInt(Candidate::position))
+                .map(Candidate::isbn13)
+                .toList();
+    }
+
+    private void addRun(Map<String, Candidate> candidates, String run, int position, List<Integer> labels) {
+        String digits = run.replaceAll("[^0-9Xx]", "").toUpperCase();
+        double labelBonus = labelBonus(position, labels);
+        if (digits.length() == 10 || digits.length() == 13) {
+            String isbn13 = IsbnUtils.toIsbn13(digits);
+            if (isbn13 != null) {
+                double score = labelBonus + (digits.length() == 13 ? 3 : 2) + (run.indexOf('-') >= 0 ? 1 : 0);
+                add(candidates, isbn13, score, position);
+                return;
+            }
+        }
+        // Runs merged with neighbouring numbers: only 978/979-prefixed windows are specific enough to trust.
+        for (int i = 0; i + 13 <= digits.length(); i++) {
+            String window = digits.substring(i, i + 13);
+            if ((window.startsWith("978") || window.startsWith("979")) && IsbnUtils.isValidIsbn13(window)) {
+                add(candidates, window, labelBonus + 1, position);
+            }
+        }
+    }
+
+    private static void add(Map<String, Candidate> candidates, String isbn13, double score, int position) {
+        candidates.merge(isbn13, new Candidate(isbn13, score, position),
+                (existing, found) -> new Candidate(isbn13, Math.max(existing.score(), found.score()) + 2,
+                        Math.min(existing.position(), found.position())));
+    }
+
+    // Closest preceding label within the window: 10 points right behind it, fading with distance.
+    private static double labelBonus(int position, List<Integer> labels) {
+        double best = 0;
+        for (int labelEnd : labels) {
+            int distance = position - labelEnd;
+            if (distance >= 0 && distance <= LABEL_WINDOW) {
+                best = Math.max(best, 10 - distance / 4.0);
+            }
+        }
+        return best;
+    }
+
+    private record Candidate(String isbn13, double score, int position) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.familylibrary.service;
+
+/**
+ * ISBN checksum validation and normalization to ISBN-13.
+ */
+public final class IsbnUtils {
+
+    private IsbnUtils() {
+    }
+
+    /**
+     * Normalizes an ISBN-10 or ISBN-13 (hyphens, spaces and an "ISBN" prefix allowed) to its 13
+     * digits.
+     *
+     * @return the ISBN-13, or null if the input is not a checksum-valid ISBN
+     */
+    public static String toIsbn13(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String digits = isbn.toUpperCase().replaceAll("[^0-9X]", "");
+        if (digits.length() == 13 && isValidIsbn13(digits)) {
+            return digits;
+        }
+        if (digits.length() == 10 && isValidIsbn10(digits)) {
+            String body = "978" + digits.substring(0, 9);
+            return body + isbn13CheckDigit(body);
+        }
+        return null;
+    }
+
+    /**
+     * @return the ISBN-10 form of a valid 978-prefixed ISBN-13, otherwise null
+     */
+    public static String toIsbn10(String isbn13) {
+        if (isbn13 == null || !isbn13.startsWith("978") || !isValidIsbn13(isbn13)) {
+            return null;
+        }
+        String body = isbn13.substring(3, 12);
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (body.charAt(i) - '0') * (10 - i);
+        }
+        int check = (11 - sum % 11) % 11;
+        return body + (check == 10 ? "X" : String.valueOf(check));
+    }
+
+    public static boolean isValidIsbn13(String digits) {
+        if (digits.length() != 13 || !(digits.startsWith("978") || digits.startsWith("979"))) {
+            return false;
+        }
+        for (int i = 0; i < 13; i++) {
+            if (!Character.isDigit(digits.charAt(i))) {
+                return false;
+            }
+        }
+        return isbn13CheckDigit(digits.substring(0, 12)) == digits.charAt(12) - '0';
+    }
+
+    public static boolean isValidIsbn10(String digits) {
+        if (digits.length() != 10) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            int value;
+            if (c == 'X' && i == 9) {
+                value = 10;
+            } else if (Character.isDigit(c)) {
+                value = c - '0';
+            } else {
+                return false;
+            }
+            sum += value * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static int isbn13CheckDigit(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
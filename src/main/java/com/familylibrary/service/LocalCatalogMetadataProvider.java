@@ -0,0 +1,80 @@
+package com.familylibrary.service;
+
+import com.familylibrary.model.Book;
+import com.familylibrary.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Books some family already catalogued. No network, so it answers first for anything on a shelf.
+ */
+@Service
+public class LocalCatalogMetadataProvider implements MetadataProvider {
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final long hedgeDelayMillis;
+    private final long timeoutMillis;
+
+    public LocalCatalogMetadataProvider(BookRepository bookRepository,
+                                        @Value("${books.metadata.providers.local-catalog.enabled:true}") boolean enabled,
+                                        @Value("${books.metadata.providers.local-catalog.hedge-delay-ms:0}") long hedgeDelayMillis,
+                                        @Value("${books.metadata.providers.local-catalog.timeout-ms:500}") long timeoutMillis) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String getName() {
+        return "local-catalog";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isAuthoritative() {
+        return false; // Not on a family shelf says nothing about whether the book exists
+    }
+
+    @Override
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    @Override
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public Map<String, Object> findByIsbn(String isbn13) {
+        // Books may have been entered with the ISBN-10 printed on older editions.
+        Optional<Book> book = bookRepository.findByIsbn(isbn13);
+        if (book.isEmpty() && isbn13.startsWith("978")) {
+            book = bookRepository.findByIsbn(IsbnUtils.toIsbn10(isbn13));
+        }
+        return book.map(found -> toResult(found, isbn13)).orElse(null);
+    }
+
+    private Map<String, Object> toResult(Book book, String isbn13) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("title", book.getTitle());
+        result.put("authors", book.getAuthor() != null ? List.of(book.getAuthor()) : null);
+        result.put("publisher", book.getPublisher());
+        result.put("publishedDate", book.getPublicationDate() != null ? book.getPublicationDate().toString() : null);
+        result.put("description", book.getDescription());
+        result.put("isbn", isbn13);
+        result.put("imageUrl", book.getCoverImageUrl());
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package com.familylibrary.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-window limits on authentication attempts, checked before any password is hashed.
+ * <p>
+ * Each client IP may make {@code max-attempts-per-ip} login/register attempts per window, and each
+ * username may fail {@code max-failures-per-username} times per window regardless of where the
+ * attempts come from. A successful login clears the username's failures. Throttled attempts never
+ * reach the hashing pool, so a credential-stuffing burst costs a map lookup per request.
+ * <p>
+ * Counters are per instance; behind a proxy configure {@code server.forward-headers-strategy}
+ * so the remote address is the real client.
+ */
+@Service
+public class LoginAttemptThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginAttemptThrottle.class);
+
+    private final long windowMillis;
+    private final int maxAttemptsPerIp;
+    private final int maxFailuresPerUsername;
+
+    private final Map<String, Window> attemptsByIp = new ConcurrentHashMap<>();
+    private final Map<String, Window> failuresByUsername = new ConcurrentHashMap<>();
+    private final AtomicLong throttledByIp = new AtomicLong();
+    private final AtomicLong throttledByUsername = new AtomicLong();
+
+    public LoginAttemptThrottle(@Value("${auth.throttle.window-seconds:300}") long windowSeconds,
+                                @Value("${auth.throttle.max-attempts-per-ip:30}") int maxAttemptsPerIp,
+                                @Value("${auth.throttle.max-failures-per-username:5}") int maxFailuresPerUsername) {
+        this.windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+    }
+
+    /**
+     * Counts an attempt from {@code ip} for {@code username}.
+     *
+     * @return 0 if the attempt may proceed, otherwise seconds until the caller may retry
+     */
+    public long tryAcquire(String username, String ip) {
+        long now = System.currentTimeMillis();
+        if (username != null) {
+            Window failures = failuresByUsername.get(normalize(username));
+            if (failures != null && failures.count(now, windowMillis) >= maxFailuresPerUsername) {
+                throttledByUsername.incrementAndGet();
+                logger.debug("Login for '{}' throttled after repeated failures", username);
+                return failures.secondsUntilReset(now, windowMillis);
+            }
+        }
+        if (ip != null) {
+            Window attempts = attemptsByIp.computeIfAbsent(ip, key -> new Window());
+            if (attempts.increment(now, windowMillis) > maxAttemptsPerIp) {
+                throttledByIp.incrementAndGet();
+                logger.debug("Authentication attempts from {} throttled", ip);
+                return attempts.secondsUntilReset(now, windowMillis);
+            }
+        }
+        return 0;
+    }
+
+    public void recordFailure(String username) {
+        if (username != null) {
+            failuresByUsername.computeIfAbsent(normalize(username), key -> new Window())
+                    .increment(System.currentTimeMillis(), windowMillis);
+        }
+    }
+
+    public void recordSuccess(String username) {
+        if (username != null) {
+            failuresByUsername.remove(normalize(username));
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("trackedIps", attemptsByIp.size());
+        metrics.put("trackedUsernames", failuresByUsername.size());
+        metrics.put("throttledByIp", throttledByIp.get());
+        metrics.put("throttledByUsername", throttledByUsername.get());
+        return metrics;
+    }
+
+    @Scheduled(fixedDelayString = "${auth.throttle.sweep-interval-ms:60000}")
+    void sweep() {
+        long now = System.currentTimeMillis();
+        attemptsByIp.values().removeIf(window -> window.isExpired(now, windowMillis));
+        failuresByUsername.values().removeIf(window -> window.isExpired(now, windowMillis));
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Window {
+        private long startedAt;
+        private int count;
+
+        synchronized int increment(long now, long windowMillis) {
+            roll(now, windowMillis);
+            return ++count;
+        }
+
+        synchronized int count(long now, long windowMillis) {
+            roll(now, windowMillis);
+            return count;
+        }
+
+        synchronized long secondsUntilReset(long now, long windowMillis) {
+            return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(startedAt + windowMillis - now));
+        }
+
+        synchronized boolean isExpired(long now, long windowMillis) {
+            return now - startedAt >= windowMillis;
+        }
+
+        private void roll(long now, long windowMillis) {
+            if (now - startedAt >= windowMillis) {
+                startedAt = now;
+                count = 0;
+            }
+        }
+    }
+}
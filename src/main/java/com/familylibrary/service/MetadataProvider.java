@@ -0,0 +1,39 @@
+package com.familylibrary.service;
+
+import java.util.Map;
+
+/**
+ * A source of book metadata for {@link MetadataProviderChain}. Results use the scan payload shape:
+ * title, authors (list), publisher, publishedDate, description, isbn, imageUrl.
+ * <p>
+ * Return null when the source has no match; throw (e.g. {@link org.springframework.web.client.RestClientException})
+ * when it could not answer, so a transient failure is never mistaken for a miss. Only a null from an
+ * {@link #isAuthoritative() authoritative} provider that supports the lookup counts as "not found".
+ */
+public interface MetadataProvider {
+
+    String getName();
+
+    boolean isEnabled();
+
+    /** How long the chain waits for earlier providers before also asking this one. */
+    long getHedgeDelayMillis();
+
+    /** Hard limit for one call; slower answers are ignored. */
+    long getTimeoutMillis();
+
+    /** Whether a null from this provider means the book is unknown, rather than just not held here. */
+    default boolean isAuthoritative() {
+        return true;
+    }
+
+    default boolean supportsTitleSearch() {
+        return false;
+    }
+
+    Map<String, Object> findByIsbn(String isbn13);
+
+    default Map<String, Object> searchByTitle(String title) {
+        return null;
+    }
+}
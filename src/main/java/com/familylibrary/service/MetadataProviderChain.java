@@ -0,0 +1,199 @@
+package com.familylibrary.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Asks the {@link MetadataProvider}s for a book with hedged requests; the first match wins.
+ * <p>
+ * Providers are ordered by hedge delay. Each one is started when its delay has passed without a
+ * match, or straight away once every provider started so far has missed or failed, so a slow
+ * upstream only costs its hedge delay rather than its full latency. Each call is bounded by the
+ * provider's timeout and the whole lookup by {@code total-budget-ms}. Title searches only go to
+ * providers that support them. The result is a miss (null) only if at least one authoritative
+ * provider actually answered "not found"; a non-authoritative null (the local catalog) is just no
+ * help. Otherwise the lookup throws, so callers don't cache an outage as a miss.
+ */
+@Service
+public class MetadataProviderChain {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataProviderChain.class);
+
+    private final List<MetadataProvider> providers;
+    private final List<MetadataProvider> titleProviders;
+    private final long totalBudgetMillis;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+
+    public MetadataProviderChain(List<MetadataProvider> providers,
+                                 @Value("${books.metadata.total-budget-ms:3000}") long totalBudgetMillis,
+                                 @Value("${books.metadata.threads:16}") int threads) {
+        this.providers = providers.stream()
+                .filter(MetadataProvider::isEnabled)
+                .sorted(Comparator.comparingLong(MetadataProvider::getHedgeDelayMillis))
+                .toList();
+        this.titleProviders = this.providers.stream()
+                .filter(MetadataProvider::supportsTitleSearch)
+                .toList();
+        this.totalBudgetMillis = totalBudgetMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "metadata-provider-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metadata-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Metadata providers: {}", this.providers.stream().map(MetadataProvider::getName).toList());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public Map<String, Object> findByIsbn(String isbn13) {
+        return lookup(providers, "isbn " + isbn13, (provider, query) -> provider.findByIsbn(query), isbn13);
+    }
+
+    public Map<String, Object> searchByTitle(String title) {
+        return lookup(titleProviders, "title '" + title + "'", (provider, query) -> provider.searchByTitle(query), title);
+    }
+
+    private Map<String, Object> lookup(List<MetadataProvider> providers, String description,
+                                       BiFunction<MetadataProvider, String, Map<String, Object>> call, String query) {
+        if (providers.isEmpty()) {
+            return null;
+        }
+        Lookup lookup = new Lookup(providers, call, query);
+        for (int i = 0; i < providers.size(); i++) {
+            int index = i;
+            long delay = providers.get(i).getHedgeDelayMillis();
+            if (delay <= 0) {
+                lookup.start(index);
+            } else {
+                scheduler.schedule(() -> lookup.start(index), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        try {
+            Map<String, Object> result = lookup.winner.get(totalBudgetMillis, TimeUnit.MILLISECONDS);
+            logger.debug("Metadata for {}: {}", description, result != null ? "from " + result.get("source") : "not found");
+            return result;
+        } catch (TimeoutException e) {
+            throw new ResourceAccessException("No metadata provider answered within " + totalBudgetMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for metadata providers");
+        } catch (ExecutionException e) {
+            throw new ResourceAccessException("All metadata providers failed: " + e.getCause().getMessage());
+        } finally {
+            lookup.winner.complete(null); // Unstarted hedges become no-ops
+        }
+    }
+
+    /** State of one hedged lookup. */
+    private final class Lookup {
+        private final List<MetadataProvider> providers;
+        private final BiFunction<MetadataProvider, String, Map<String, Object>> call;
+        private final String query;
+        private final CompletableFuture<Map<String, Object>> winner = new CompletableFuture<>();
+        private final AtomicBoolean[] started;
+        private final AtomicInteger outstanding;
+        private final AtomicInteger misses = new AtomicInteger();
+        private volatile Throwable lastFailure;
+
+        private Lookup(List<MetadataProvider> providers, BiFunction<MetadataProvider, String, Map<String, Object>> call, String query) {
+            this.providers = providers;
+            this.outstanding = new AtomicInteger(providers.size());
+            this.call = call;
+            this.query = query;
+            this.started = new AtomicBoolean[providers.size()];
+            for (int i = 0; i < started.length; i++) {
+                started[i] = new AtomicBoolean();
+            }
+        }
+
+        private void start(int index) {
+            if (winner.isDone() || !started[index].compareAndSet(false, true)) {
+                return;
+            }
+            MetadataProvider provider = providers.get(index);
+            long begin = System.nanoTime();
+            CompletableFuture.supplyAsync(() -> call.apply(provider, query), executor)
+                    .orTimeout(provider.getTimeoutMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((result, error) -> {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                        if (error != null) {
+                            logger.debug("Metadata provider {} failed after {} ms: {}", provider.getName(), millis, error.toString());
+                            lastFailure = error;
+                        } else if (result != null) {
+                            Map<String, Object> tagged = new HashMap<>(result);
+                            tagged.put("source", provider.getName());
+                            if (winner.complete(tagged)) {
+                                logger.debug("Metadata provider {} won after {} ms", provider.getName(), millis);
+                            }
+                        } else if (provider.isAuthoritative()) {
+                            misses.incrementAndGet();
+                        }
+                        if (error != null || result == null) {
+                            finishedWithoutMatch();
+                        }
+                    });
+        }
+
+        private void finishedWithoutMatch() {
+            if (outstanding.decrementAndGet() == 0) {
+                if (misses.get() > 0) {
+                    winner.complete(null);
+                } else {
+                    winner.completeExceptionally(lastFailure != null ? lastFailure
+                            : new ResourceAccessException("No authoritative metadata provider answered"));
+                }
+                return;
+            }
+            // Don't wait out the next hedge delay when everything in flight has already missed.
+            for (int i = 0; i < started.length; i++) {
+                if (!started[i].get()) {
+                    if (inFlight() == 0) {
+                        start(i);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private int inFlight() {
+            int startedCount = 0;
+            for (AtomicBoolean flag : started) {
+                if (flag.get()) {
+                    startedCount++;
+                }
+            }
+            // Finished providers are those no longer outstanding among the started ones.
+            return startedCount - (providers.size() - outstanding.get());
+        }
+    }
+}
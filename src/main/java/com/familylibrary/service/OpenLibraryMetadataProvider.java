@@ -0,0 +1,129 @@
+package com.familylibrary.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Open Library's books and search APIs. Any server speaking the same JSON (e.g. a local
+ * stand-in for tests, via {@code base-url}) works too.
+ */
+@Service
+public class OpenLibraryMetadataProvider implements MetadataProvider {
+
+    private final String baseUrl;
+    private final String coversUrl;
+    private final boolean enabled;
+    private final long hedgeDelayMillis;
+    private final long timeoutMillis;
+    private final RestTemplate restTemplate;
+
+    public OpenLibraryMetadataProvider(@Value("${books.metadata.providers.open-library.base-url:https://openlibrary.org}") String baseUrl,
+                                       @Value("${books.metadata.providers.open-library.covers-url:https://covers.openlibrary.org}") String coversUrl,
+                                       @Value("${books.metadata.providers.open-library.enabled:true}") boolean enabled,
+                                       @Value("${books.metadata.providers.open-library.hedge-delay-ms:400}") long hedgeDelayMillis,
+                                       @Value("${books.metadata.providers.open-library.timeout-ms:2500}") long timeoutMillis) {
+        this.baseUrl = baseUrl;
+        this.coversUrl = coversUrl;
+        this.enabled = enabled;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.timeoutMillis = timeoutMillis;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) timeoutMillis);
+        requestFactory.setReadTimeout((int) timeoutMillis);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public String getName() {
+        return "open-library";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean supportsTitleSearch() {
+        return true;
+    }
+
+    @Override
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    @Override
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> findByIsbn(String isbn13) {
+        Map<String, Object> response = restTemplate.getForObject(
+                baseUrl + "/api/books?bibkeys=ISBN:{isbn}&format=json&jscmd=data", Map.class, isbn13);
+        if (response == null || !(response.get("ISBN:" + isbn13) instanceof Map<?, ?> book)) {
+            return null;
+        }
+        Map<String, Object> data = (Map<String, Object>) book;
+        Map<String, Object> result = new HashMap<>();
+        result.put("title", data.get("title"));
+        result.put("authors", names(data.get("authors")));
+        List<String> publishers = names(data.get("publishers"));
+        result.put("publisher", publishers != null && !publishers.isEmpty() ? publishers.get(0) : null);
+        result.put("publishedDate", data.get("publish_date"));
+        result.put("description", data.get("notes") instanceof String notes ? notes : null);
+        result.put("isbn", isbn13);
+        result.put("imageUrl", data.get("cover") instanceof Map<?, ?> cover ? cover.get("medium") : null);
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> searchByTitle(String title) {
+        Map<String, Object> response = restTemplate.getForObject(
+                baseUrl + "/search.json?title={title}&limit=1", Map.class, title);
+        if (response == null || !(response.get("docs") instanceof List<?> docs) || docs.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> doc = (Map<String, Object>) docs.get(0);
+        Map<String, Object> result = new HashMap<>();
+        result.put("title", doc.get("title"));
+        result.put("authors", doc.get("author_name"));
+        result.put("publisher", doc.get("publisher") instanceof List<?> publishers && !publishers.isEmpty() ? publishers.get(0) : null);
+        result.put("publishedDate", doc.get("first_publish_year") != null ? String.valueOf(doc.get("first_publish_year")) : null);
+        result.put("description", null);
+        result.put("isbn", firstIsbn13(doc.get("isbn")));
+        result.put("imageUrl", doc.get("cover_i") != null ? coversUrl + "/b/id/" + doc.get("cover_i") + "-M.jpg" : null);
+        return result;
+    }
+
+    private static List<String> names(Object entries) {
+        if (!(entries instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream()
+                .filter(entry -> entry instanceof Map<?, ?>)
+                .map(entry -> (String) ((Map<?, ?>) entry).get("name"))
+                .collect(Collectors.toList());
+    }
+
+    private static String firstIsbn13(Object isbns) {
+        if (isbns instanceof List<?> list) {
+            for (Object isbn : list) {
+                if (isbn instanceof String value && value.length() == 13 && IsbnUtils.isValidIsbn13(value)) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,158 @@
+package com.familylibrary.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Small, bounded pool that runs BCrypt hashing and verification away from the request threads.
+ * <p>
+ * BCrypt is deliberately CPU-expensive; on Tomcat's 200 request threads a login storm can occupy
+ * every core and starve the rest of the API. Here at most {@code threads} hashes run at once and
+ * at most {@code queue-capacity} wait. Anything beyond that is rejected immediately (callers
+ * answer 503), and work that waited longer than {@code max-queue-wait-ms} is dropped unrun since
+ * the client has most likely given up already.
+ * <p>
+ * What happens after the hash (user lookups, saving the user, issuing tokens) belongs on
+ * {@link #completionExecutor()}, never on the hashing threads: a slow database must not hold
+ * BCrypt slots while logins queue behind it.
+ */
+@Service
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService completionExecutor;
+    private final long maxQueueWaitNanos;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private long lastLoggedSubmitted;
+
+    public PasswordHashingExecutor(@Value("${auth.hashing.threads:0}") int threads,
+                                   @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${auth.hashing.max-queue-wait-ms:5000}") long maxQueueWaitMillis,
+                                   @Value("${auth.hashing.completion-threads:8}") int completionThreads) {
+        // Default: half the cores, so hashing can never take the whole machine.
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        AtomicInteger completionCounter = new AtomicInteger();
+        // Unbounded queue is fine: everything on it already made it through the bounded hashing pool.
+        this.completionExecutor = Executors.newFixedThreadPool(completionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "auth-completion-" + completionCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        logger.info("Password hashing pool: {} threads, queue {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        completionExecutor.shutdownNow();
+    }
+
+    /** Where callers continue after a hash, e.g. {@code submit(...).handleAsync(fn, completionExecutor())}. */
+    public Executor completionExecutor() {
+        return completionExecutor;
+    }
+
+    /**
+     * Runs {@code task} on the hashing pool.
+     *
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(task, result, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        submitted.incrementAndGet();
+        return result;
+    }
+
+    private <T> void run(Supplier<T> task, CompletableFuture<T> result, long enqueuedAt) {
+        long startedAt = System.nanoTime();
+        long queued = startedAt - enqueuedAt;
+        totalQueueNanos.addAndGet(queued);
+        if (queued > maxQueueWaitNanos) {
+            expired.incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException("Waited too long for a password hashing slot"));
+            return;
+        }
+        try {
+            result.complete(task.get());
+            completed.incrementAndGet();
+        } catch (RuntimeException e) {
+            // Bad credentials land here too; the caller decides what they mean.
+            failed.incrementAndGet();
+            result.completeExceptionally(e);
+        } finally {
+            totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long finished = completed.get() + failed.get();
+        long started = finished + expired.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("poolSize", executor.getPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("submitted", submitted.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("expiredInQueue", expired.get());
+        metrics.put("completed", completed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("avgQueueMillis", started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueNanos.get() / started));
+        metrics.put("avgRunMillis", finished == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / finished));
+        return metrics;
+    }
+
+    // No metrics registry on the classpath; log a summary whenever there was traffic.
+    @Scheduled(fixedDelayString = "${auth.hashing.metrics-log-interval-ms:60000}")
+    void logMetrics() {
+        long current = submitted.get() + rejected.get();
+        if (current != lastLoggedSubmitted) {
+            lastLoggedSubmitted = current;
+            logger.info("Password hashing metrics: {}", snapshot());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.familylibrary.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Who is online, kept in memory instead of in a database column.
+ * <p>
+ * A heartbeat only stores the current time into the user's slot; after the first heartbeat that is
+ * a volatile write to an existing {@link AtomicLong}, with no allocation and no lock beyond
+ * {@link ConcurrentHashMap}'s per-bin striping. A user is online while their last heartbeat is
+ * younger than the TTL; a periodic sweep drops expired slots. Optionally, last-seen times are
+ * written to {@code users.last_seen_at} in one JDBC batch per interval and reloaded on startup,
+ * so a restart doesn't show everybody as offline until their next heartbeat.
+ */
+@Service
+public class PresenceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceRegistry.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+    private final boolean persistenceEnabled;
+
+    private final ConcurrentHashMap<Long, AtomicLong> lastSeen = new ConcurrentHashMap<>();
+    private volatile long lastPersistedAt;
+
+    public PresenceRegistry(JdbcTemplate jdbcTemplate,
+                            @Value("${presence.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${presence.persistence.enabled:true}") boolean persistenceEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.persistenceEnabled = persistenceEnabled;
+    }
+
+    public void heartbeat(Long userId) {
+        long now = System.currentTimeMillis();
+        AtomicLong slot = lastSeen.get(userId);
+        if (slot == null) {
+            slot = lastSeen.computeIfAbsent(userId, id -> new AtomicLong());
+        }
+        slot.set(now);
+    }
+
+    public void markOffline(Long userId) {
+        lastSeen.remove(userId);
+    }
+
+    public boolean isOnline(Long userId) {
+        AtomicLong slot = lastSeen.get(userId);
+        return slot != null && System.currentTimeMillis() - slot.get() < ttlMillis;
+    }
+
+    public Set<Long> onlineUserIds(Collection<Long> userIds) {
+        return userIds.stream().filter(this::isOnline).collect(Collectors.toSet());
+    }
+
+    public int getOnlineCount() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        return (int) lastSeen.values().stream().filter(slot -> slot.get() >= cutoff).count();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!persistenceEnabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> recent = jdbcTemplate.queryForList(
+                "SELECT id, last_seen_at FROM users WHERE last_seen_at > ?", new Timestamp(now - ttlMillis));
+        for (Map<String, Object> row : recent) {
+            Long userId = ((Number) row.get("id")).longValue();
+            long seenAt = ((Timestamp) row.get("last_seen_at")).getTime();
+            lastSeen.computeIfAbsent(userId, id -> new AtomicLong()).accumulateAndGet(seenAt, Math::max);
+        }
+        lastPersistedAt = now;
+        logger.info("Restored presence for {} users", recent.size());
+    }
+
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:30000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        // A heartbeat racing with the removal of its slot is lost; the next one re-creates the slot.
+        lastSeen.values().removeIf(slot -> slot.get() < cutoff);
+    }
+
+    @Scheduled(fixedDelayString = "${presence.persistence.interval-ms:60000}")
+    public void persist() {
+        if (!persistenceEnabled) {
+            return;
+        }
+        long since = lastPersistedAt;
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>();
+        lastSeen.forEach((userId, slot) -> {
+            long seenAt = slot.get();
+            if (seenAt >= since) {
+                rows.add(new Object[] { new Timestamp(seenAt), userId });
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE users SET last_seen_at = ? WHERE id = ?", rows,
+                    new int[] { Types.TIMESTAMP, Types.BIGINT });
+            logger.debug("Persisted last-seen times for {} users", rows.size());
+        }
+        lastPersistedAt = now;
+    }
+}
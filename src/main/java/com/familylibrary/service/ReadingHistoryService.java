@@ -3,6 +3,7 @@ package com.familylibrary.service;
 import com.familylibrary.dto.CreateReadingHistoryRequest;
 import com.familylibrary.dto.ReadingHistoryDto;
 import com.familylibrary.dto.UpdateReadingHistoryRequest;
+import com.familylibrary.event.ReadingFinishedEvent;
 import com.familylibrary.model.Book;
 import com.familylibrary.model.ReadingHistory;
 import com.familylibrary.model.User;
@@ -11,9 +12,11 @@ import com.familylibrary.repository.ReadingHistoryRepository;
 import com.familylibrary.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +27,7 @@ public class ReadingHistoryService {
     private final ReadingHistoryRepository readingHistoryRepository;
     private final UserRepository userRepository;
     private final BookRepository bookRepository; // Assuming BookRepository exists
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public ReadingHistoryDto createReadingHistory(CreateReadingHistoryRequest request) {
@@ -44,6 +48,9 @@ public class ReadingHistoryService {
         readingHistory.setNotes(request.getNotes());
 
         ReadingHistory savedHistory = readingHistoryRepository.save(readingHistory);
+        if (savedHistory.getEndDate() != null) {
+            publishReadingFinished(savedHistory);
+        }
         return convertToDto(savedHistory);
     }
 
@@ -72,6 +79,7 @@ public class ReadingHistoryService {
         if (request.getStartDate() != null) {
             readingHistory.setStartDate(request.getStartDate());
         }
+        boolean finishesReading = readingHistory.getEndDate() == null && request.getEndDate() != null;
         if (request.getEndDate() != null) {
             readingHistory.setEndDate(request.getEndDate());
         }
@@ -83,9 +91,21 @@ public class ReadingHistoryService {
         }
 
         ReadingHistory updatedHistory = readingHistoryRepository.save(readingHistory);
+        if (finishesReading) {
+            publishReadingFinished(updatedHistory);
+        }
         return convertToDto(updatedHistory);
     }
 
+    private void publishReadingFinished(ReadingHistory history) {
+        Book book = history.getBook();
+        Long familyId = book.getBookshelf() != null && book.getBookshelf().getFamily() != null
+                ? book.getBookshelf().getFamily().getId()
+                : null;
+        eventPublisher.publishEvent(new ReadingFinishedEvent(history.getId(), book.getId(), history.getUser().getId(),
+                familyId, history.getRating(), history.getEndDate(), LocalDateTime.now()));
+    }
+
     @Transactional
     public void deleteReadingHistory(Long id) {
         if (!readingHistoryRepository.existsById(id)) {
@@ -0,0 +1,156 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.BookRecommendationDto;
+import com.familylibrary.model.BookStatus;
+import com.familylibrary.repository.BookRepository;
+import com.familylibrary.repository.projection.BookCatalogMatchView;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ties AI book recommendations to real books.
+ * <p>
+ * {@link #enrich} fills in ISBN and cover from the {@link BookMetadataCache}, all titles in
+ * parallel; it runs once when an analysis is generated. {@link #resolveAvailability} runs on every
+ * read because lending changes: one query finds every recommended title the user owns or can see
+ * in their families, and each recommendation is flagged owned / available to borrow from that.
+ */
+@Service
+public class RecommendationResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationResolver.class);
+
+    private final BookRepository bookRepository;
+    private final BookMetadataCache bookMetadataCache;
+    private final MetadataProviderChain metadataProviderChain;
+    private final ExecutorService executor;
+
+    public RecommendationResolver(BookRepository bookRepository, BookMetadataCache bookMetadataCache,
+                                  MetadataProviderChain metadataProviderChain,
+                                  @Value("${ai.recommendations.threads:4}") int threads) {
+        this.bookRepository = bookRepository;
+        this.bookMetadataCache = bookMetadataCache;
+        this.metadataProviderChain = metadataProviderChain;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void enrich(List<BookRecommendationDto> recommendations) {
+        List<CompletableFuture<Void>> lookups = new ArrayList<>(recommendations.size());
+        for (BookRecommendationDto recommendation : recommendations) {
+            lookups.add(CompletableFuture.runAsync(() -> enrich(recommendation), executor));
+        }
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void enrich(BookRecommendationDto recommendation) {
+        try {
+            Map<String, Object> metadata = bookMetadataCache.getByTitle(recommendation.getTitle(), metadataProviderChain::searchByTitle);
+            if (metadata != null) {
+                recommendation.setIsbn((String) metadata.get("isbn"));
+                recommendation.setCoverImageUrl((String) metadata.get("imageUrl"));
+            }
+        } catch (RestClientException e) {
+            // Cover and ISBN are optional; the recommendation stands without them.
+            logger.debug("No metadata for recommended '{}': {}", recommendation.getTitle(), e.getMessage());
+        }
+    }
+
+    public void resolveAvailability(Long userId, List<BookRecommendationDto> recommendations) {
+        if (recommendations == null || recommendations.isEmpty()) {
+            return;
+        }
+        List<String> titles = recommendations.stream()
+                .map(recommendation -> normalize(recommendation.getTitle()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        // Enrichment may have found an ISBN; it matches even when the model's title differs from the catalog's.
+        List<String> isbns = recommendations.stream()
+                .map(recommendation -> normalizeIsbn(recommendation.getIsbn()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<String, List<BookCatalogMatchView>> matchesByTitle = new HashMap<>();
+        Map<String, List<BookCatalogMatchView>> matchesByIsbn = new HashMap<>();
+        if (!titles.isEmpty() || !isbns.isEmpty()) {
+            for (BookCatalogMatchView match : bookRepository.findCatalogMatches(userId, titles, isbns)) {
+                String title = normalize(match.getTitle());
+                if (title != null) {
+                    matchesByTitle.computeIfAbsent(title, key -> new ArrayList<>()).add(match);
+                }
+                String isbn = normalizeIsbn(match.getIsbn());
+                if (isbn != null) {
+                    matchesByIsbn.computeIfAbsent(isbn, key -> new ArrayList<>()).add(match);
+                }
+            }
+        }
+        for (BookRecommendationDto recommendation : recommendations) {
+            Map<Long, BookCatalogMatchView> byId = new LinkedHashMap<>();
+            matchesByTitle.getOrDefault(normalize(recommendation.getTitle()), List.of()).forEach(match -> byId.putIfAbsent(match.getId(), match));
+            matchesByIsbn.getOrDefault(normalizeIsbn(recommendation.getIsbn()), List.of()).forEach(match -> byId.putIfAbsent(match.getId(), match));
+            Collection<BookCatalogMatchView> matches = byId.values();
+            boolean owned = matches.stream().anyMatch(match -> userId.equals(match.getAddedById()) || userId.equals(match.getOwnerId()));
+            BookCatalogMatchView borrowable = owned ? null : matches.stream()
+                    .filter(match -> match.getStatus() == BookStatus.AVAILABLE)
+                    .findFirst()
+                    .orElse(null);
+            BookCatalogMatchView chosen = borrowable != null ? borrowable : matches.stream().findFirst().orElse(null);
+            recommendation.setOwned(owned);
+            recommendation.setAvailableInFamily(borrowable != null);
+            recommendation.setBookId(chosen != null ? chosen.getId() : null);
+            if (chosen != null) {
+                if (chosen.getIsbn() != null) {
+                    recommendation.setIsbn(chosen.getIsbn());
+                }
+                if (chosen.getCoverImageUrl() != null) {
+                    recommendation.setCoverImageUrl(chosen.getCoverImageUrl());
+                }
+            }
+        }
+    }
+
+    // The model likes to add 《》 around titles; the catalog doesn't have them.
+    private static String normalize(String title) {
+        if (title == null) {
+            return null;
+        }
+        String normalized = title.replaceAll("[《》「」\"]", "").trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    // Same as the query: hyphens and case don't matter (978-7-... vs 9787..., trailing x vs X).
+    private static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String normalized = isbn.replace("-", "").trim().toUpperCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
@@ -0,0 +1,279 @@
+package com.familylibrary.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Shrinks phone photos before they are decoded for barcodes or uploaded for OCR.
+ * <p>
+ * The image is decoded straight from the upload stream with source subsampling, so a 12 MP photo
+ * never exists on the heap at full resolution. One draw then applies the EXIF orientation, scales
+ * to at most {@code max-dimension} pixels on the long side (plenty for OCR) and converts to
+ * grayscale. For OCR the busy (text/barcode) region is cropped out when that removes a
+ * meaningful margin and re-encoded as a compact JPEG, typically a tenth of the original upload.
+ */
+@Service
+public class ScanImagePreprocessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanImagePreprocessor.class);
+
+    private static final int ROI_BLOCK = 32;
+    private static final int ROI_MIN_GRADIENT = 12;
+
+    private final boolean enabled;
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final boolean roiCrop;
+
+    public ScanImagePreprocessor(@Value("${scan.preprocess.enabled:true}") boolean enabled,
+                                 @Value("${scan.preprocess.max-dimension:1600}") int maxDimension,
+                                 @Value("${scan.preprocess.jpeg-quality:0.85}") float jpegQuality,
+                                 @Value("${scan.preprocess.roi-crop:true}") boolean roiCrop) {
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.roiCrop = roiCrop;
+    }
+
+    public interface ImageSource {
+        InputStream openStream() throws IOException;
+    }
+
+    /**
+     * @param source must be readable more than once (EXIF header, then pixels)
+     * @return the upright, downscaled grayscale image, or null if preprocessing is disabled or the
+     *         format cannot be decoded here (the caller then uses the original bytes)
+     */
+    public BufferedImage prepare(ImageSource source) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        int orientation = 1;
+        try (InputStream in = source.openStream()) {
+            orientation = readExifOrientation(in);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not read EXIF orientation: {}", e.toString()); // Truncated or corrupt header; assume upright
+        }
+        try (InputStream in = source.openStream(); ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Subsample while decoding to between 1x and 2x the target, then scale the rest smoothly.
+                int subsampling = Math.max(1, (Math.max(width, height) + 2 * maxDimension - 1) / (2 * maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                return orientAndScale(decoded, orientation);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not preprocess scan image: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * JPEG bytes for OCR: the prepared image, cropped to its busy region when worthwhile.
+     */
+    public byte[] encodeForOcr(BufferedImage prepared) throws IOException {
+        BufferedImage image = roiCrop ? cropToContent(prepared) : prepared;
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG encoder available");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private BufferedImage orientAndScale(BufferedImage source, int orientation) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+        boolean swap = orientation >= 5 && orientation <= 8;
+        int targetWidth = swap ? scaledHeight : scaledWidth;
+        int targetHeight = swap ? scaledWidth : scaledHeight;
+
+        // EXIF orientations 1-8: the transform that makes the stored pixels upright.
+        // Matrices are (m00, m10, m01, m11, m02, m12) over the scaled w x h image.
+        int w = scaledWidth;
+        int h = scaledHeight;
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0); // mirrored
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h); // upside down
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h); // mirrored vertically
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0); // transposed
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0); // needs 90° clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w); // transverse
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w); // needs 90° counter-clockwise
+            default -> new AffineTransform();
+        };
+        transform.scale(scale, scale);
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // Bounding box of blocks with strong horizontal gradients (print, barcodes), padded by a block.
+    private BufferedImage cropToContent(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        int cols = width / ROI_BLOCK;
+        int rows = height / ROI_BLOCK;
+        if (cols < 4 || rows < 4) {
+            return gray;
+        }
+        int[] row = new int[width];
+        long[][] gradient = new long[rows][cols];
+        for (int y = 0; y < rows * ROI_BLOCK; y += 2) {
+            gray.getRaster().getSamples(0, y, width, 1, 0, row);
+            for (int x = 1; x < cols * ROI_BLOCK; x++) {
+                gradient[y / ROI_BLOCK][x / ROI_BLOCK] += Math.abs(row[x] - row[x - 1]);
+            }
+        }
+        int minCol = cols;
+        int maxCol = -1;
+        int minRow = rows;
+        int maxRow = -1;
+        long threshold = (long) ROI_MIN_GRADIENT * ROI_BLOCK * ROI_BLOCK / 2;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (gradient[r][c] >= threshold) {
+                    minCol = Math.min(minCol, c);
+                    maxCol = Math.max(maxCol, c);
+                    minRow = Math.min(minRow, r);
+                    maxRow = Math.max(maxRow, r);
+                }
+            }
+        }
+        if (maxCol < 0) {
+            return gray;
+        }
+        int x0 = Math.max(0, (minCol - 1) * ROI_BLOCK);
+        int y0 = Math.max(0, (minRow - 1) * ROI_BLOCK);
+        int x1 = Math.min(width, (maxCol + 2) * ROI_BLOCK);
+        int y1 = Math.min(height, (maxRow + 2) * ROI_BLOCK);
+        // Only worth it if a real margin goes away.
+        if ((long) (x1 - x0) * (y1 - y0) > 0.75 * width * height) {
+            return gray;
+        }
+        return gray.getSubimage(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Reads the orientation tag (0x0112) from a JPEG's APP1/Exif segment; 1 (upright) if absent.
+     */
+    static int readExifOrientation(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.read() != 0xFF || data.read() != 0xD8) {
+            return 1; // Not a JPEG
+        }
+        while (true) {
+            int marker;
+            do {
+                marker = data.read();
+            } while (marker == 0xFF);
+            if (marker < 0 || marker == 0xDA || marker == 0xD9) {
+                return 1; // Image data reached without Exif
+            }
+            int length = data.readUnsignedShort() - 2;
+            if (marker != 0xE1 || length < 14) {
+                data.skipNBytes(length);
+                int next = data.read();
+                if (next != 0xFF) {
+                    return 1;
+                }
+                continue;
+            }
+            byte[] segment = new byte[length];
+            data.readFully(segment);
+            if (segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+                int next = data.read();
+                if (next != 0xFF) {
+                    return 1;
+                }
+                continue;
+            }
+            return orientationFromTiff(segment, 6);
+        }
+    }
+
+    private static int orientationFromTiff(byte[] b, int tiff) {
+        boolean little = b[tiff] == 'I';
+        // Offset is unsigned and must point past the 8-byte TIFF header, inside the segment.
+        long offset = readInt(b, tiff + 4, little) & 0xFFFFFFFFL;
+        if (offset < 8 || tiff + offset + 2 > b.length) {
+            return 1;
+        }
+        int ifd = (int) (tiff + offset);
+        int entries = readShort(b, ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > b.length) {
+                break;
+            }
+            if (readShort(b, entry, little) == 0x0112) {
+                int value = readShort(b, entry + 8, little);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] b, int offset, boolean little) {
+        int b0 = b[offset] & 0xFF;
+        int b1 = b[offset + 1] & 0xFF;
+        return little ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] b, int offset, boolean little) {
+        return little
+                ? (readShort(b, offset + 2, true) << 16) | readShort(b, offset, true)
+                : (readShort(b, offset, false) << 16) | readShort(b, offset + 2, false);
+    }
+}
@@ -0,0 +1,226 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.ScanJobDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs book scans as background jobs so no request thread waits on Vision or Google Books.
+ * <p>
+ * Submitting stores the upload in memory, returns a job immediately and queues the scan on a
+ * bounded worker pool (a full queue is rejected so callers can answer 503). A job belongs to the
+ * user who submitted it. The same user submitting identical images (same SHA-256) shares one job
+ * while it is pending, running or finished with an answer, so a double tap costs one scan; other
+ * users reuse the result through the {@link ScanResultCache} instead. Vision or catalog failures
+ * are not remembered. Results are kept for {@code retention-minutes} for polling, and can also be
+ * awaited over SSE.
+ */
+@Service
+public class ScanJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobService.class);
+
+    public enum Status { PENDING, RUNNING, DONE, NOT_FOUND, FAILED }
+
+    private final BookScanService bookScanService;
+    private final ThreadPoolExecutor executor;
+    private final long retentionMillis;
+    private final long emitterTimeoutMillis;
+
+    private final Map<String, ScanJob> jobsById = new ConcurrentHashMap<>();
+    private final Map<String, ScanJob> jobsByHash = new ConcurrentHashMap<>();
+
+    public ScanJobService(BookScanService bookScanService,
+                          @Value("${scan.jobs.threads:8}") int threads,
+                          @Value("${scan.jobs.queue-capacity:100}") int queueCapacity,
+                          @Value("${scan.jobs.retention-minutes:30}") long retentionMinutes,
+                          @Value("${scan.jobs.emitter-timeout-ms:60000}") long emitterTimeoutMillis) {
+        this.bookScanService = bookScanService;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        // Scans mostly wait on remote calls, so the pool can be larger than the core count;
+        // Java 17 has no virtual threads, hence a bounded platform pool.
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "scan-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a scan of {@code image}, or returns the existing job for an identical image.
+     *
+     * @throws RejectedExecutionException if the scan queue is full
+     */
+    public ScanJob submit(Long userId, byte[] image) {
+        String hash = userId + ":" + sha256(image);
+        ScanJob candidate = new ScanJob(UUID.randomUUID().toString(), hash, userId);
+        ScanJob job = jobsByHash.compute(hash, (key, existing) ->
+                existing != null && existing.getStatus() != Status.FAILED ? existing : candidate);
+        if (job != candidate) {
+            logger.debug("Scan of image {} deduplicated onto job {}", hash, job.getId());
+            return job;
+        }
+        jobsById.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, image));
+        } catch (RejectedExecutionException e) {
+            jobsById.remove(job.getId());
+            jobsByHash.remove(hash, job);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * @return the job, or null if there is none with that id or it was submitted by someone else
+     */
+    public ScanJob getJob(String id, Long userId) {
+        ScanJob job = jobsById.get(id);
+        return job != null && job.getOwnerId().equals(userId) ? job : null;
+    }
+
+    /**
+     * SSE stream for one job: a single "result" event with the {@link ScanJobDto} once it finishes.
+     */
+    public SseEmitter subscribe(ScanJob job) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        job.completion().whenComplete((ignored, error) -> {
+            try {
+                emitter.send(SseEmitter.event().name("result").data(job.toDto(), MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private void run(ScanJob job, byte[] image) {
+        job.markRunning();
+        try {
+            Map<String, Object> book = bookScanService.scanBook(() -> new ByteArrayInputStream(image));
+            job.finish(Status.DONE, book, null);
+        } catch (BookNotRecognizedException e) {
+            // The scan ran but found nothing recognisable; as deterministic as a hit, so it stays deduplicated.
+            job.finish(Status.NOT_FOUND, null, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            // Vision, catalog or transport failure: says nothing about the image.
+            logger.warn("Scan job {} failed: {}", job.getId(), e.getMessage());
+            jobsByHash.remove(job.getHash(), job); // Let a resubmission retry
+            job.finish(Status.FAILED, null, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${scan.jobs.sweep-interval-ms:60000}")
+    void sweep() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobsById.values().removeIf(job -> {
+            if (job.isFinishedBefore(cutoff)) {
+                jobsByHash.remove(job.getHash(), job);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static final class ScanJob {
+        private final String id;
+        private final String hash;
+        private final Long ownerId;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final CompletableFuture<ScanJob> completion = new CompletableFuture<>();
+        private volatile Status status = Status.PENDING;
+        private volatile Map<String, Object> book;
+        private volatile String error;
+        private volatile LocalDateTime completedAt;
+        private volatile long completedAtMillis;
+
+        private ScanJob(String id, String hash, Long ownerId) {
+            this.id = id;
+            this.hash = hash;
+            this.ownerId = ownerId;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        public Long getOwnerId() {
+            return ownerId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /** Completes (never exceptionally) when the job reaches DONE, NOT_FOUND or FAILED. */
+        public CompletableFuture<ScanJob> completion() {
+            return completion;
+        }
+
+        public ScanJobDto toDto() {
+            return new ScanJobDto(id, status.name(), book, error, submittedAt, completedAt);
+        }
+
+        private void markRunning() {
+            status = Status.RUNNING;
+        }
+
+        private void finish(Status finalStatus, Map<String, Object> result, String message) {
+            book = result;
+            error = message;
+            completedAt = LocalDateTime.now();
+            completedAtMillis = System.currentTimeMillis();
+            status = finalStatus;
+            completion.complete(this);
+        }
+
+        private boolean isFinishedBefore(long cutoffMillis) {
+            return completion.isDone() && completedAtMillis < cutoffMillis;
+        }
+    }
+}
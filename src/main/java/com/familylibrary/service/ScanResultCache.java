@@ -0,0 +1,245 @@
+package com.familylibrary.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers scan results by what the photo looks like, so a rescan of the same cover (a retry,
+ * or another family member holding the same edition) skips OCR and the catalog entirely. It is
+ * consulted after the barcode decoder, which is exact, and only when no barcode settled the scan.
+ * <p>
+ * The key is a 64-bit difference hash (dHash) of the preprocessed, upright grayscale image:
+ * box-averaged down to 9x8 cells, one bit per horizontal neighbour comparison. It survives
+ * re-encoding, scaling and small shifts in lighting. Lookups find the closest stored hash within
+ * {@code max-distance} bits through a BK-tree over Hamming distance, which only visits subtrees
+ * whose distance band can still contain a match. Only found books are cached. Entries are bounded
+ * (LRU) and expire; evicted nodes are tombstoned and the tree is rebuilt once they dominate.
+ */
+@Service
+public class ScanResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanResultCache.class);
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    // Near-uniform images (blank wall, lens cap) hash to noise; don't let them match each other.
+    private static final double MIN_CELL_STDDEV = 4.0;
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final long ttlMillis;
+
+    private final Map<Long, Entry> entries;
+    private Node root;
+    private int tombstones;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ScanResultCache(@Value("${scan.result-cache.enabled:true}") boolean enabled,
+                           @Value("${scan.result-cache.max-distance:6}") int maxDistance,
+                           @Value("${scan.result-cache.ttl-hours:24}") long ttlHours,
+                           @Value("${scan.result-cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxEntries) {
+                    eldest.getValue().removed = true;
+                    tombstones++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the dHash of a preprocessed image, or null if the image has too little structure to key on
+     */
+    public Long fingerprint(BufferedImage image) {
+        if (!enabled || image == null) {
+            return null;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width < HASH_WIDTH || height < HASH_HEIGHT) {
+            return null;
+        }
+        // Box average into 9x8 cells; sampling every other row is plenty at this resolution.
+        long[] sums = new long[HASH_WIDTH * HASH_HEIGHT];
+        int[] counts = new int[HASH_WIDTH * HASH_HEIGHT];
+        int[] row = new int[width];
+        int[] cellOfColumn = new int[width];
+        for (int x = 0; x < width; x++) {
+            cellOfColumn[x] = x * HASH_WIDTH / width;
+        }
+        Raster raster = image.getRaster();
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        for (int y = 0; y < height; y += 2) {
+            if (gray) {
+                raster.getSamples(0, y, width, 1, 0, row);
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int c = row[x];
+                    row[x] = (((c >> 16) & 0xFF) * 306 + ((c >> 8) & 0xFF) * 601 + (c & 0xFF) * 117) >> 10;
+                }
+            }
+            int base = (y * HASH_HEIGHT / height) * HASH_WIDTH;
+            for (int x = 0; x < width; x++) {
+                sums[base + cellOfColumn[x]] += row[x];
+                counts[base + cellOfColumn[x]]++;
+            }
+        }
+        double[] cells = new double[sums.length];
+        double mean = 0;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = counts[i] > 0 ? (double) sums[i] / counts[i] : 0;
+            mean += cells[i] / cells.length;
+        }
+        double variance = 0;
+        for (double cell : cells) {
+            variance += (cell - mean) * (cell - mean) / cells.length;
+        }
+        if (Math.sqrt(variance) < MIN_CELL_STDDEV) {
+            return null;
+        }
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (cells[y * HASH_WIDTH + x] < cells[y * HASH_WIDTH + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the result stored for the closest hash within {@code max-distance}, or null
+     */
+    public synchronized Map<String, Object> find(Long fingerprint) {
+        if (fingerprint == null || root == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry best = null;
+        int bestDistance = maxDistance + 1;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = Long.bitCount(node.entry.hash ^ fingerprint);
+            if (distance < bestDistance && !node.entry.removed && node.entry.expiresAtMillis > now) {
+                best = node.entry;
+                bestDistance = distance;
+            }
+            if (node.children == null) {
+                continue;
+            }
+            // Triangle inequality: a match within the radius can only sit under children
+            // whose edge distance is within the radius of ours.
+            int radius = Math.min(maxDistance, bestDistance);
+            for (int d = Math.max(1, distance - radius); d <= Math.min(64, distance + radius); d++) {
+                if (node.children[d] != null) {
+                    pending.push(node.children[d]);
+                }
+            }
+        }
+        if (best == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        entries.get(best.hash); // Touch for LRU
+        hits.incrementAndGet();
+        logger.debug("Scan result cache hit at distance {} ({} hits / {} misses)", bestDistance, hits.get(), misses.get());
+        return best.result;
+    }
+
+    public synchronized void put(Long fingerprint, Map<String, Object> result) {
+        if (fingerprint == null || result == null) {
+            return;
+        }
+        Entry entry = new Entry(fingerprint, result, System.currentTimeMillis() + ttlMillis);
+        Entry previous = entries.put(fingerprint, entry);
+        if (previous != null) {
+            previous.removed = true;
+            tombstones++;
+        }
+        insert(entry);
+        if (tombstones > entries.size()) {
+            rebuild();
+        }
+    }
+
+    private void insert(Entry entry) {
+        if (root == null) {
+            root = new Node(entry);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = Long.bitCount(node.entry.hash ^ entry.hash);
+            if (distance == 0) {
+                node.entry = entry; // Same hash: replace in place
+                return;
+            }
+            if (node.children == null) {
+                node.children = new Node[65];
+            }
+            if (node.children[distance] == null) {
+                node.children[distance] = new Node(entry);
+                return;
+            }
+            node = node.children[distance];
+        }
+    }
+
+    private void rebuild() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+        root = null;
+        tombstones = 0;
+        for (Entry entry : entries.values()) {
+            insert(entry);
+        }
+        logger.debug("Rebuilt scan result index with {} entries", entries.size());
+    }
+
+    private static final class Entry {
+        private final long hash;
+        private final Map<String, Object> result;
+        private final long expiresAtMillis;
+        private boolean removed;
+
+        private Entry(long hash, Map<String, Object> result, long expiresAtMillis) {
+            this.hash = hash;
+            this.result = result;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class Node {
+        private Entry entry;
+        private Node[] children; // Indexed by Hamming distance to this node, allocated on first child
+
+        private Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.CreateBookRequest;
+import com.familylibrary.dto.ShelfScanCandidateDto;
+import com.familylibrary.repository.BookRepository;
+import com.google.cloud.vision.v1.*;
+import com.google.protobuf.ByteString;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Catalogs a whole shelf from one photo.
+ * <p>
+ * The photo goes to Vision once with document text detection. The paragraphs of
+ * {@code fullTextAnnotation} are grouped into spines by overlapping extents across the shelf
+ * (x for upright books, y for stacked ones, whichever most text runs along), and spines are
+ * numbered in reading order. Per spine the tallest text is taken as the title and the next short
+ * line as the author; all spines are then resolved through the {@link BookMetadataCache} in
+ * parallel. Each candidate carries a pre-filled {@link CreateBookRequest} whose position continues
+ * after the books already on that shelf; {@code addable} marks the ones {@code POST /api/books/bulk}
+ * will take unedited.
+ */
+@Service
+public class ShelfScanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShelfScanService.class);
+
+    private static final int MAX_AUTHOR_LENGTH = 30;
+
+    private final ImageAnnotator imageAnnotator;
+    private final ScanImagePreprocessor imagePreprocessor;
+    private final BookMetadataCache bookMetadataCache;
+    private final MetadataProviderChain metadataProviderChain;
+    private final IsbnExtractor isbnExtractor;
+    private final BookRepository bookRepository;
+    private final int maxSpines;
+    private final ExecutorService executor;
+
+    public ShelfScanService(ImageAnnotator imageAnnotator, ScanImagePreprocessor imagePreprocessor,
+                            BookMetadataCache bookMetadataCache, MetadataProviderChain metadataProviderChain,
+                            IsbnExtractor isbnExtractor, BookRepository bookRepository,
+                            @Value("${scan.shelf.max-spines:60}") int maxSpines,
+                            @Value("${scan.shelf.threads:8}") int threads) {
+        this.imageAnnotator = imageAnnotator;
+        this.imagePreprocessor = imagePreprocessor;
+        this.bookMetadataCache = bookMetadataCache;
+        this.metadataProviderChain = metadataProviderChain;
+        this.isbnExtractor = isbnExtractor;
+        this.bookRepository = bookRepository;
+        this.maxSpines = maxSpines;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "shelf-scan-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param bookshelfId optional; with {@code shelfNumber}, positions continue after the books already there
+     */
+    public List<ShelfScanCandidateDto> scanShelf(MultipartFile image, Long bookshelfId, Integer shelfNumber) throws IOException {
+        BufferedImage prepared = imagePreprocessor.prepare(image::getInputStream);
+        byte[] content;
+        if (prepared != null) {
+            content = imagePreprocessor.encodeForOcr(prepared);
+        } else {
+            try (InputStream in = image.getInputStream()) {
+                content = in.readAllBytes();
+            }
+        }
+        AnnotateImageResponse response = imageAnnotator.annotate(List.of(toRequest(content))).get(0);
+        if (response.hasError()) {
+            throw new IOException("Error detecting text: " + response.getError().getMessage());
+        }
+        List<Spine> spines = segment(response.getFullTextAnnotation());
+        if (spines.isEmpty()) {
+            throw new IOException("未在图片中识别到书脊文字");
+        }
+        if (spines.size() > maxSpines) {
+            spines = spines.subList(0, maxSpines);
+        }
+
+        int firstPosition = 1;
+        if (bookshelfId != null && shelfNumber != null) {
+            Integer lastPosition = bookRepository.findMaxPositionNumber(bookshelfId, shelfNumber);
+            firstPosition = lastPosition != null ? lastPosition + 1 : 1;
+        }
+
+        long start = System.nanoTime();
+        List<CompletableFuture<ShelfScanCandidateDto>> lookups = new ArrayList<>(spines.size());
+        for (int i = 0; i < spines.size(); i++) {
+            Spine spine = spines.get(i);
+            int position = i + 1;
+            int positionOnShelf = firstPosition + i;
+            lookups.add(CompletableFuture.supplyAsync(
+                    () -> resolve(spine, position, bookshelfId, shelfNumber, positionOnShelf), executor));
+        }
+        List<ShelfScanCandidateDto> candidates = new ArrayList<>(lookups.size());
+        for (CompletableFuture<ShelfScanCandidateDto> lookup : lookups) {
+            try {
+                candidates.add(lookup.join());
+            } catch (CompletionException e) {
+                throw new IOException("Shelf lookup failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        logger.debug("Shelf scan resolved {} spines in {} ms", spines.size(), (System.nanoTime() - start) / 1_000_000);
+        markAddable(candidates);
+        return candidates;
+    }
+
+    // Only candidates that POST /api/books/bulk would accept as they are: an ISBN, not already
+    // catalogued, and not a second spine of the same book. The rest need editing first.
+    private void markAddable(List<ShelfScanCandidateDto> candidates) {
+        Set<String> isbns = candidates.stream()
+                .map(candidate -> candidate.getBook().getIsbn())
+                .filter(isbn -> isbn != null && !isbn.isBlank())
+                .collect(Collectors.toSet());
+        Set<String> existing = isbns.isEmpty() ? Set.of() : new HashSet<>(bookRepository.findExistingIsbns(isbns));
+        Set<String> seen = new HashSet<>();
+        for (ShelfScanCandidateDto candidate : candidates) {
+            String isbn = candidate.getBook().getIsbn();
+            if (isbn == null || isbn.isBlank()) {
+                candidate.setNotAddableReason("no_isbn");
+            } else if (existing.contains(isbn)) {
+                candidate.setNotAddableReason("already_exists");
+            } else if (!seen.add(isbn)) {
+                candidate.setNotAddableReason("duplicate");
+            } else {
+                candidate.setAddable(candidate.getBook().getBookshelfId() != null);
+                if (!candidate.isAddable()) {
+                    candidate.setNotAddableReason("no_bookshelf");
+                }
+            }
+        }
+    }
+
+    private ShelfScanCandidateDto resolve(Spine spine, int position, Long bookshelfId, Integer shelfNumber, int positionOnShelf) {
+        ShelfScanCandidateDto candidate = new ShelfScanCandidateDto();
+        candidate.setPosition(position);
+        candidate.setSpineText(spine.text());
+        candidate.setDetectedTitle(spine.title());
+        candidate.setDetectedAuthor(spine.author());
+        try {
+            Map<String, Object> metadata = null;
+            // Some spines do print the ISBN; it is far more precise than the title.
+            for (String isbn : isbnExtractor.extract(spine.text())) {
+                metadata = bookMetadataCache.getByIsbn(isbn, metadataProviderChain::findByIsbn);
+                if (metadata != null) {
+                    break;
+                }
+            }
+            if (metadata == null && spine.title() != null) {
+                metadata = bookMetadataCache.getByTitle(spine.title(), metadataProviderChain::searchByTitle);
+            }
+            candidate.setStatus(metadata != null ? "found" : "not_found");
+            candidate.setMetadata(metadata);
+            candidate.setBook(toCreateRequest(spine, metadata, bookshelfId, shelfNumber, positionOnShelf));
+        } catch (RestClientException e) {
+            // One failed lookup must not sink the rest of the shelf.
+            candidate.setStatus("error");
+            candidate.setError(e.getMessage());
+            candidate.setBook(toCreateRequest(spine, null, bookshelfId, shelfNumber, positionOnShelf));
+        }
+        return candidate;
+    }
+
+    private static CreateBookRequest toCreateRequest(Spine spine, Map<String, Object> metadata,
+                                                     Long bookshelfId, Integer shelfNumber, int positionOnShelf) {
+        CreateBookRequest request = new CreateBookRequest();
+        request.setBookshelfId(bookshelfId);
+        request.setShelfNumber(shelfNumber);
+        request.setPositionOnShelf(positionOnShelf);
+        if (metadata == null) {
+            request.setTitle(spine.title());
+            request.setAuthor(spine.author());
+            return request;
+        }
+        request.setTitle(metadata.get("title") instanceof String title ? title : spine.title());
+        request.setAuthor(metadata.get("authors") instanceof List<?> authors && !authors.isEmpty()
+                ? String.join(", ", authors.stream().map(String::valueOf).toList())
+                : spine.author());
+        request.setIsbn((String) metadata.get("isbn"));
+        request.setPublisher((String) metadata.get("publisher"));
+        request.setPublicationDate(parseDate((String) metadata.get("publishedDate")));
+        request.setDescription((String) metadata.get("description"));
+        request.setCoverImageUrl((String) metadata.get("imageUrl"));
+        return request;
+    }
+
+    // Catalogs give "2004", "2004-05" or "2004-05-01"; only a full date maps onto the column.
+    private static LocalDate parseDate(String date) {
+        if (date == null || date.length() != 10) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private AnnotateImageRequest toRequest(byte[] image) {
+        Image img = Image.newBuilder().setContent(ByteString.copyFrom(image)).build();
+        // Document detection returns the block/paragraph hierarchy with bounding boxes.
+        Feature feat = Feature.newBuilder().setType(Feature.Type.DOCUMENT_TEXT_DETECTION).build();
+        return AnnotateImageRequest.newBuilder()
+                .addFeatures(feat)
+                .setImage(img)
+                .build();
+    }
+
+    /**
+     * Groups paragraphs into spines in reading order. Without layout (e.g. the fake annotator)
+     * every text line is taken as one spine.
+     */
+    static List<Spine> segment(TextAnnotation annotation) {
+        List<TextRun> runs = new ArrayList<>();
+        for (Page page : annotation.getPagesList()) {
+            for (Block block : page.getBlocksList()) {
+                for (Paragraph paragraph : block.getParagraphsList()) {
+                    TextRun run = toRun(paragraph);
+                    if (run != null) {
+                        runs.add(run);
+                    }
+                }
+            }
+        }
+        if (runs.isEmpty()) {
+            List<Spine> spines = new ArrayList<>();
+            String text = annotation.getText();
+            for (String line : text != null ? text.split("\\n") : new String[0]) {
+                if (!line.isBlank()) {
+                    spines.add(new Spine(line.trim(), line.trim(), null));
+                }
+            }
+            return spines;
+        }
+
+        // Upright books have vertical spine text: spines are then separated along x.
+        long vertical = runs.stream().filter(run -> run.height() > run.width()).count();
+        boolean upright = vertical * 2 >= runs.size();
+        runs.sort(Comparator.comparingDouble(run -> upright ? run.centerX() : run.centerY()));
+
+        List<List<TextRun>> groups = new ArrayList<>();
+        int groupMin = 0;
+        int groupMax = 0;
+        for (TextRun run : runs) {
+            int min = upright ? run.minX() : run.minY();
+            int max = upright ? run.maxX() : run.maxY();
+            int overlap = Math.min(max, groupMax) - Math.max(min, groupMin);
+            if (!groups.isEmpty() && overlap * 2 >= Math.min(max - min, groupMax - groupMin)) {
+                groups.get(groups.size() - 1).add(run);
+                groupMin = Math.min(groupMin, min);
+                groupMax = Math.max(groupMax, max);
+            } else {
+                groups.add(new ArrayList<>(List.of(run)));
+                groupMin = min;
+                groupMax = max;
+            }
+        }
+
+        List<Spine> spines = new ArrayList<>(groups.size());
+        for (List<TextRun> group : groups) {
+            spines.add(toSpine(group, upright));
+        }
+        return spines;
+    }
+
+    private static Spine toSpine(List<TextRun> group, boolean upright) {
+        group.sort(Comparator.comparingDouble(run -> upright ? run.centerY() : run.centerX()));
+        String text = String.join("\n", group.stream().map(TextRun::text).toList());
+        // Font size shows in the thickness across the spine: the biggest text is the title.
+        List<TextRun> bySize = new ArrayList<>(group);
+        bySize.sort(Comparator.comparingInt((TextRun run) -> upright ? run.width() : run.height()).reversed());
+        TextRun title = bySize.stream().filter(run -> run.text().length() >= 2).findFirst().orElse(bySize.get(0));
+        String author = bySize.stream()
+                .filter(run -> run != title && run.text().length() <= MAX_AUTHOR_LENGTH && !run.text().matches(".*\\d{3,}.*"))
+                .map(TextRun::text)
+                .findFirst()
+                .orElse(null);
+        return new Spine(text, title.text(), author);
+    }
+
+    private static TextRun toRun(Paragraph paragraph) {
+        StringBuilder text = new StringBuilder();
+        for (Word word : paragraph.getWordsList()) {
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            for (Symbol symbol : word.getSymbolsList()) {
+                text.append(symbol.getText());
+            }
+        }
+        // Vision splits CJK text into one word per character.
+        String joined = text.toString().replaceAll("(?<=\\p{IsHan}) (?=\\p{IsHan})", "").trim();
+        List<Vertex> vertices = paragraph.getBoundingBox().getVerticesList();
+        if (joined.isEmpty() || vertices.isEmpty()) {
+            return null;
+        }
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Vertex vertex : vertices) {
+            minX = Math.min(minX, vertex.getX());
+            minY = Math.min(minY, vertex.getY());
+            maxX = Math.max(maxX, vertex.getX());
+            maxY = Math.max(maxY, vertex.getY());
+        }
+        return new TextRun(joined, minX, minY, maxX, maxY);
+    }
+
+    record Spine(String text, String title, String author) {
+    }
+
+    private record TextRun(String text, int minX, int minY, int maxX, int maxY) {
+        int width() {
+            return maxX - minX;
+        }
+
+        int height() {
+            return maxY - minY;
+        }
+
+        double centerX() {
+            return (minX + maxX) / 2.0;
+        }
+
+        double centerY() {
+            return (minY + maxY) / 2.0;
+        }
+    }
+}
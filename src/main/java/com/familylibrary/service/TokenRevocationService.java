@@ -0,0 +1,125 @@
+package com.familylibrary.service;
+
+import com.familylibrary.model.RevokedToken;
+import com.familylibrary.repository.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked session and refresh-token ids, checked on every authenticated request without a query.
+ * <p>
+ * A {@link BloomFilter} sits in front of an exact in-memory map: almost every lookup is for a live
+ * session and is answered "no" by the filter alone; only filter hits (real revocations plus a small
+ * false-positive rate) consult the map. Revocations are inserted into {@code revoked_tokens} first and the
+ * whole structure is rebuilt from that table at startup. A periodic reload picks up revocations
+ * made by other instances, and a periodic purge drops ids whose tokens have expired anyway,
+ * rebuilding the filter (Bloom filters cannot delete) at a size that fits what remains.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int minCapacity;
+    private final double falsePositiveRate;
+
+    private final Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime lastLoadedAt = LocalDateTime.MIN;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${jwt.revocation.expected-entries:10000}") int minCapacity,
+                                  @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.minCapacity = minCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(minCapacity, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        LocalDateTime now = LocalDateTime.now();
+        List<RevokedToken> active = revokedTokenRepository.findByExpiresAtAfter(now);
+        active.forEach(token -> revoked.put(token.getTokenId(), token.getExpiresAt()));
+        rebuildFilter();
+        lastLoadedAt = now;
+        logger.info("Loaded {} revoked token ids", active.size());
+    }
+
+    /**
+     * Hot path: no allocation beyond hashing and no I/O.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Revokes an id until {@code expiresAtEpochMillis}, after which no token carrying it is valid anyway.
+     * The primary key decides who revoked first, so two instances seeing the same refresh token
+     * cannot both succeed.
+     *
+     * @return false if the id was already revoked (used to detect refresh-token reuse)
+     */
+    @Transactional
+    public boolean revoke(String tokenId, long expiresAtEpochMillis) {
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtEpochMillis), ZoneId.systemDefault());
+        boolean first = revokedTokenRepository.insertIfAbsent(tokenId, expiresAt, LocalDateTime.now()) == 1;
+        remember(tokenId, expiresAt); // Also when another instance got there first and the reload hasn't caught up
+        return first;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.reload-interval-ms:30000}")
+    public void reloadRecent() {
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap a little so a revocation committed during the previous reload isn't missed.
+        List<RevokedToken> recent = revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(lastLoadedAt.minusSeconds(5), now);
+        recent.forEach(token -> remember(token.getTokenId(), token.getExpiresAt()));
+        lastLoadedAt = now;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int removed = revokedTokenRepository.deleteExpired(now);
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        rebuildFilter();
+        logger.debug("Purged {} expired revocations, {} remain", removed, revoked.size());
+    }
+
+    // Revocations are rare (logout, refresh); serializing them with rebuilds keeps the filter complete.
+    private synchronized boolean remember(String tokenId, LocalDateTime expiresAt) {
+        // Map first: a filter hit must always find the id in the map.
+        if (revoked.putIfAbsent(tokenId, expiresAt) != null) {
+            return false;
+        }
+        filter.put(tokenId);
+        if (revoked.size() > filter.getExpectedInsertions()) {
+            rebuildFilter(); // Over capacity the false-positive rate climbs quickly
+        }
+        return true;
+    }
+
+    private synchronized void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(minCapacity, revoked.size() * 2), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+}
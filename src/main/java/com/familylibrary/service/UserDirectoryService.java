@@ -0,0 +1,78 @@
+package com.familylibrary.service;
+
+import com.familylibrary.dto.FamilySimpleDto;
+import com.familylibrary.dto.UserDto;
+import com.familylibrary.repository.UserRepository;
+import com.familylibrary.repository.projection.UserDirectoryView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Paged user directory, limited to the caller and the members of the caller's families.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserDirectoryService {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final TypeReference<List<FamilySimpleDto>> FAMILY_LIST = new TypeReference<>() {};
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final PresenceRegistry presenceRegistry;
+
+    @Transactional(readOnly = true)
+    public Page<UserDto> searchVisibleUsers(String query, Integer page, Integer size) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) {
+            throw new IllegalStateException("User is not authenticated or authentication details are not available.");
+        }
+        int pageNumber = (page == null || page < 0) ? 0 : page;
+        int pageSize = (size == null || size <= 0) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        return userRepository.findDirectoryPage(authentication.getName(), searchPattern(query), PageRequest.of(pageNumber, pageSize))
+                .map(this::convertToDto);
+    }
+
+    // Case-insensitive "contains" match; LIKE wildcards in the query are matched literally.
+    private String searchPattern(String query) {
+        if (query == null || query.isBlank()) {
+            return "%";
+        }
+        String escaped = query.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    private UserDto convertToDto(UserDirectoryView view) {
+        UserDto dto = new UserDto();
+        dto.setId(view.getId());
+        dto.setUsername(view.getUsername());
+        dto.setDisplayName(view.getDisplayName());
+        dto.setEmail(view.getEmail());
+        dto.setAvatar(view.getAvatar());
+        dto.setOnline(presenceRegistry.isOnline(view.getId()));
+        try {
+            dto.setFamilies(new LinkedHashSet<>(objectMapper.readValue(view.getFamilies(), FAMILY_LIST)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed family list for user " + view.getId(), e);
+        }
+        return dto;
+    }
+}
@@ -13,15 +13,21 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final CurrentUserContext currentUserContext;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, CurrentUserContext currentUserContext) {
         this.userRepository = userRepository;
+        this.currentUserContext = currentUserContext;
     }
 
     @Override
     @Transactional(readOnly = true)
     public User getCurrentUser() {
+        // Token-authenticated requests: cached snapshot keyed by the id in the JWT.
+        if (currentUserContext.getPrincipal() != null) {
+            return currentUserContext.getUser();
+        }
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) {
             return null;
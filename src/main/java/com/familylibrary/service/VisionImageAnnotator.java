@@ -0,0 +1,111 @@
+package com.familylibrary.service;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.google.cloud.vision.v1.ImageAnnotatorSettings;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Google Cloud Vision behind one long-lived {@link ImageAnnotatorClient}.
+ * <p>
+ * The client owns the gRPC channel pool, credentials and executor threads and is thread-safe, so
+ * a single instance serves every scan instead of paying that setup per image. It is created on
+ * first use (the application still starts without Vision credentials) and closed on shutdown.
+ */
+@Service
+@ConditionalOnProperty(name = "google.cloud.vision.annotator", havingValue = "vision", matchIfMissing = true)
+public class VisionImageAnnotator implements ImageAnnotator {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisionImageAnnotator.class);
+
+    private final String endpoint;
+    private final boolean anonymous;
+    private final int maxBatchSize;
+
+    private volatile ImageAnnotatorClient client;
+
+    public VisionImageAnnotator(@Value("${google.cloud.vision.endpoint:}") String endpoint,
+                                @Value("${google.cloud.vision.anonymous:false}") boolean anonymous,
+                                @Value("${google.cloud.vision.max-batch-size:16}") int maxBatchSize) {
+        this.endpoint = endpoint;
+        this.anonymous = anonymous;
+        // Vision accepts at most 16 images per synchronous batch request.
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, 16));
+    }
+
+    @Override
+    public List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) throws IOException {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " images per batch");
+        }
+        BatchAnnotateImagesResponse response;
+        try {
+            response = getClient().batchAnnotateImages(requests);
+        } catch (RuntimeException e) {
+            // gRPC failures surface as unchecked ApiExceptions; callers treat them like I/O errors.
+            throw new IOException("Vision request failed: " + e.getMessage(), e);
+        }
+        if (response.getResponsesCount() != requests.size()) {
+            throw new IOException("Vision returned " + response.getResponsesCount() + " responses for " + requests.size() + " images");
+        }
+        return response.getResponsesList();
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    private ImageAnnotatorClient getClient() throws IOException {
+        ImageAnnotatorClient current = client;
+        if (current == null) {
+            synchronized (this) {
+                current = client;
+                if (current == null) {
+                    current = createClient();
+                    client = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private ImageAnnotatorClient createClient() throws IOException {
+        if (endpoint.isBlank() && !anonymous) {
+            logger.info("Creating Vision client with default endpoint and credentials");
+            return ImageAnnotatorClient.create();
+        }
+        // Endpoint override points the client at an emulator or local fake gRPC server.
+        ImageAnnotatorSettings.Builder settings = ImageAnnotatorSettings.newBuilder();
+        if (!endpoint.isBlank()) {
+            settings.setEndpoint(endpoint);
+        }
+        if (anonymous) {
+            settings.setCredentialsProvider(NoCredentialsProvider.create());
+        }
+        logger.info("Creating Vision client for endpoint {}", endpoint.isBlank() ? "(default)" : endpoint);
+        return ImageAnnotatorClient.create(settings.build());
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        ImageAnnotatorClient current = client;
+        if (current != null) {
+            current.shutdown();
+            current.awaitTermination(5, TimeUnit.SECONDS);
+            current.close();
+        }
+    }
+}
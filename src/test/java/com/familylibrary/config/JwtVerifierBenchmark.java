@@ -0,0 +1,101 @@
+package com.familylibrary.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of what {@link JwtRequestFilter} does with a bearer token: verify it and build
+ * the principal from its claims.
+ * <ul>
+ *   <li>{@code perRequestParser}: the old path, a new signing parser built and the token parsed on every call</li>
+ *   <li>{@code uncachedVerify}: {@link JwtVerifier#verify} missing its cache every time (two tokens, room for one)</li>
+ *   <li>{@code cachedVerify}: {@link JwtVerifier#verify} for a token seen before, the steady state of a logged-in client</li>
+ * </ul>
+ * Run with {@code mvn test-compile} and then the {@link #main} method from the IDE, or through the
+ * JMH runner on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifierBenchmark {
+
+    private static final String SECRET = "ThisIsMySuperSecureAndLongFixedSecretKeyForTestingPurposes1234567890";
+
+    private JwtUtil jwtUtil;
+    private JwtVerifier cachingVerifier;
+    private JwtVerifier missingVerifier;
+    private String token;
+    private String[] alternatingTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cachingVerifier = new JwtVerifier(SECRET, 4096);
+        missingVerifier = new JwtVerifier(SECRET, 1);
+        jwtUtil = new JwtUtil(cachingVerifier);
+        token = accessToken(42L, "reader", List.of(1L, 2L));
+        alternatingTokens = new String[] { token, accessToken(43L, "reader2", List.of(1L)) };
+        cachingVerifier.verify(token); // Warm the cache for cachedVerify
+    }
+
+    // Same claims as JwtUtil.generateToken, without its @Value-injected lifetime.
+    private String accessToken(Long userId, String username, List<Long> familyIds) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setClaims(Map.of(
+                        JwtUserPrincipal.CLAIM_USER_ID, userId,
+                        JwtUserPrincipal.CLAIM_FAMILY_IDS, familyIds,
+                        JwtUtil.CLAIM_SESSION_ID, UUID.randomUUID().toString(),
+                        JwtUtil.CLAIM_TOKEN_TYPE, JwtUtil.TOKEN_TYPE_ACCESS))
+                .setSubject(username)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + TimeUnit.HOURS.toMillis(1)))
+                .signWith(cachingVerifier.getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public JwtUserPrincipal perRequestParser() {
+        Claims claims = Jwts.parserBuilder().setSigningKey(cachingVerifier.getSigningKey()).build()
+                .parseClaimsJws(token).getBody();
+        return jwtUtil.toPrincipal(claims);
+    }
+
+    @Benchmark
+    public JwtUserPrincipal uncachedVerify() {
+        next ^= 1;
+        return jwtUtil.toPrincipal(missingVerifier.verify(alternatingTokens[next]));
+    }
+
+    @Benchmark
+    public JwtUserPrincipal cachedVerify() {
+        return jwtUtil.toPrincipal(cachingVerifier.verify(token));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerifierBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,156 @@
+package com.familylibrary.service;
+
+import com.familylibrary.repository.BookMetadataRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The scan pipeline end to end with {@link FakeImageAnnotator} standing in for Vision: a "photo" that is
+ * UTF-8 text comes back as its own OCR result, a rendered barcode never reaches OCR at all.
+ */
+class BookScanServiceTest {
+
+    private static final String HUOZHE = "9787544253994";
+    private static final String SHUIHU = "9787020024421";
+
+    private final List<String> catalogLookups = new ArrayList<>();
+    private FakeImageAnnotator annotator;
+    private MetadataProviderChain metadataProviderChain;
+    private BookScanService service;
+
+    @BeforeEach
+    void setUp() {
+        annotator = new FakeImageAnnotator(16);
+        metadataProviderChain = new MetadataProviderChain(List.of(new CatalogStub()), 3000, 2);
+        BookMetadataCache bookMetadataCache = new BookMetadataCache(mock(BookMetadataRepository.class), new ObjectMapper(), 30, 24, 100);
+        service = new BookScanService(metadataProviderChain, annotator, new Ean13BarcodeDecoder(true, 24, 2), bookMetadataCache,
+                new ScanImagePreprocessor(true, 1600, 0.85f, true), new IsbnExtractor(), new ScanResultCache(true, 6, 24, 100));
+        ReflectionTestUtils.setField(service, "maxImagesPerScan", 48);
+        ReflectionTestUtils.setField(service, "maxIsbnCandidates", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        metadataProviderChain.shutdown();
+    }
+
+    @Test
+    void barcodeSkipsOcr() throws Exception {
+        byte[] photo = ScanTestImages.encode(ScanTestImages.ean13(HUOZHE, 3, 120), "png");
+
+        Map<String, Object> book = service.scanBook(() -> new ByteArrayInputStream(photo));
+
+        assertEquals("活着", book.get("title"));
+        assertEquals(0, annotator.getBatchCount());
+    }
+
+    @Test
+    void ocrTextIsSearchedForTheLabelledIsbn() throws Exception {
+        byte[] photo = ("水浒传\n同系列 " + HUOZHE + "\nISBN 978-7-02-002442-1").getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Object> book = service.scanBook(() -> new ByteArrayInputStream(photo));
+
+        assertEquals("水浒传", book.get("title"));
+        assertEquals(1, annotator.getBatchCount());
+        assertEquals(List.of(SHUIHU), catalogLookups);
+    }
+
+    @Test
+    void rescanWithUnreadableBarcodeIsServedFromResultCache() throws Exception {
+        BufferedImage photo = ScanTestImages.cover(3, 800, 1000);
+        Graphics2D g = photo.createGraphics();
+        g.drawImage(ScanTestImages.ean13(HUOZHE, 3, 150), 300, 750, null);
+        g.dispose();
+        byte[] first = ScanTestImages.encode(photo, "png");
+        // Glare across the bars: the barcode no longer reads, the cover still looks the same.
+        g = photo.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(420, 750, 12, 150);
+        g.dispose();
+        byte[] second = ScanTestImages.encode(photo, "jpg");
+        assertTrue(new Ean13BarcodeDecoder(true, 24, 2).decode(second).isEmpty());
+
+        service.scanBook(() -> new ByteArrayInputStream(first));
+        Map<String, Object> book = service.scanBook(() -> new ByteArrayInputStream(second));
+
+        assertEquals("活着", book.get("title"));
+        assertEquals(0, annotator.getBatchCount());
+        assertEquals(List.of(HUOZHE), catalogLookups);
+    }
+
+    @Test
+    void unrecognizedPhotoIsReportedAsNotRecognized() {
+        byte[] photo = "\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(BookNotRecognizedException.class, () -> service.scanBook(() -> new ByteArrayInputStream(photo)));
+    }
+
+    @Test
+    void batchSendsOnlyImagesWithoutBarcodeToVisionInOneRoundTrip() throws Exception {
+        List<MultipartFile> images = List.of(
+                new MockMultipartFile("images", "back.png", "image/png", ScanTestImages.encode(ScanTestImages.ean13(HUOZHE, 3, 120), "png")),
+                new MockMultipartFile("images", "label.txt", "text/plain", ("ISBN " + SHUIHU).getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("images", "blank.txt", "text/plain", "\n".getBytes(StandardCharsets.UTF_8)));
+
+        List<Map<String, Object>> results = service.scanBooks(images);
+
+        assertEquals(List.of("found", "found", "not_found"), results.stream().map(result -> result.get("status")).toList());
+        assertEquals("活着", ((Map<?, ?>) results.get(0).get("book")).get("title"));
+        assertEquals("水浒传", ((Map<?, ?>) results.get(1).get("book")).get("title"));
+        assertEquals(1, annotator.getBatchCount());
+    }
+
+    private final class CatalogStub implements MetadataProvider {
+
+        @Override
+        public String getName() {
+            return "stub";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public long getHedgeDelayMillis() {
+            return 0;
+        }
+
+        @Override
+        public long getTimeoutMillis() {
+            return 1000;
+        }
+
+        @Override
+        public Map<String, Object> findByIsbn(String isbn13) {
+            synchronized (catalogLookups) {
+                catalogLookups.add(isbn13);
+            }
+            return switch (isbn13) {
+                case HUOZHE -> Map.of("title", "活着", "isbn", HUOZHE);
+                case SHUIHU -> Map.of("title", "水浒传", "isbn", SHUIHU);
+                default -> null;
+            };
+        }
+    }
+}
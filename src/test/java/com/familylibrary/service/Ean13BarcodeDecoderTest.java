@@ -0,0 +1,75 @@
+package com.familylibrary.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Ean13BarcodeDecoderTest {
+
+    private final Ean13BarcodeDecoder decoder = new Ean13BarcodeDecoder(true, 24, 2);
+
+    @Test
+    void decodesRenderedBarcodeFromPng() {
+        byte[] png = ScanTestImages.encode(ScanTestImages.ean13("9787020024421", 3, 120), "png");
+
+        assertEquals(Optional.of("9787020024421"), decoder.decode(png));
+    }
+
+    @Test
+    void decodesEveryFirstDigitParity() {
+        // The first digit is only encoded in the L/G parity of the left half.
+        for (String code : new String[] {"0012345678905", "4006381333931", "5901234123457", "9781234567897"}) {
+            assertEquals(Optional.of(code), decoder.decode(ScanTestImages.ean13(code, 2, 80)), code);
+        }
+    }
+
+    @Test
+    void decodesUpsideDownAndSideways() {
+        BufferedImage barcode = ScanTestImages.ean13("9787544253994", 3, 120);
+
+        assertEquals(Optional.of("9787544253994"), decoder.decode(ScanTestImages.rotate180(barcode)));
+        assertEquals(Optional.of("9787544253994"), decoder.decode(transpose(barcode)));
+    }
+
+    @Test
+    void decodesAfterJpegRecompressionAndDownscaling() {
+        BufferedImage barcode = ScanTestImages.ean13("9787020024421", 4, 160);
+        BufferedImage smaller = ScanTestImages.scale(barcode, barcode.getWidth() * 3 / 4, barcode.getHeight() * 3 / 4);
+
+        assertEquals(Optional.of("9787020024421"), decoder.decode(ScanTestImages.encode(smaller, "jpg")));
+    }
+
+    @Test
+    void rejectsWrongCheckDigit() {
+        assertTrue(decoder.decode(ScanTestImages.ean13("9787020024422", 3, 120)).isEmpty());
+    }
+
+    @Test
+    void findsNothingWithoutBarcode() {
+        assertTrue(decoder.decode(ScanTestImages.uniform(400, 300, Color.WHITE)).isEmpty());
+        assertTrue(decoder.decode(ScanTestImages.cover(7, 400, 300)).isEmpty());
+        assertTrue(decoder.decode("ISBN 978-7-02-002442-1".getBytes()).isEmpty()); // Not an image at all
+    }
+
+    @Test
+    void disabledDecoderFindsNothing() {
+        Ean13BarcodeDecoder disabled = new Ean13BarcodeDecoder(false, 24, 2);
+
+        assertTrue(disabled.decode(ScanTestImages.ean13("9787020024421", 3, 120)).isEmpty());
+    }
+
+    private static BufferedImage transpose(BufferedImage image) {
+        BufferedImage transposed = new BufferedImage(image.getHeight(), image.getWidth(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                transposed.setRGB(y, x, image.getRGB(x, y));
+            }
+        }
+        return transposed;
+    }
+}
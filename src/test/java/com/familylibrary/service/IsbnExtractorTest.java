@@ -0,0 +1,68 @@
+package com.familylibrary.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsbnExtractorTest {
+
+    private final IsbnExtractor extractor = new IsbnExtractor();
+
+    @Test
+    void normalizesSeparatorsAndIsbn10() {
+        assertEquals(List.of("9787020024421"), extractor.extract("ISBN 978-7-02-002442-1"));
+        assertEquals(List.of("9787041001128"), extractor.extract("ISBN 7-04-100112-1"));
+        assertEquals(List.of("9787020024421"), extractor.extract("ISBN：978 7 02 002442 1"));
+    }
+
+    @Test
+    void dropsNumbersThatFailTheCheckDigit() {
+        String text = "定价：45.00元 电话 010-65252255 2021年6月第1版 9787020024422";
+
+        assertTrue(extractor.extract(text).isEmpty());
+    }
+
+    @Test
+    void labelledIsbnOutranksEarlierUnlabelledOne() {
+        // The back of a book often lists a series or companion title before its own ISBN.
+        String text = "同系列 9787544253994\n出版社 人民文学出版社\nISBN 978-7-02-002442-1";
+
+        assertEquals(List.of("9787020024421", "9787544253994"), extractor.extract(text));
+    }
+
+    @Test
+    void repeatedSightingOutranksSingleOne() {
+        // Digits printed under the barcode repeat the ISBN; an unrelated valid code appears once.
+        String text = "9787544253994\n9787020024421\n9787020024421";
+
+        assertEquals(List.of("9787020024421", "9787544253994"), extractor.extract(text));
+    }
+
+    @Test
+    void isbn13FormOutranksIsbn10FormOfAnotherBook() {
+        String text = "7041001121\n9787020024421";
+
+        assertEquals(List.of("9787020024421", "9787041001128"), extractor.extract(text));
+    }
+
+    @Test
+    void repairsOcrConfusionsOnlyBehindLabel() {
+        assertEquals(List.of("9787020024421"), extractor.extract("ISBN 978-7-O2-OO2442-l"));
+        assertTrue(extractor.extract("978-7-O2-OO2442-l").isEmpty());
+    }
+
+    @Test
+    void findsBooklandWindowInsideMergedRun() {
+        // OCR glued the price to the ISBN.
+        assertEquals(List.of("9787020024421"), extractor.extract("45009787020024421"));
+    }
+
+    @Test
+    void emptyForBlankText() {
+        assertTrue(extractor.extract(null).isEmpty());
+        assertTrue(extractor.extract("  ").isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package com.familylibrary.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanResultCacheTest {
+
+    private static final int MAX_DISTANCE = 6;
+
+    @Test
+    void bkTreeFindsSameDistanceAsBruteForce() {
+        ScanResultCache cache = new ScanResultCache(true, MAX_DISTANCE, 24, 100_000);
+        Random random = new Random(42);
+        List<Long> stored = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Clusters of near-duplicates, as rescans of the same cover produce, plus unrelated hashes.
+            long hash = i % 5 == 0 || stored.isEmpty() ? random.nextLong() : flipBits(stored.get(random.nextInt(stored.size())), 1 + random.nextInt(10), random);
+            stored.add(hash);
+            cache.put(hash, Map.of("hash", hash));
+        }
+
+        int hits = 0;
+        for (int q = 0; q < 2000; q++) {
+            long query = q % 2 == 0 ? random.nextLong() : flipBits(stored.get(random.nextInt(stored.size())), random.nextInt(MAX_DISTANCE + 3), random);
+            int expected = bruteForceDistance(stored, query);
+            Map<String, Object> found = cache.find(query);
+            if (expected > MAX_DISTANCE) {
+                assertNull(found, "query " + Long.toHexString(query));
+            } else {
+                assertNotNull(found, "query " + Long.toHexString(query));
+                assertEquals(expected, Long.bitCount((Long) found.get("hash") ^ query), "query " + Long.toHexString(query));
+                hits++;
+            }
+        }
+        assertTrue(hits > 500, "too few queries within range to be meaningful: " + hits);
+    }
+
+    @Test
+    void evictedEntriesAreNotFound() {
+        ScanResultCache cache = new ScanResultCache(true, MAX_DISTANCE, 24, 100);
+        Random random = new Random(7);
+        List<Long> stored = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long hash = random.nextLong();
+            stored.add(hash);
+            cache.put(hash, Map.of("hash", hash));
+        }
+
+        assertNull(cache.find(stored.get(0)));
+        assertEquals(stored.get(999), cache.find(stored.get(999)).get("hash"));
+    }
+
+    @Test
+    void fingerprintSurvivesRescalingAndJpeg() throws Exception {
+        ScanResultCache cache = new ScanResultCache(true, MAX_DISTANCE, 24, 100);
+        BufferedImage cover = ScanTestImages.cover(1, 600, 800);
+        BufferedImage rescan = ImageIO.read(new ByteArrayInputStream(ScanTestImages.encode(ScanTestImages.scale(cover, 450, 600), "jpg")));
+
+        Long original = cache.fingerprint(cover);
+        Long again = cache.fingerprint(rescan);
+        cache.put(original, Map.of("title", "活着"));
+
+        assertNotNull(original);
+        assertTrue(Long.bitCount(original ^ again) <= MAX_DISTANCE);
+        assertEquals("活着", cache.find(again).get("title"));
+        assertNull(cache.find(cache.fingerprint(ScanTestImages.cover(2, 600, 800))));
+    }
+
+    @Test
+    void uniformImageHasNoFingerprint() {
+        ScanResultCache cache = new ScanResultCache(true, MAX_DISTANCE, 24, 100);
+
+        assertNull(cache.fingerprint(ScanTestImages.uniform(600, 800, Color.GRAY)));
+    }
+
+    private static int bruteForceDistance(List<Long> stored, long query) {
+        int best = Integer.MAX_VALUE;
+        for (long hash : stored) {
+            best = Math.min(best, Long.bitCount(hash ^ query));
+        }
+        return best;
+    }
+
+    private static long flipBits(long hash, int bits, Random random) {
+        long result = hash;
+        for (int i = 0; i < bits; i++) {
+            result ^= 1L << random.nextInt(64);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package com.familylibrary.service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Synthetic scan images for the scan pipeline tests: rendered EAN-13 barcodes and random "covers".
+ */
+final class ScanTestImages {
+
+    // Standard EAN-13 L-codes as 7 modules (1 = bar); R-codes are their complement, G-codes the R-codes reversed.
+    private static final String[] L_CODES = {
+            "0001101", "0011001", "0010011", "0111101", "0100011",
+            "0110001", "0101111", "0111011", "0110111", "0001011"
+    };
+    // Parity of the six left digits per first digit.
+    private static final String[] PARITY = {
+            "LLLLLL", "LLGLGG", "LLGGLG", "LLGGGL", "LGLLGG",
+            "LGGLLG", "LGGGLL", "LGLGLG", "LGLGGL", "LGGLGL"
+    };
+    private static final int QUIET_ZONE_MODULES = 11;
+
+    private ScanTestImages() {
+    }
+
+    /**
+     * Renders the 13 digits as an EAN-13 barcode (no check digit validation, so broken codes can be drawn too).
+     */
+    static BufferedImage ean13(String digits, int moduleWidth, int height) {
+        String modules = ean13Modules(digits);
+        int width = (modules.length() + 2 * QUIET_ZONE_MODULES) * moduleWidth;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        for (int i = 0; i < modules.length(); i++) {
+            if (modules.charAt(i) == '1') {
+                g.fillRect((QUIET_ZONE_MODULES + i) * moduleWidth, 0, moduleWidth, height);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static String ean13Modules(String digits) {
+        StringBuilder modules = new StringBuilder("101");
+        String parity = PARITY[digits.charAt(0) - '0'];
+        for (int i = 1; i <= 6; i++) {
+            String l = L_CODES[digits.charAt(i) - '0'];
+            modules.append(parity.charAt(i - 1) == 'L' ? l : new StringBuilder(complement(l)).reverse());
+        }
+        modules.append("01010");
+        for (int i = 7; i <= 12; i++) {
+            modules.append(complement(L_CODES[digits.charAt(i) - '0']));
+        }
+        return modules.append("101").toString();
+    }
+
+    private static String complement(String code) {
+        StringBuilder result = new StringBuilder(code.length());
+        for (char c : code.toCharArray()) {
+            result.append(c == '1' ? '0' : '1');
+        }
+        return result.toString();
+    }
+
+    /**
+     * A cover-like image: large random blocks of gray, deterministic per seed.
+     */
+    static BufferedImage cover(long seed, int width, int height) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        int cells = 6;
+        for (int y = 0; y < cells; y++) {
+            for (int x = 0; x < cells; x++) {
+                int level = random.nextInt(256);
+                g.setColor(new Color(level, level, level));
+                g.fillRect(x * width / cells, y * height / cells, width / cells + 1, height / cells + 1);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    static BufferedImage uniform(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+
+    static BufferedImage rotate180(BufferedImage image) {
+        AffineTransform transform = AffineTransform.getRotateInstance(Math.PI, image.getWidth() / 2.0, image.getHeight() / 2.0);
+        return new AffineTransformOp(transform, AffineTransformOp.TYPE_NEAREST_NEIGHBOR).filter(image, null);
+    }
+
+    static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    static byte[] encode(BufferedImage image, String format) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(image, format, out)) {
+                throw new IllegalStateException("No writer for " + format);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}